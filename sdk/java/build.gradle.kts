@@ -3,6 +3,7 @@ plugins {
     `java-library`
     signing
     id("com.vanniktech.maven.publish") version "0.30.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "app.hideit"
@@ -20,9 +21,11 @@ repositories {
 
 val jacksonVersion = "2.16.1"
 val jedisVersion = "5.1.0"
+val lettuceVersion = "6.3.2.RELEASE"
 val bouncycastleVersion = "1.77"
 val junitVersion = "5.10.1"
 val testcontainersVersion = "1.19.3"
+val jmhCoreVersion = "1.37"
 
 dependencies {
     // JSON Serialization
@@ -31,6 +34,7 @@ dependencies {
 
     // Redis Client (optional)
     compileOnly("redis.clients:jedis:$jedisVersion")
+    compileOnly("io.lettuce:lettuce-core:$lettuceVersion")
 
     // Cryptography (Ed25519, additional algorithms)
     implementation("org.bouncycastle:bcprov-jdk18on:$bouncycastleVersion")
@@ -42,10 +46,15 @@ dependencies {
 
     // Jedis needed for tests
     testImplementation("redis.clients:jedis:$jedisVersion")
+    testImplementation("io.lettuce:lettuce-core:$lettuceVersion")
 }
 
 tasks.test {
     useJUnitPlatform()
+    // Redis integration tests run only against a given server or cluster:
+    // -PredisUri=redis://host:port, -PredisClusterNodes=host:port,...
+    (findProperty("redisUri") as String?)?.let { systemProperty("efsf.redis.uri", it) }
+    (findProperty("redisClusterNodes") as String?)?.let { systemProperty("efsf.redis.cluster.nodes", it) }
     testLogging {
         events("passed", "skipped", "failed")
         showExceptions = true
@@ -54,6 +63,55 @@ tasks.test {
     }
 }
 
+// Benchmarks: ./gradlew jmh runs once with the GC profiler and writes JSON results;
+// ./gradlew jmhMatrix repeats the run per thread count (-PjmhThreads=1,4,8) into
+// build/results/jmh/results-t<N>.json, for diffing between versions
+val jmhResultsDir = layout.buildDirectory.dir("results/jmh")
+val jmhThreadCounts = (findProperty("jmhThreads") as String? ?: "1,4,8")
+    .split(",")
+    .map { it.trim().toInt() }
+val jmhIncludes = findProperty("jmhIncludes") as String?
+
+jmh {
+    jmhVersion.set(jmhCoreVersion)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResultsDir.map { it.file("results.json") })
+    jmhIncludes?.let { includes.add(it) }
+}
+
+val jmhMatrix by tasks.registering {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks once per thread count in -PjmhThreads."
+}
+
+var previousJmhRun: TaskProvider<JavaExec>? = null
+jmhThreadCounts.forEach { threads ->
+    val previous = previousJmhRun
+    val run = tasks.register<JavaExec>("jmhThreads$threads") {
+        group = "benchmark"
+        description = "Runs the JMH benchmarks with $threads thread(s)."
+        classpath(tasks.named("jmhJar"))
+        mainClass.set("org.openjdk.jmh.Main")
+        val resultsFile = jmhResultsDir.map { it.file("results-t$threads.json") }
+        outputs.file(resultsFile)
+        outputs.upToDateWhen { false }
+        doFirst { resultsFile.get().asFile.parentFile.mkdirs() }
+        argumentProviders.add(CommandLineArgumentProvider {
+            listOfNotNull(jmhIncludes) + listOf(
+                "-t", threads.toString(),
+                "-prof", "gc",
+                "-rf", "json",
+                "-rff", resultsFile.get().asFile.absolutePath
+            )
+        })
+        // Runs never overlap, so they do not skew each other
+        previous?.let { mustRunAfter(it) }
+    }
+    previousJmhRun = run
+    jmhMatrix { dependsOn(run) }
+}
+
 tasks.compileJava {
     options.encoding = "UTF-8"
 }
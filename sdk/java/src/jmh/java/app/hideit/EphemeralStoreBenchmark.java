@@ -0,0 +1,71 @@
+package app.hideit;
+
+import app.hideit.certificate.DestructionCertificate;
+import app.hideit.record.EphemeralRecord;
+import app.hideit.store.MemoryBackend;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures EphemeralStore operations on a MemoryBackend, so the numbers reflect the SDK's own
+ * serialization, encryption and certificate costs rather than network latency.
+ *
+ * <p>Records are destroyed within the same operation that creates them, keeping the heap
+ * flat even for 1 MB payloads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EphemeralStoreBenchmark {
+
+    @Param({"64", "1024", "16384", "262144", "1048576"})
+    int payloadSize;
+
+    private EphemeralStore store;
+    private Map<String, Object> data;
+    private String recordId;
+
+    @Setup
+    public void setUp() {
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .defaultTTL("1h")
+            .build();
+
+        // Random letters, so the JSON encoding is exactly payloadSize plus a small wrapper
+        Random random = new Random(42);
+        StringBuilder payload = new StringBuilder(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            payload.append((char) ('a' + random.nextInt(26)));
+        }
+        data = Map.of("payload", payload.toString());
+        recordId = store.put(data, "1h").getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public DestructionCertificate putAndDestroy() {
+        EphemeralRecord record = store.put(data, "1h");
+        return store.destroy(record.getId());
+    }
+
+    @Benchmark
+    public Map<String, Object> get() {
+        return store.get(recordId);
+    }
+
+    @Benchmark
+    public EphemeralRecord getRecord() {
+        return store.getRecord(recordId);
+    }
+}
@@ -0,0 +1,60 @@
+package app.hideit.certificate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures destruction certificate issuance: chain-of-custody creation
+ * and Ed25519 signing and verification.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CertificateBenchmark {
+
+    private AttestationAuthority authority;
+    private DestructionCertificate signed;
+
+    @Setup
+    public void setUp() {
+        authority = AttestationAuthority.create("benchmark-authority");
+        signed = authority.sign(newCertificate());
+    }
+
+    @Benchmark
+    public ChainOfCustody createChainOfCustody() {
+        return newChain();
+    }
+
+    @Benchmark
+    public DestructionCertificate createAndSign() {
+        return authority.sign(newCertificate());
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return authority.verify(signed);
+    }
+
+    /**
+     * Same shape as the certificates EphemeralStore issues on destroy.
+     */
+    private static DestructionCertificate newCertificate() {
+        return new DestructionCertificate.Builder()
+            .resource(new ResourceInfo("ephemeral_record", "benchmark-record", 1024, "memory"))
+            .method(DestructionMethod.KEY_DESTRUCTION)
+            .chainOfCustody(newChain())
+            .build();
+    }
+
+    private static ChainOfCustody newChain() {
+        return new ChainOfCustody()
+            .addEntry("STORED", "efsf-java", "Record stored in memory")
+            .addEntry("KEY_DESTROYED", "efsf-java", "Encryption key destroyed (crypto-shred)")
+            .addEntry("DATA_DELETED", "efsf-java", "Record deleted from storage");
+    }
+}
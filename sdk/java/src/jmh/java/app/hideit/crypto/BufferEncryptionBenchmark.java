@@ -0,0 +1,83 @@
+package app.hideit.crypto;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the byte-array encryption API, which allocates its output, against the
+ * ByteBuffer API writing into reused heap and direct buffers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferEncryptionBenchmark {
+
+    @Param({"64", "65536", "1048576"})
+    int payloadSize;
+
+    @Param({"heap", "direct"})
+    String bufferType;
+
+    private CryptoProvider crypto;
+    private DataEncryptionKey dek;
+    private byte[] plaintext;
+    private EncryptedPayload payload;
+    private ByteBuffer src;
+    private ByteBuffer ciphertext;
+    private ByteBuffer decrypted;
+    private byte[] nonce;
+
+    @Setup
+    public void setUp() {
+        crypto = new CryptoProvider();
+        dek = crypto.generateDEK();
+        plaintext = new byte[payloadSize];
+        new SecureRandom().nextBytes(plaintext);
+        payload = crypto.encrypt(plaintext, dek);
+
+        src = allocate(payloadSize).put(plaintext).flip();
+        ciphertext = allocate(CryptoProvider.ciphertextLength(payloadSize));
+        decrypted = allocate(payloadSize);
+        nonce = crypto.encrypt(src, ciphertext, dek);
+        src.flip();
+        ciphertext.flip();
+    }
+
+    @TearDown
+    public void tearDown() {
+        crypto.close();
+    }
+
+    @Benchmark
+    public EncryptedPayload encryptArray() {
+        return crypto.encrypt(plaintext, dek);
+    }
+
+    @Benchmark
+    public byte[] encryptBuffer() {
+        src.rewind();
+        ciphertext.clear();
+        return crypto.encrypt(src, ciphertext, dek);
+    }
+
+    @Benchmark
+    public byte[] decryptArray() {
+        return crypto.decrypt(payload, dek);
+    }
+
+    @Benchmark
+    public int decryptBuffer() {
+        decrypted.clear();
+        return crypto.decrypt(payload, decrypted, dek);
+    }
+
+    private ByteBuffer allocate(int size) {
+        return "direct".equals(bufferType) ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+}
@@ -0,0 +1,71 @@
+package app.hideit.crypto;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares CryptoProvider's pooled ciphers against looking up a new Cipher
+ * (and building a new SecretKeySpec) for every operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherReuseBenchmark {
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    private CryptoProvider crypto;
+    private DataEncryptionKey dek;
+    private byte[] plaintext;
+    private EncryptedPayload payload;
+    private SecureRandom random;
+
+    @Setup
+    public void setUp() {
+        crypto = new CryptoProvider();
+        dek = crypto.generateDEK();
+        plaintext = new byte[payloadSize];
+        random = new SecureRandom();
+        random.nextBytes(plaintext);
+        payload = crypto.encrypt(plaintext, dek);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public EncryptedPayload encryptPooled() {
+        return crypto.encrypt(plaintext, dek);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] encryptGetInstance() throws Exception {
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(dek.getBytes(), "AES"), new GCMParameterSpec(128, nonce));
+        return cipher.doFinal(plaintext);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] decryptPooled() {
+        return crypto.decrypt(payload, dek);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] decryptGetInstance() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(dek.getBytes(), "AES"), new GCMParameterSpec(128, payload.getNonce()));
+        return cipher.doFinal(payload.getCiphertext());
+    }
+}
@@ -0,0 +1,50 @@
+package app.hideit.crypto;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CryptoProvider's AES-256-GCM encryption and decryption across payload sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoProviderBenchmark {
+
+    @Param({"64", "1024", "16384", "262144", "1048576"})
+    int payloadSize;
+
+    private CryptoProvider crypto;
+    private DataEncryptionKey dek;
+    private byte[] plaintext;
+    private EncryptedPayload payload;
+
+    @Setup
+    public void setUp() {
+        crypto = new CryptoProvider();
+        dek = crypto.generateDEK();
+        plaintext = new byte[payloadSize];
+        new SecureRandom().nextBytes(plaintext);
+        payload = crypto.encrypt(plaintext, dek);
+    }
+
+    @TearDown
+    public void tearDown() {
+        crypto.close();
+    }
+
+    @Benchmark
+    public EncryptedPayload encrypt() {
+        return crypto.encrypt(plaintext, dek);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return crypto.decrypt(payload, dek);
+    }
+}
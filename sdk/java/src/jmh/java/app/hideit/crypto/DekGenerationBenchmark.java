@@ -0,0 +1,40 @@
+package app.hideit.crypto;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CryptoProvider.generateDEK with and without a pre-filled DEK pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DekGenerationBenchmark {
+
+    @Param({"0", "1024"})
+    int dekPoolCapacity;
+
+    private CryptoProvider crypto;
+
+    @Setup
+    public void setUp() {
+        crypto = dekPoolCapacity > 0
+            ? CryptoProvider.builder().dekPool(dekPoolCapacity, dekPoolCapacity / 4).build()
+            : new CryptoProvider();
+    }
+
+    @TearDown
+    public void tearDown() {
+        crypto.close();
+    }
+
+    @Benchmark
+    public boolean generateDEK() {
+        // Destroyed straight away so the key store does not grow during the run
+        return crypto.destroyKey(crypto.generateDEK().getId());
+    }
+}
@@ -1,6 +1,5 @@
 package app.hideit;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import app.hideit.certificate.*;
@@ -9,10 +8,20 @@ import app.hideit.exception.*;
 import app.hideit.record.*;
 import app.hideit.store.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * The main entry point for the EFSF SDK.
@@ -31,12 +40,30 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public final class EphemeralStore implements AutoCloseable {
 
+    // Base64 characters covering the envelope header (4 characters per 3 bytes),
+    // for envelopes stored as Base64 text by earlier versions
+    private static final int HEADER_BASE64_LENGTH = (RecordEnvelope.HEADER_PREFIX_LENGTH + 2) / 3 * 4;
+
+    // Chunk keys deleted per backend call when a streamed record is destroyed
+    private static final int CHUNK_DELETE_BATCH = 64;
+
+    // Extra chunk lifetime, so chunks outlive their record on backends that round TTLs to seconds
+    private static final Duration CHUNK_TTL_MARGIN = Duration.ofSeconds(2);
+
     private final StorageBackend backend;
     private final CryptoProvider crypto;
     private final Duration defaultTTL;
     private final DataClassification defaultClassification;
     private final AttestationAuthority authority;
+    private final BatchSigner batchSigner;
+    private final CertificateSink certificateSink;
+    private final int maxPendingCertificates;
+    private final Semaphore certificatePermits;
     private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final int streamChunkSize;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
 
     // Statistics
     private final AtomicLong putCount = new AtomicLong(0);
@@ -45,12 +72,37 @@ public final class EphemeralStore implements AutoCloseable {
 
     private EphemeralStore(Builder builder) {
         this.backend = builder.backend != null ? builder.backend : new MemoryBackend();
-        this.crypto = new CryptoProvider();
+        this.crypto = builder.crypto != null ? builder.crypto : new CryptoProvider();
         this.defaultTTL = builder.defaultTTL;
         this.defaultClassification = builder.defaultClassification;
         this.authority = builder.authority;
+        if (builder.batchWindow != null) {
+            if (authority == null) {
+                throw new IllegalArgumentException("Batch signing requires an attestation authority");
+            }
+            this.batchSigner = new BatchSigner(authority, builder.batchWindow, builder.maxBatchSize);
+        } else {
+            this.batchSigner = null;
+        }
+        if (builder.maxPendingCertificates <= 0) {
+            throw new IllegalArgumentException("Max pending certificates must be positive");
+        }
+        this.certificateSink = builder.certificateSink;
+        this.maxPendingCertificates = builder.maxPendingCertificates;
+        this.certificatePermits = new Semaphore(maxPendingCertificates);
+        if (builder.streamChunkSize <= 0) {
+            throw new IllegalArgumentException("Stream chunk size must be positive");
+        }
+        this.streamChunkSize = builder.streamChunkSize;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            this.executor = ownedExecutor;
+        }
     }
 
     /**
@@ -105,39 +157,152 @@ public final class EphemeralStore implements AutoCloseable {
      * @return the created record
      */
     public EphemeralRecord put(Object data, Duration ttl, DataClassification classification) {
-        Duration effectiveTTL = ttl != null ? ttl : defaultTTL;
-        if (effectiveTTL == null) {
-            throw new IllegalArgumentException("TTL must be specified or a default TTL must be set");
-        }
+        EphemeralRecord record = newRecord(ttl, classification);
+
+        backend.setBytes(record.getId(), seal(record, data), record.getTtl());
+        putCount.incrementAndGet();
+
+        return record;
+    }
 
+    /**
+     * Stores multiple values in a single backend operation.
+     * Each value gets its own record, DEK and TTL; a null TTL falls back to the default TTL.
+     *
+     * @param entries the data to store, mapped to its TTL
+     * @return the created records, keyed by the data they hold, in the iteration order of {@code entries}
+     */
+    public Map<Object, EphemeralRecord> putAll(Map<?, Duration> entries) {
+        return putAll(entries, defaultClassification);
+    }
+
+    /**
+     * Stores multiple values with the given classification in a single backend operation.
+     *
+     * @param entries the data to store, mapped to its TTL
+     * @param classification the data classification
+     * @return the created records, keyed by the data they hold, in the iteration order of {@code entries}
+     */
+    public Map<Object, EphemeralRecord> putAll(Map<?, Duration> entries, DataClassification classification) {
         DataClassification effectiveClassification = classification != null ? classification : DataClassification.TRANSIENT;
 
-        // Create the record
-        EphemeralRecord record = EphemeralRecord.create(effectiveTTL, effectiveClassification);
+        Map<Object, EphemeralRecord> records = new LinkedHashMap<>();
+        Map<String, StorageBackend.TimedBytes> stored = new LinkedHashMap<>();
+        for (Map.Entry<?, Duration> entry : entries.entrySet()) {
+            Duration effectiveTTL = resolveTTL(entry.getValue());
+            EphemeralRecord record = EphemeralRecord.create(effectiveTTL, effectiveClassification);
+            stored.put(record.getId(), new StorageBackend.TimedBytes(seal(record, entry.getKey()), effectiveTTL));
+            records.put(entry.getKey(), record);
+        }
 
-        // Generate a DEK for this record
-        DataEncryptionKey dek = crypto.generateDEK();
+        backend.setAllBytes(stored);
+        putCount.addAndGet(stored.size());
+        return records;
+    }
 
-        // Encrypt the data
-        EncryptedPayload payload = crypto.encryptJson(data, dek);
+    /**
+     * Stores a stream of bytes with the specified TTL, without holding it in memory. See
+     * {@link #putStream(InputStream, Duration, DataClassification)}.
+     *
+     * @param in the data to store; read to the end but not closed
+     * @param ttl the TTL string (e.g., "30m", "2h")
+     * @return the created record
+     */
+    public EphemeralRecord putStream(InputStream in, String ttl) {
+        return putStream(in, TTLParser.parse(ttl), defaultClassification);
+    }
 
-        // Store the encrypted payload and record metadata
-        Map<String, Object> stored = new LinkedHashMap<>();
-        stored.put("record", record.toMap());
-        stored.put("payload", payload.toMap());
-        stored.put("key", dek.toBase64());
+    /**
+     * Stores a stream of bytes with the specified TTL, without holding it in memory. See
+     * {@link #putStream(InputStream, Duration, DataClassification)}.
+     *
+     * @param in the data to store; read to the end but not closed
+     * @param ttl the TTL Duration
+     * @return the created record
+     */
+    public EphemeralRecord putStream(InputStream in, Duration ttl) {
+        return putStream(in, ttl, defaultClassification);
+    }
+
+    /**
+     * Stores a stream of bytes with the specified TTL and classification, reading, encrypting and
+     * writing it one chunk at a time, so memory use is bounded by the chunk size rather than the
+     * size of the data. Read it back with {@link #openStream(String)}.
+     *
+     * <p>Each chunk is stored under its own key, expiring shortly after the record. The record
+     * itself is written last, so readers never see a partly written stream; if anything fails,
+     * the chunks already written are deleted.
+     *
+     * @param in the data to store; read to the end but not closed
+     * @param ttl the TTL Duration
+     * @param classification the data classification
+     * @return the created record
+     * @throws EfsfException if reading the stream or writing to the backend fails
+     */
+    public EphemeralRecord putStream(InputStream in, Duration ttl, DataClassification classification) {
+        EphemeralRecord record = newRecord(ttl, classification);
 
         try {
-            String json = objectMapper.writeValueAsString(stored);
-            backend.set(record.getId(), json, effectiveTTL);
-            putCount.incrementAndGet();
-        } catch (JsonProcessingException e) {
-            throw new EfsfException("Failed to serialize data", e);
+            RecordEnvelope envelope = seal(record, dek -> writeChunks(record, in, dek));
+            backend.setBytes(record.getId(), envelope.asStream().toBytes(), remainingTTL(record));
+        } catch (RuntimeException e) {
+            try {
+                deleteChunks(record.getId());
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e instanceof EfsfException ? e : new EfsfException("Failed to store stream for record: " + record.getId(), e);
         }
+        putCount.incrementAndGet();
 
         return record;
     }
 
+    /**
+     * Opens a record stored with {@link #putStream} for reading. Chunks are fetched and decrypted
+     * as the stream is read, each authenticated at its position; a stream that has been
+     * truncated, reordered or tampered with fails the read with an {@link IOException}.
+     * Close the stream to release its key.
+     *
+     * @param recordId the record ID
+     * @return the decrypted data as a stream
+     * @throws RecordNotFoundException if the record doesn't exist
+     * @throws RecordExpiredException if the record has expired
+     * @throws EfsfException if the record was not stored as a stream
+     */
+    @SuppressWarnings("unchecked")
+    public InputStream openStream(String recordId) {
+        Optional<byte[]> stored = backend.getBytes(recordId);
+        if (stored.isEmpty()) {
+            throw new RecordNotFoundException(recordId);
+        }
+
+        RecordEnvelope.Header header = header(recordId, stored.get());
+        if (header.record().isExpired()) {
+            backend.delete(recordId);
+            throw new RecordExpiredException(recordId, header.record().getExpiresAt());
+        }
+        if (!header.stream()) {
+            throw new EfsfException("Record was not stored as a stream: " + recordId);
+        }
+
+        DataEncryptionKey dek = null;
+        try {
+            RecordEnvelope envelope = unseal(stored.get());
+            dek = recordKey(envelope);
+            Map<String, Object> manifest = crypto.decryptJson(envelope.getPayload(), dek, Map.class);
+            long chunks = ((Number) manifest.get("chunks")).longValue();
+            long length = ((Number) manifest.get("length")).longValue();
+            getCount.incrementAndGet();
+            return new RecordInputStream(backend, crypto, header.record(), dek, chunks, length);
+        } catch (Exception e) {
+            if (dek != null) {
+                dek.destroy();
+            }
+            throw new EfsfException("Failed to open stream for record: " + recordId, e);
+        }
+    }
+
     /**
      * Retrieves data by record ID.
      *
@@ -161,39 +326,62 @@ public final class EphemeralStore implements AutoCloseable {
      * @throws RecordNotFoundException if the record doesn't exist
      * @throws RecordExpiredException if the record has expired
      */
-    @SuppressWarnings("unchecked")
     public <T> T get(String recordId, Class<T> type) {
-        Optional<String> json = backend.get(recordId);
-        if (json.isEmpty()) {
+        Optional<byte[]> stored = backend.getBytes(recordId);
+        if (stored.isEmpty()) {
             throw new RecordNotFoundException(recordId);
         }
 
         try {
-            Map<String, Object> stored = objectMapper.readValue(json.get(), Map.class);
-            Map<String, Object> recordMap = (Map<String, Object>) stored.get("record");
-            EphemeralRecord record = EphemeralRecord.fromMap(recordMap);
+            T data = open(recordId, stored.get(), type);
+            getCount.incrementAndGet();
+            return data;
+        } catch (RecordExpiredException e) {
+            backend.delete(recordId);
+            throw e;
+        }
+    }
 
-            if (record.isExpired()) {
-                backend.delete(recordId);
-                throw new RecordExpiredException(recordId, record.getExpiresAt());
-            }
+    /**
+     * Retrieves multiple records in a single backend operation.
+     * Records that do not exist or have expired are omitted from the result;
+     * expired records found along the way are deleted.
+     *
+     * @param recordIds the record IDs
+     * @return the decrypted data, keyed by record ID
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> getAll(Collection<String> recordIds) {
+        Map<String, ?> result = getAll(recordIds, Map.class);
+        return (Map<String, Map<String, Object>>) result;
+    }
 
-            // Reconstruct the DEK
-            String keyBase64 = (String) stored.get("key");
-            Map<String, Object> payloadMap = (Map<String, Object>) stored.get("payload");
-            String keyId = (String) payloadMap.get("key_id");
-            DataEncryptionKey dek = DataEncryptionKey.fromBase64(keyId, keyBase64);
+    /**
+     * Retrieves multiple records in a single backend operation, deserializing to the specified type.
+     *
+     * @param recordIds the record IDs
+     * @param type the class to deserialize to
+     * @param <T> the type
+     * @return the decrypted data, keyed by record ID
+     */
+    public <T> Map<String, T> getAll(Collection<String> recordIds, Class<T> type) {
+        Map<String, byte[]> found = backend.getAllBytes(recordIds);
 
-            // Decrypt the payload
-            EncryptedPayload payload = EncryptedPayload.fromMap(payloadMap);
-            getCount.incrementAndGet();
+        Map<String, T> result = new LinkedHashMap<>();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : found.entrySet()) {
+            try {
+                result.put(entry.getKey(), open(entry.getKey(), entry.getValue(), type));
+            } catch (RecordExpiredException e) {
+                expired.add(entry.getKey());
+            }
+        }
 
-            return crypto.decryptJson(payload, dek, type);
-        } catch (RecordNotFoundException | RecordExpiredException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new EfsfException("Failed to retrieve data for record: " + recordId, e);
+        if (!expired.isEmpty()) {
+            backend.deleteAll(expired);
         }
+        getCount.addAndGet(result.size());
+        return result;
     }
 
     /**
@@ -210,6 +398,33 @@ public final class EphemeralStore implements AutoCloseable {
         }
     }
 
+    /**
+     * Retrieves a record's metadata without decrypting its payload.
+     * Only the envelope header is read, and backends that support partial reads only transfer the header.
+     *
+     * @param recordId the record ID
+     * @return the record metadata
+     * @throws RecordNotFoundException if the record doesn't exist
+     * @throws RecordExpiredException if the record has expired
+     */
+    public EphemeralRecord getRecord(String recordId) {
+        Optional<byte[]> stored = backend.getBytesPrefix(recordId, RecordEnvelope.HEADER_PREFIX_LENGTH);
+        if (stored.isPresent() && !RecordEnvelope.hasHeader(stored.get())) {
+            // Older layouts need the whole value to find the header
+            stored = backend.getBytes(recordId);
+        }
+        if (stored.isEmpty()) {
+            throw new RecordNotFoundException(recordId);
+        }
+
+        EphemeralRecord record = header(recordId, stored.get()).record();
+        if (record.isExpired()) {
+            backend.delete(recordId);
+            throw new RecordExpiredException(recordId, record.getExpiresAt());
+        }
+        return record;
+    }
+
     /**
      * Destroys a record and returns a destruction certificate.
      *
@@ -217,53 +432,242 @@ public final class EphemeralStore implements AutoCloseable {
      * @return the destruction certificate
      * @throws RecordNotFoundException if the record doesn't exist
      */
-    @SuppressWarnings("unchecked")
     public DestructionCertificate destroy(String recordId) {
-        Optional<String> json = backend.get(recordId);
-        if (json.isEmpty()) {
+        // One atomic read-and-delete, so concurrent destroys issue a single certificate.
+        // Only the header and the value's size are needed, not the payload.
+        Optional<StorageBackend.ValuePrefix> stored =
+            backend.getAndDeleteBytesPrefix(recordId, RecordEnvelope.HEADER_PREFIX_LENGTH);
+        if (stored.isEmpty()) {
             throw new RecordNotFoundException(recordId);
         }
 
         try {
-            Map<String, Object> stored = objectMapper.readValue(json.get(), Map.class);
-            Map<String, Object> payloadMap = (Map<String, Object>) stored.get("payload");
+            // Destroy the DEK (crypto-shredding)
+            RecordEnvelope.Header header = header(recordId, stored.get());
+            shred(header);
+            if (header.stream()) {
+                deleteChunks(recordId);
+            }
 
-            // Calculate size for certificate
-            long size = json.get().length();
+            DestructionCertificate cert = newCertificate(recordId, stored.get().length());
+            destroyCount.incrementAndGet();
+            return sign(cert).join();
+        } catch (Exception e) {
+            throw new EfsfException("Failed to destroy record: " + recordId, e);
+        }
+    }
 
-            // Delete from backend
-            backend.delete(recordId);
+    /**
+     * Destroys multiple records, reading and deleting each one atomically in one batched backend
+     * operation. Records that do not exist, or that a concurrent destroy removed first,
+     * are skipped, so each record gets at most one certificate.
+     *
+     * @param recordIds the record IDs
+     * @return a destruction certificate for each record that was destroyed
+     */
+    public List<DestructionCertificate> destroyAll(Collection<String> recordIds) {
+        Map<String, byte[]> found = backend.getAndDeleteAllBytes(recordIds);
+        if (found.isEmpty()) {
+            return List.of();
+        }
 
-            // Destroy the DEK (crypto-shredding)
-            String keyId = (String) payloadMap.get("key_id");
-            crypto.destroyKey(keyId);
+        try {
+            List<DestructionCertificate> certs = new ArrayList<>(found.size());
+            for (Map.Entry<String, byte[]> entry : found.entrySet()) {
+                RecordEnvelope.Header header = header(entry.getKey(), entry.getValue());
+                shred(header);
+                if (header.stream()) {
+                    deleteChunks(entry.getKey());
+                }
+                certs.add(newCertificate(entry.getKey(), entry.getValue().length));
+            }
+
+            destroyCount.addAndGet(certs.size());
+            signAll(certs);
+            return certs;
+        } catch (Exception e) {
+            throw new EfsfException("Failed to destroy records: " + found.keySet(), e);
+        }
+    }
+
+    /**
+     * Stores data asynchronously with the specified TTL.
+     *
+     * @param data the data to store
+     * @param ttl the TTL string (e.g., "30m", "2h")
+     * @return a future that completes with the created record
+     */
+    public CompletableFuture<EphemeralRecord> putAsync(Object data, String ttl) {
+        return putAsync(data, TTLParser.parse(ttl), defaultClassification);
+    }
+
+    /**
+     * Stores data asynchronously with the specified TTL Duration.
+     *
+     * @param data the data to store
+     * @param ttl the TTL Duration
+     * @return a future that completes with the created record
+     */
+    public CompletableFuture<EphemeralRecord> putAsync(Object data, Duration ttl) {
+        return putAsync(data, ttl, defaultClassification);
+    }
+
+    /**
+     * Stores data asynchronously with the specified TTL and classification.
+     * Encryption runs on the store's executor; the backend write is non-blocking
+     * if the backend implements {@link AsyncStorageBackend}.
+     *
+     * @param data the data to store
+     * @param ttl the TTL Duration
+     * @param classification the data classification
+     * @return a future that completes with the created record
+     */
+    public CompletableFuture<EphemeralRecord> putAsync(Object data, Duration ttl, DataClassification classification) {
+        if (!(backend instanceof AsyncStorageBackend async)) {
+            return CompletableFuture.supplyAsync(() -> put(data, ttl, classification), executor);
+        }
 
-            // Generate destruction certificate
-            ResourceInfo resource = new ResourceInfo("ephemeral_record", recordId, size, backend.getBackendName());
+        return CompletableFuture.supplyAsync(() -> {
+            EphemeralRecord record = newRecord(ttl, classification);
+            return async.setBytesAsync(record.getId(), seal(record, data), record.getTtl())
+                .thenApply(ignored -> {
+                    putCount.incrementAndGet();
+                    return record;
+                });
+        }, executor).thenCompose(Function.identity());
+    }
 
-            ChainOfCustody chain = new ChainOfCustody()
-                .addEntry("STORED", "efsf-java", "Record stored in " + backend.getBackendName())
-                .addEntry("KEY_DESTROYED", "efsf-java", "Encryption key destroyed (crypto-shred)")
-                .addEntry("DATA_DELETED", "efsf-java", "Record deleted from storage");
+    /**
+     * Retrieves data asynchronously by record ID.
+     * The future fails with {@link RecordNotFoundException} or {@link RecordExpiredException}
+     * in the same cases where {@link #get(String)} throws them.
+     *
+     * @param recordId the record ID
+     * @return a future that completes with the decrypted data as a Map
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Object>> getAsync(String recordId) {
+        CompletableFuture<?> future = getAsync(recordId, Map.class);
+        return (CompletableFuture<Map<String, Object>>) future;
+    }
 
-            DestructionCertificate cert = new DestructionCertificate.Builder()
-                .resource(resource)
-                .method(DestructionMethod.KEY_DESTRUCTION)
-                .chainOfCustody(chain)
-                .build();
+    /**
+     * Retrieves data asynchronously by record ID, deserializing to the specified type.
+     *
+     * @param recordId the record ID
+     * @param type the class to deserialize to
+     * @param <T> the type
+     * @return a future that completes with the decrypted data
+     */
+    public <T> CompletableFuture<T> getAsync(String recordId, Class<T> type) {
+        if (!(backend instanceof AsyncStorageBackend async)) {
+            return CompletableFuture.supplyAsync(() -> get(recordId, type), executor);
+        }
 
-            if (authority != null) {
-                authority.sign(cert);
+        return async.getBytesAsync(recordId).thenComposeAsync(stored -> {
+            if (stored.isEmpty()) {
+                throw new RecordNotFoundException(recordId);
+            }
+            try {
+                T data = open(recordId, stored.get(), type);
+                getCount.incrementAndGet();
+                return CompletableFuture.completedFuture(data);
+            } catch (RecordExpiredException e) {
+                return async.deleteAsync(recordId).<T>thenApply(deleted -> {
+                    throw e;
+                });
             }
+        }, executor).toCompletableFuture();
+    }
 
+    /**
+     * Destroys a record asynchronously.
+     *
+     * @param recordId the record ID
+     * @return a future that completes with the destruction certificate, or fails with
+     *         {@link RecordNotFoundException} if the record doesn't exist
+     */
+    public CompletableFuture<DestructionCertificate> destroyAsync(String recordId) {
+        if (!(backend instanceof AsyncStorageBackend async)) {
+            return CompletableFuture.supplyAsync(() -> destroy(recordId), executor);
+        }
+
+        return async.getAndDeleteBytesPrefixAsync(recordId, RecordEnvelope.HEADER_PREFIX_LENGTH).thenApplyAsync(stored -> {
+            if (stored.isEmpty()) {
+                throw new RecordNotFoundException(recordId);
+            }
+            RecordEnvelope.Header header = header(recordId, stored.get());
+            shred(header);
+            if (header.stream()) {
+                deleteChunks(recordId);
+            }
+            DestructionCertificate cert = newCertificate(recordId, stored.get().length());
             destroyCount.incrementAndGet();
             return cert;
+        }, executor).thenCompose(this::sign).toCompletableFuture();
+    }
 
+    /**
+     * Destroys a record and issues its certificate in the background. Returns as soon as the data
+     * and its key are gone; building, signing and delivering the certificate to the configured
+     * {@link CertificateSink} happen on the store's executor.
+     *
+     * <p>At most {@code maxPendingCertificates} certificates are in flight at once. When the limit
+     * is reached, this blocks before destroying anything until a pending certificate is issued.
+     *
+     * @param recordId the record ID
+     * @return a future that completes with the signed certificate once it has been delivered
+     * @throws RecordNotFoundException if the record doesn't exist
+     * @throws EfsfException if the store is closed
+     */
+    public CompletableFuture<DestructionCertificate> destroyDeferred(String recordId) {
+        if (closed.get()) {
+            throw new EfsfException("Store is closed");
+        }
+        try {
+            certificatePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EfsfException("Interrupted waiting for pending certificates: " + recordId, e);
+        }
+        if (closed.get()) {
+            // Woken by close() releasing the drained permits
+            certificatePermits.release();
+            throw new EfsfException("Store is closed");
+        }
+
+        long size;
+        try {
+            Optional<StorageBackend.ValuePrefix> stored =
+                backend.getAndDeleteBytesPrefix(recordId, RecordEnvelope.HEADER_PREFIX_LENGTH);
+            if (stored.isEmpty()) {
+                throw new RecordNotFoundException(recordId);
+            }
+            size = stored.get().length();
+            RecordEnvelope.Header header = header(recordId, stored.get());
+            shred(header);
+            if (header.stream()) {
+                deleteChunks(recordId);
+            }
+            destroyCount.incrementAndGet();
         } catch (RecordNotFoundException e) {
+            certificatePermits.release();
             throw e;
         } catch (Exception e) {
+            certificatePermits.release();
             throw new EfsfException("Failed to destroy record: " + recordId, e);
         }
+
+        CompletableFuture<DestructionCertificate> issued;
+        try {
+            // Async stages throughout, so nothing runs on the caller if an earlier stage is already done
+            issued = CompletableFuture.supplyAsync(() -> newCertificate(recordId, size), executor)
+                .thenComposeAsync(this::sign, executor)
+                .thenApplyAsync(this::deliver, executor);
+        } catch (RuntimeException e) {
+            issued = CompletableFuture.failedFuture(e);
+        }
+        return issued.whenComplete((cert, error) -> certificatePermits.release());
     }
 
     /**
@@ -297,13 +701,321 @@ public final class EphemeralStore implements AutoCloseable {
             "puts", putCount.get(),
             "gets", getCount.get(),
             "destroys", destroyCount.get(),
-            "active_keys", crypto.getKeyCount()
+            "active_keys", crypto.getKeyCount(),
+            "pending_certificates", maxPendingCertificates - certificatePermits.availablePermits()
         );
     }
 
+    private EphemeralRecord newRecord(Duration ttl, DataClassification classification) {
+        DataClassification effectiveClassification = classification != null ? classification : DataClassification.TRANSIENT;
+        return EphemeralRecord.create(resolveTTL(ttl), effectiveClassification);
+    }
+
+    private Duration resolveTTL(Duration ttl) {
+        Duration effectiveTTL = ttl != null ? ttl : defaultTTL;
+        if (effectiveTTL == null) {
+            throw new IllegalArgumentException("TTL must be specified or a default TTL must be set");
+        }
+        return effectiveTTL;
+    }
+
+    /**
+     * Encrypts data under a fresh DEK and encodes it, with the record header, as a binary envelope.
+     */
+    private byte[] seal(EphemeralRecord record, Object data) {
+        return seal(record, dek -> crypto.encryptJson(data, dek)).toBytes();
+    }
+
+    /**
+     * Gets a fresh DEK for a record the way the crypto provider is configured, encrypts with it,
+     * and builds the envelope holding the result and the key (or what recovers it).
+     */
+    private RecordEnvelope seal(EphemeralRecord record, Function<DataEncryptionKey, EncryptedPayload> encrypt) {
+        if (crypto.isKeyBucketing()) {
+            // The DEK is derived from the bucket covering the record's expiry and never stored
+            byte[] salt = crypto.generateKeySalt();
+            DataEncryptionKey dek = crypto.deriveDEK(record.getId(), record.getExpiresAt(), salt);
+            try {
+                return RecordEnvelope.derivedKey(record, salt, encrypt.apply(dek));
+            } finally {
+                dek.destroy();
+            }
+        }
+
+        if (crypto.isKeyWrapping()) {
+            // Only the wrapped DEK is stored; the provider caches it unwrapped for reads
+            DataEncryptionKey dek = crypto.generateUnmanagedDEK();
+            try {
+                byte[] wrappedKey = crypto.wrapKey(dek, record.getExpiresAt());
+                return RecordEnvelope.wrappedKey(record, wrappedKey, encrypt.apply(dek));
+            } catch (RuntimeException e) {
+                // Drops the cached copy
+                crypto.destroyKey(dek.getId());
+                throw e;
+            } finally {
+                dek.destroy();
+            }
+        }
+
+        // Generate a DEK for this record, shredded automatically when the record expires
+        DataEncryptionKey dek = crypto.generateDEK(record.getExpiresAt());
+
+        // Encrypt the data
+        EncryptedPayload payload;
+        try {
+            payload = encrypt.apply(dek);
+        } catch (RuntimeException e) {
+            crypto.destroyKey(dek.getId());
+            throw e;
+        }
+
+        return new RecordEnvelope(record, dek, payload);
+    }
+
+    /**
+     * Reads a stream to the end, writing it to the backend one sealed chunk at a time, and
+     * returns the stream's encrypted manifest. The last chunk is the first one shorter than the
+     * chunk size, so a stream whose length is a multiple of it ends with an empty chunk.
+     */
+    private EncryptedPayload writeChunks(EphemeralRecord record, InputStream in, DataEncryptionKey dek) {
+        byte[] buffer = new byte[streamChunkSize];
+        long chunks = 0;
+        long length = 0;
+        try {
+            boolean last = false;
+            while (!last) {
+                int n = in.readNBytes(buffer, 0, streamChunkSize);
+                last = n < streamChunkSize;
+                byte[] chunk = crypto.encryptSegment(buffer, 0, n, dek, record.getId(), chunks, last);
+                Duration ttl = remainingTTL(record).plus(CHUNK_TTL_MARGIN);
+                backend.setBytes(chunkKey(record.getId(), chunks), chunk, ttl);
+                chunks++;
+                length += n;
+            }
+        } catch (IOException e) {
+            throw new EfsfException("Failed to read stream for record: " + record.getId(), e);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+        }
+
+        Map<String, Object> manifest = Map.of("chunks", chunks, "length", length, "chunk_size", streamChunkSize);
+        return crypto.encryptJson(manifest, dek);
+    }
+
+    /**
+     * Deletes a streamed record's chunks. They are numbered from 0 without gaps, so this stops at
+     * the first batch with a chunk missing.
+     */
+    private void deleteChunks(String recordId) {
+        for (long from = 0; ; from += CHUNK_DELETE_BATCH) {
+            List<String> keys = new ArrayList<>(CHUNK_DELETE_BATCH);
+            for (int i = 0; i < CHUNK_DELETE_BATCH; i++) {
+                keys.add(chunkKey(recordId, from + i));
+            }
+            if (backend.deleteAll(keys) < CHUNK_DELETE_BATCH) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the backend key of a chunk of a streamed record.
+     */
+    static String chunkKey(String recordId, long index) {
+        return recordId + ":chunk:" + index;
+    }
+
+    /**
+     * Gets the TTL for a value written now that should expire with the record.
+     */
+    private static Duration remainingTTL(EphemeralRecord record) {
+        Duration remaining = Duration.between(Instant.now(), record.getExpiresAt());
+        if (remaining.isNegative() || remaining.isZero()) {
+            throw new RecordExpiredException(record.getId(), record.getExpiresAt());
+        }
+        return remaining;
+    }
+
+    /**
+     * Decodes a stored value. Besides raw binary envelopes, this accepts the two layouts written
+     * by earlier versions: an envelope as Base64 text, and the legacy JSON layout.
+     */
+    @SuppressWarnings("unchecked")
+    private RecordEnvelope unseal(byte[] stored) throws IOException {
+        if (RecordEnvelope.isEnvelope(stored)) {
+            return RecordEnvelope.fromBytes(stored);
+        }
+        if (isLegacyJson(stored)) {
+            return RecordEnvelope.fromLegacyMap(objectMapper.readValue(stored, Map.class));
+        }
+        return RecordEnvelope.fromBytes(Base64.getDecoder().decode(stored));
+    }
+
+    /**
+     * Decodes a stored value, checks expiry and decrypts the payload.
+     * Expired records are reported but not deleted; that is left to the caller.
+     */
+    private <T> T open(String recordId, byte[] stored, Class<T> type) {
+        RecordEnvelope.Header header = header(recordId, stored);
+        EphemeralRecord record = header.record();
+        if (record.isExpired()) {
+            throw new RecordExpiredException(recordId, record.getExpiresAt());
+        }
+        if (header.stream()) {
+            throw new EfsfException("Record was stored as a stream, read it with openStream: " + recordId);
+        }
+
+        try {
+            RecordEnvelope envelope = unseal(stored);
+            DataEncryptionKey dek = recordKey(envelope);
+            try {
+                return crypto.decryptJson(envelope.getPayload(), dek, type);
+            } finally {
+                dek.destroy();
+            }
+        } catch (Exception e) {
+            throw new EfsfException("Failed to retrieve data for record: " + recordId, e);
+        }
+    }
+
+    /**
+     * Recovers a record's DEK from its envelope: stored, derived from its bucket key, or unwrapped.
+     * The caller owns the returned key.
+     */
+    private DataEncryptionKey recordKey(RecordEnvelope envelope) {
+        EphemeralRecord record = envelope.getRecord();
+        if (envelope.isDerivedKey()) {
+            return crypto.rederiveDEK(envelope.getPayload().getKeyId(), record.getId(), envelope.getKeySalt());
+        }
+        if (envelope.isWrappedKey()) {
+            return crypto.unwrapKey(envelope.getPayload().getKeyId(), envelope.getWrappedKey(), record.getExpiresAt());
+        }
+        return envelope.getKey();
+    }
+
+    /**
+     * Decodes only the header of a stored value: the leading
+     * {@link RecordEnvelope#HEADER_PREFIX_LENGTH} bytes of a binary envelope.
+     */
+    @SuppressWarnings("unchecked")
+    private RecordEnvelope.Header header(String recordId, byte[] stored) {
+        try {
+            if (RecordEnvelope.hasHeader(stored)) {
+                return RecordEnvelope.readHeader(stored);
+            }
+            if (isLegacyJson(stored)) {
+                return RecordEnvelope.readLegacyHeader(objectMapper.readValue(stored, Map.class));
+            }
+            byte[] prefix = Arrays.copyOf(stored, Math.min(HEADER_BASE64_LENGTH, stored.length));
+            return RecordEnvelope.readHeader(Base64.getDecoder().decode(prefix));
+        } catch (Exception e) {
+            throw new EfsfException("Failed to read header for record: " + recordId, e);
+        }
+    }
+
+    /**
+     * Decodes the header from the leading bytes of a stored value. Older layouts need the whole
+     * value, which backends without partial reads always return.
+     */
+    private RecordEnvelope.Header header(String recordId, StorageBackend.ValuePrefix stored) {
+        if (!RecordEnvelope.hasHeader(stored.prefix()) && stored.prefix().length < stored.length()) {
+            throw new EfsfException("Failed to read header for record: " + recordId + " (not a binary envelope)");
+        }
+        return header(recordId, stored.prefix());
+    }
+
+    /**
+     * Crypto-shreds a record: destroys its own DEK, or tombstones it if the DEK is derived
+     * from a bucket key shared with other records.
+     */
+    private void shred(RecordEnvelope.Header header) {
+        if (header.derivedKey()) {
+            crypto.destroyDerivedKey(header.keyId(), header.record().getId());
+        } else {
+            crypto.destroyKey(header.keyId());
+        }
+    }
+
+    private static boolean isLegacyJson(byte[] stored) {
+        return stored.length > 0 && stored[0] == '{';
+    }
+
+    /**
+     * Builds the unsigned certificate for a destroyed record.
+     */
+    private DestructionCertificate newCertificate(String recordId, long size) {
+        ResourceInfo resource = new ResourceInfo("ephemeral_record", recordId, size, backend.getBackendName());
+
+        ChainOfCustody chain = new ChainOfCustody()
+            .addEntry("STORED", "efsf-java", "Record stored in " + backend.getBackendName())
+            .addEntry("KEY_DESTROYED", "efsf-java", "Encryption key destroyed (crypto-shred)")
+            .addEntry("DATA_DELETED", "efsf-java", "Record deleted from storage");
+
+        return new DestructionCertificate.Builder()
+            .resource(resource)
+            .method(DestructionMethod.KEY_DESTRUCTION)
+            .chainOfCustody(chain)
+            .build();
+    }
+
+    /**
+     * Signs a certificate if an authority is configured: in the next batch when batch signing
+     * is enabled, otherwise directly.
+     */
+    private CompletableFuture<DestructionCertificate> sign(DestructionCertificate cert) {
+        if (batchSigner != null) {
+            return batchSigner.submit(cert);
+        }
+        if (authority != null) {
+            authority.sign(cert);
+        }
+        return CompletableFuture.completedFuture(cert);
+    }
+
+    private DestructionCertificate deliver(DestructionCertificate cert) {
+        if (certificateSink != null) {
+            try {
+                certificateSink.accept(cert);
+            } catch (Exception e) {
+                throw new CompletionException(new EfsfException(
+                    "Failed to deliver certificate for record: " + cert.getResource().getResourceId(), e));
+            }
+        }
+        return cert;
+    }
+
+    /**
+     * Signs certificates destroyed together, under one Merkle root per batch when batch
+     * signing is enabled. The batch is already complete, so it skips the signer's window.
+     */
+    private void signAll(List<DestructionCertificate> certs) {
+        if (batchSigner != null) {
+            int batchSize = batchSigner.getMaxBatchSize();
+            for (int from = 0; from < certs.size(); from += batchSize) {
+                authority.signBatch(certs.subList(from, Math.min(from + batchSize, certs.size())));
+            }
+        } else if (authority != null) {
+            certs.forEach(authority::sign);
+        }
+    }
+
     @Override
     public void close() {
-        crypto.destroyAllKeys();
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Lets deferred certificates finish before their executor and signer go away, then
+        // wakes any destroyDeferred still waiting for a permit so it fails fast
+        certificatePermits.acquireUninterruptibly(maxPendingCertificates);
+        certificatePermits.release(maxPendingCertificates);
+        if (ownedExecutor != null) {
+            // Waits for in-flight async operations before keys and backend go away
+            ownedExecutor.close();
+        }
+        if (batchSigner != null) {
+            batchSigner.close();
+        }
+        crypto.close();
         backend.close();
     }
 
@@ -315,6 +1027,13 @@ public final class EphemeralStore implements AutoCloseable {
         private Duration defaultTTL;
         private DataClassification defaultClassification = DataClassification.TRANSIENT;
         private AttestationAuthority authority;
+        private Duration batchWindow;
+        private int maxBatchSize;
+        private CertificateSink certificateSink;
+        private int maxPendingCertificates = 1024;
+        private int streamChunkSize = 64 * 1024;
+        private Executor executor;
+        private CryptoProvider crypto;
 
         public Builder backend(StorageBackend backend) {
             this.backend = backend;
@@ -352,6 +1071,82 @@ public final class EphemeralStore implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Signs destruction certificates in batches: certificates issued within {@code window}
+         * of each other, up to {@code maxBatchSize}, are hashed into a Merkle tree whose root is
+         * signed once, and each carries its inclusion proof. Requires an authority.
+         *
+         * @param window how long a batch waits for more certificates after its first one
+         * @param maxBatchSize the most certificates signed under one root
+         * @return this builder
+         */
+        public Builder batchSigning(Duration window, int maxBatchSize) {
+            this.batchWindow = window;
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets where {@link EphemeralStore#destroyDeferred(String)} delivers the certificates it
+         * issues in the background.
+         *
+         * @param certificateSink the sink
+         * @return this builder
+         */
+        public Builder certificateSink(CertificateSink certificateSink) {
+            this.certificateSink = certificateSink;
+            return this;
+        }
+
+        /**
+         * Sets how many deferred certificates may be in flight before
+         * {@link EphemeralStore#destroyDeferred(String)} blocks. Defaults to 1024.
+         *
+         * @param maxPendingCertificates the limit
+         * @return this builder
+         */
+        public Builder maxPendingCertificates(int maxPendingCertificates) {
+            this.maxPendingCertificates = maxPendingCertificates;
+            return this;
+        }
+
+        /**
+         * Sets the plaintext size of the chunks {@link EphemeralStore#putStream} writes, which bounds
+         * the memory a stream needs on write and read. Defaults to 64 KiB.
+         *
+         * @param streamChunkSize the chunk size in bytes
+         * @return this builder
+         */
+        public Builder streamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = streamChunkSize;
+            return this;
+        }
+
+        /**
+         * Sets the crypto provider, e.g. one built with a DEK pool.
+         * The store takes ownership and closes it on {@link EphemeralStore#close()}.
+         *
+         * @param crypto the crypto provider
+         * @return this builder
+         */
+        public Builder crypto(CryptoProvider crypto) {
+            this.crypto = crypto;
+            return this;
+        }
+
+        /**
+         * Sets the executor used by the async methods for encryption, decryption and
+         * (for backends without an async SPI) blocking backend calls.
+         * Defaults to a virtual-thread-per-task executor owned and closed by the store.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
         public EphemeralStore build() {
             return new EphemeralStore(this);
         }
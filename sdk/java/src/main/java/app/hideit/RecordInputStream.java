@@ -0,0 +1,132 @@
+package app.hideit;
+
+import app.hideit.crypto.CryptoProvider;
+import app.hideit.crypto.DataEncryptionKey;
+import app.hideit.exception.CryptoException;
+import app.hideit.exception.RecordExpiredException;
+import app.hideit.record.EphemeralRecord;
+import app.hideit.store.StorageBackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Reads a record stored with {@link EphemeralStore#putStream}, fetching and decrypting one chunk
+ * at a time, so memory use is bounded by the chunk size rather than the record size.
+ *
+ * <p>Each chunk is authenticated at its position before any of it is returned. A missing chunk,
+ * a chunk that does not authenticate, or a stream that ends short of its manifest length fails
+ * the read with an {@link IOException}; if the record has expired by then, its cause is a
+ * {@link RecordExpiredException}. Closing the stream destroys its copy of the DEK.
+ */
+final class RecordInputStream extends InputStream {
+
+    private final StorageBackend backend;
+    private final CryptoProvider crypto;
+    private final EphemeralRecord record;
+    private final String recordId;
+    private final DataEncryptionKey dek;
+    private final long chunkCount;
+    private final long length;
+
+    private byte[] chunk = new byte[0];
+    private int position;
+    private long nextChunk;
+    private long bytesRead;
+    private boolean closed;
+
+    RecordInputStream(StorageBackend backend, CryptoProvider crypto, EphemeralRecord record, DataEncryptionKey dek,
+                      long chunkCount, long length) {
+        this.backend = backend;
+        this.crypto = crypto;
+        this.record = record;
+        this.recordId = record.getId();
+        this.dek = dek;
+        this.chunkCount = chunkCount;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        bytesRead++;
+        return chunk[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n;
+        bytesRead += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return closed ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            Arrays.fill(chunk, (byte) 0);
+            dek.destroy();
+        }
+    }
+
+    /**
+     * Makes sure unread bytes are buffered, fetching the next chunks as needed.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == chunk.length) {
+            if (nextChunk == chunkCount) {
+                if (bytesRead != length) {
+                    throw new IOException("Stream for record " + recordId + " ended after " + bytesRead
+                        + " of " + length + " bytes");
+                }
+                return false;
+            }
+            Arrays.fill(chunk, (byte) 0);
+            chunk = fetch(nextChunk);
+            position = 0;
+            nextChunk++;
+        }
+        return true;
+    }
+
+    private byte[] fetch(long index) throws IOException {
+        Optional<byte[]> sealed = backend.getBytes(EphemeralStore.chunkKey(recordId, index));
+        if (sealed.isEmpty()) {
+            if (record.isExpired()) {
+                throw new IOException("Record " + recordId + " expired while being read",
+                    new RecordExpiredException(recordId, record.getExpiresAt()));
+            }
+            throw new IOException("Stream for record " + recordId + " is truncated: chunk " + index
+                + " of " + chunkCount + " is missing");
+        }
+        try {
+            return crypto.decryptSegment(sealed.get(), dek, recordId, index, index == chunkCount - 1);
+        } catch (CryptoException e) {
+            throw new IOException("Chunk " + index + " of record " + recordId + " failed authentication", e);
+        }
+    }
+}
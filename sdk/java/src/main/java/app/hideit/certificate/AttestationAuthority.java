@@ -9,8 +9,10 @@ import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
 import org.bouncycastle.crypto.signers.Ed25519Signer;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -150,6 +152,32 @@ public final class AttestationAuthority {
         return certificate;
     }
 
+    /**
+     * Signs a batch of destruction certificates with a single signature: the certificates are hashed
+     * into a Merkle tree, the root is signed once, and each certificate gets the root signature plus
+     * its own {@link MerkleProof inclusion proof}. A single certificate is signed directly.
+     *
+     * @param certificates the certificates to sign
+     * @return the same certificates, signed
+     */
+    public List<DestructionCertificate> signBatch(List<DestructionCertificate> certificates) {
+        if (certificates.size() <= 1) {
+            certificates.forEach(this::sign);
+            return certificates;
+        }
+
+        List<byte[]> leaves = new ArrayList<>(certificates.size());
+        for (DestructionCertificate certificate : certificates) {
+            leaves.add(certificate.getCanonicalBytes());
+        }
+        List<MerkleProof> proofs = MerkleProof.build(leaves);
+        String signature = Base64.getEncoder().encodeToString(sign(proofs.get(0).getSignedBytes()));
+        for (int i = 0; i < certificates.size(); i++) {
+            certificates.get(i).setBatchSignature(signature, proofs.get(i));
+        }
+        return certificates;
+    }
+
     /**
      * Verifies a signature using this authority's public key.
      *
@@ -169,17 +197,14 @@ public final class AttestationAuthority {
     }
 
     /**
-     * Verifies a destruction certificate's signature.
+     * Verifies a destruction certificate's signature. For a batch-signed certificate, this checks
+     * its inclusion proof against the root and the signature over the root.
      *
      * @param certificate the certificate to verify
      * @return true if the signature is valid
      */
     public boolean verify(DestructionCertificate certificate) {
-        if (!certificate.isSigned()) {
-            return false;
-        }
-        byte[] signature = Base64.getDecoder().decode(certificate.getSignature());
-        return verify(certificate.getCanonicalBytes(), signature);
+        return verifyCertificate(publicKey, certificate);
     }
 
     /**
@@ -225,12 +250,38 @@ public final class AttestationAuthority {
             }
         }
 
+        /**
+         * Verifies a destruction certificate's signature, checking a batch-signed certificate
+         * on its own from its inclusion proof and the signed root.
+         *
+         * @param certificate the certificate to verify
+         * @return true if the signature is valid
+         */
         public boolean verify(DestructionCertificate certificate) {
-            if (!certificate.isSigned()) {
-                return false;
-            }
+            return verifyCertificate(publicKey, certificate);
+        }
+    }
+
+    private static boolean verifyCertificate(Ed25519PublicKeyParameters publicKey, DestructionCertificate certificate) {
+        if (!certificate.isSigned()) {
+            return false;
+        }
+        try {
             byte[] signature = Base64.getDecoder().decode(certificate.getSignature());
-            return verify(certificate.getCanonicalBytes(), signature);
+            byte[] signed = certificate.getCanonicalBytes();
+            MerkleProof proof = certificate.getInclusionProof();
+            if (proof != null) {
+                if (!proof.includes(signed)) {
+                    return false;
+                }
+                signed = proof.getSignedBytes();
+            }
+            Ed25519Signer verifier = new Ed25519Signer();
+            verifier.init(false, publicKey);
+            verifier.update(signed, 0, signed.length);
+            return verifier.verifySignature(signature);
+        } catch (Exception e) {
+            return false;
         }
     }
 
@@ -0,0 +1,91 @@
+package app.hideit.certificate;
+
+import app.hideit.concurrent.WindowedBatcher;
+import app.hideit.exception.CryptoException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects certificates from many threads and signs them in batches with
+ * {@link AttestationAuthority#signBatch(List)}.
+ *
+ * <p>A signing thread takes the first queued certificate, keeps collecting until the window
+ * elapses or the batch is full, then signs the whole batch's Merkle root once. Each submitted
+ * certificate's future completes when its batch is signed.
+ */
+public final class BatchSigner implements AutoCloseable {
+
+    private final AttestationAuthority authority;
+    private final int maxBatchSize;
+    private final WindowedBatcher<Pending> batcher;
+
+    /**
+     * Creates a batch signer and starts its signing thread.
+     *
+     * @param authority the authority that signs each batch
+     * @param window how long to wait for more certificates after the first one of a batch
+     * @param maxBatchSize the most certificates signed under one root
+     */
+    public BatchSigner(AttestationAuthority authority, Duration window, int maxBatchSize) {
+        this.authority = authority;
+        this.maxBatchSize = maxBatchSize;
+        this.batcher = new WindowedBatcher<>("Batch signer", "efsf-batch-signer", 1,
+            window, maxBatchSize, this::sign, CryptoException::new);
+    }
+
+    /**
+     * Queues a certificate for the next batch.
+     *
+     * @param certificate the unsigned certificate
+     * @return a future that completes with the same certificate once it is signed
+     */
+    public CompletableFuture<DestructionCertificate> submit(DestructionCertificate certificate) {
+        Pending pending = new Pending(certificate, new CompletableFuture<>());
+        batcher.submit(pending);
+        return pending.future();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets signing statistics: {@code batches} (signatures made), {@code certificates}
+     * (certificates signed by them) and {@code queued} (certificates waiting for a batch).
+     *
+     * @return a map of statistics
+     */
+    public Map<String, Object> stats() {
+        return Map.of(
+            "batches", batcher.batches(),
+            "certificates", batcher.items(),
+            "queued", batcher.queued()
+        );
+    }
+
+    /**
+     * Signs the certificates already queued, then stops the signing thread.
+     */
+    @Override
+    public void close() {
+        batcher.close();
+    }
+
+    private void sign(List<Pending> batch) {
+        List<DestructionCertificate> certs = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            certs.add(pending.certificate());
+        }
+        authority.signBatch(certs);
+        for (Pending pending : batch) {
+            pending.future().complete(pending.certificate());
+        }
+    }
+
+    private record Pending(DestructionCertificate certificate, CompletableFuture<DestructionCertificate> future)
+            implements WindowedBatcher.Item {}
+}
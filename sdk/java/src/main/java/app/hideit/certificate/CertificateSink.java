@@ -0,0 +1,20 @@
+package app.hideit.certificate;
+
+/**
+ * Receives destruction certificates issued in the background, e.g. to append them to an
+ * audit log or forward them to a compliance service.
+ *
+ * <p>Called on a pool thread once each certificate is built and signed. A slow sink holds its
+ * certificate's slot in the store's pending limit, so it throttles further deferred destroys.
+ */
+@FunctionalInterface
+public interface CertificateSink {
+
+    /**
+     * Delivers a signed certificate.
+     *
+     * @param certificate the certificate
+     * @throws Exception if delivery fails; the certificate's future then fails with it
+     */
+    void accept(DestructionCertificate certificate) throws Exception;
+}
@@ -19,6 +19,7 @@ public final class DestructionCertificate {
     private final ChainOfCustody chainOfCustody;
     private final String authorityId;
     private String signature;
+    private MerkleProof inclusionProof;
 
     private DestructionCertificate(Builder builder) {
         this.id = builder.id != null ? builder.id : UUID.randomUUID().toString();
@@ -28,6 +29,7 @@ public final class DestructionCertificate {
         this.chainOfCustody = builder.chainOfCustody;
         this.authorityId = builder.authorityId;
         this.signature = builder.signature;
+        this.inclusionProof = builder.inclusionProof;
     }
 
     public String getId() {
@@ -62,6 +64,15 @@ public final class DestructionCertificate {
         return signature != null;
     }
 
+    /**
+     * Gets the proof that this certificate belongs to a batch signed through its Merkle root.
+     *
+     * @return the inclusion proof, or null if the certificate was signed on its own
+     */
+    public MerkleProof getInclusionProof() {
+        return inclusionProof;
+    }
+
     /**
      * Gets the canonical bytes for signing.
      * This ensures consistent signing across implementations.
@@ -104,6 +115,19 @@ public final class DestructionCertificate {
      */
     void setSignature(String signature, String authorityId) {
         this.signature = signature;
+        this.inclusionProof = null;
+    }
+
+    /**
+     * Sets a batch signature, over the Merkle root of a batch, and this certificate's proof of inclusion.
+     * Should only be called by AttestationAuthority.
+     *
+     * @param signature the root signature bytes as Base64
+     * @param inclusionProof the proof linking this certificate to the signed root
+     */
+    void setBatchSignature(String signature, MerkleProof inclusionProof) {
+        this.signature = signature;
+        this.inclusionProof = inclusionProof;
     }
 
     /**
@@ -126,6 +150,9 @@ public final class DestructionCertificate {
         if (signature != null) {
             map.put("signature", signature);
         }
+        if (inclusionProof != null) {
+            map.put("inclusion_proof", inclusionProof.toMap());
+        }
         map.put("hash", computeHash());
         return map;
     }
@@ -155,6 +182,9 @@ public final class DestructionCertificate {
         if (map.containsKey("signature")) {
             builder.signature((String) map.get("signature"));
         }
+        if (map.get("inclusion_proof") instanceof Map) {
+            builder.inclusionProof(MerkleProof.fromMap((Map<String, Object>) map.get("inclusion_proof")));
+        }
 
         return builder.build();
     }
@@ -178,6 +208,7 @@ public final class DestructionCertificate {
         private ChainOfCustody chainOfCustody;
         private String authorityId;
         private String signature;
+        private MerkleProof inclusionProof;
 
         public Builder id(String id) {
             this.id = id;
@@ -214,6 +245,11 @@ public final class DestructionCertificate {
             return this;
         }
 
+        public Builder inclusionProof(MerkleProof inclusionProof) {
+            this.inclusionProof = inclusionProof;
+            return this;
+        }
+
         public DestructionCertificate build() {
             return new DestructionCertificate(this);
         }
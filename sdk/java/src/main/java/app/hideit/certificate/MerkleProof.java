@@ -0,0 +1,197 @@
+package app.hideit.certificate;
+
+import app.hideit.exception.CryptoException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proof that a certificate is a leaf of a batch whose Merkle root was signed once.
+ *
+ * <p>Leaves are {@code SHA-256(0x00 || canonical bytes)} and inner nodes
+ * {@code SHA-256(0x01 || left || right)}, so a leaf can never pass for a node. A node without a
+ * sibling at the end of a level is carried up unchanged. The authority signs
+ * {@link #getSignedBytes()}, which binds the root to the batch size.
+ */
+public final class MerkleProof {
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final byte[] root;
+    private final int leafIndex;
+    private final int leafCount;
+    private final List<Sibling> path;
+
+    MerkleProof(byte[] root, int leafIndex, int leafCount, List<Sibling> path) {
+        this.root = root.clone();
+        this.leafIndex = leafIndex;
+        this.leafCount = leafCount;
+        this.path = List.copyOf(path);
+    }
+
+    /**
+     * Gets the batch's Merkle root.
+     *
+     * @return the root as Base64
+     */
+    public String getRoot() {
+        return Base64.getEncoder().encodeToString(root);
+    }
+
+    public int getLeafIndex() {
+        return leafIndex;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Gets the sibling hashes from the leaf up to the root.
+     *
+     * @return the path
+     */
+    public List<Sibling> getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the bytes the authority signs for this batch.
+     *
+     * @return the canonical root representation
+     */
+    public byte[] getSignedBytes() {
+        return ("EFSF-CERTIFICATE-BATCH|" + getRoot() + "|" + leafCount).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks that the given leaf data hashes up to this proof's root.
+     *
+     * @param leafData the certificate's canonical bytes
+     * @return true if the leaf is included in the batch
+     */
+    public boolean includes(byte[] leafData) {
+        byte[] hash = leafHash(leafData);
+        for (Sibling sibling : path) {
+            hash = sibling.left() ? nodeHash(sibling.hash(), hash) : nodeHash(hash, sibling.hash());
+        }
+        return MessageDigest.isEqual(hash, root);
+    }
+
+    /**
+     * Converts this proof to a Map representation.
+     *
+     * @return a Map containing the proof data
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("root", getRoot());
+        map.put("leaf_index", leafIndex);
+        map.put("leaf_count", leafCount);
+        List<Map<String, Object>> steps = new ArrayList<>(path.size());
+        for (Sibling sibling : path) {
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("side", sibling.left() ? "left" : "right");
+            step.put("hash", Base64.getEncoder().encodeToString(sibling.hash()));
+            steps.add(step);
+        }
+        map.put("path", steps);
+        return map;
+    }
+
+    /**
+     * Creates a MerkleProof from a Map representation.
+     *
+     * @param map the Map containing proof data
+     * @return a new MerkleProof
+     */
+    @SuppressWarnings("unchecked")
+    public static MerkleProof fromMap(Map<String, Object> map) {
+        List<Sibling> path = new ArrayList<>();
+        for (Map<String, Object> step : (List<Map<String, Object>>) map.get("path")) {
+            path.add(new Sibling("left".equals(step.get("side")), Base64.getDecoder().decode((String) step.get("hash"))));
+        }
+        return new MerkleProof(
+            Base64.getDecoder().decode((String) map.get("root")),
+            ((Number) map.get("leaf_index")).intValue(),
+            ((Number) map.get("leaf_count")).intValue(),
+            path
+        );
+    }
+
+    /**
+     * Builds the Merkle tree over a batch and returns each leaf's proof, in leaf order.
+     *
+     * @param leaves the canonical bytes of each certificate
+     * @return one proof per leaf
+     */
+    static List<MerkleProof> build(List<byte[]> leaves) {
+        int count = leaves.size();
+        List<byte[]> level = new ArrayList<>(count);
+        List<List<Sibling>> paths = new ArrayList<>(count);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            level.add(leafHash(leaves.get(i)));
+            paths.add(new ArrayList<>());
+            positions[i] = i;
+        }
+
+        while (level.size() > 1) {
+            for (int i = 0; i < count; i++) {
+                int sibling = positions[i] ^ 1;
+                if (sibling < level.size()) {
+                    paths.get(i).add(new Sibling(sibling < positions[i], level.get(sibling)));
+                }
+                positions[i] /= 2;
+            }
+            List<byte[]> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                next.add(i + 1 < level.size() ? nodeHash(level.get(i), level.get(i + 1)) : level.get(i));
+            }
+            level = next;
+        }
+
+        byte[] root = level.get(0);
+        List<MerkleProof> proofs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            proofs.add(new MerkleProof(root, i, count, paths.get(i)));
+        }
+        return proofs;
+    }
+
+    private static byte[] leafHash(byte[] data) {
+        MessageDigest digest = sha256();
+        digest.update(LEAF_PREFIX);
+        return digest.digest(data);
+    }
+
+    private static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest digest = sha256();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new CryptoException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A sibling hash on the path to the root.
+     *
+     * @param left whether the sibling is the left child, i.e. hashed before the running hash
+     * @param hash the sibling's hash
+     */
+    public record Sibling(boolean left, byte[] hash) {}
+}
@@ -0,0 +1,219 @@
+package app.hideit.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Collects items from many threads and hands them to a handler in batches. Shared by the
+ * Redis command batcher and the certificate batch signer; not meant for application use.
+ *
+ * <p>Each worker thread takes the first queued item, keeps collecting until the window
+ * elapses or the batch is full, then hands the whole batch to the handler. Closing processes
+ * the items already queued; items submitted after that, or racing with it, fail instead of
+ * being left pending.
+ *
+ * @param <T> the item type, which carries the future its submitter waits on
+ */
+public final class WindowedBatcher<T extends WindowedBatcher.Item> implements AutoCloseable {
+
+    private static final long IDLE_POLL_MILLIS = 50;
+
+    /**
+     * An item queued for a batch.
+     */
+    public interface Item {
+
+        /**
+         * Gets the future completed when the item's batch is processed.
+         *
+         * @return the future
+         */
+        CompletableFuture<?> future();
+    }
+
+    /**
+     * Processes one batch.
+     *
+     * @param <T> the item type
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+
+        /**
+         * Processes a batch, completing each item's future. If this throws, every item's future
+         * that is not yet complete fails with the exception, and the batch is not counted.
+         *
+         * @param batch the items, in submission order
+         * @throws Exception if the batch as a whole failed
+         */
+        void handle(List<T> batch) throws Exception;
+    }
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Handler<T> handler;
+    private final BiFunction<String, Throwable, ? extends RuntimeException> errors;
+    private final List<Thread> workers;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong items = new AtomicLong(0);
+
+    /**
+     * Creates a batcher and starts its worker threads.
+     *
+     * @param name names the batcher in error messages, e.g. {@code "Batch signer"}
+     * @param threadName the worker thread name, suffixed with an index if there are several
+     * @param threads the number of worker threads
+     * @param window how long a worker waits for more items after the first one of a batch;
+     *               zero takes whatever is already queued
+     * @param maxBatchSize the most items per batch
+     * @param handler processes each batch
+     * @param errors creates the exception, from a message and an optional cause, that fails
+     *               items when the batcher is closed or interrupted
+     */
+    public WindowedBatcher(String name, String threadName, int threads, Duration window, int maxBatchSize,
+                           Handler<T> handler, BiFunction<String, Throwable, ? extends RuntimeException> errors) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Batch window must not be negative");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Batch threads must be positive");
+        }
+        this.name = name;
+        this.queue = new LinkedBlockingQueue<>();
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.handler = handler;
+        this.errors = errors;
+        this.workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(Thread.ofPlatform()
+                .name(threads == 1 ? threadName : threadName + "-" + i)
+                .daemon(true)
+                .start(this::workLoop));
+        }
+    }
+
+    /**
+     * Queues an item for the next batch, or fails its future if the batcher is closed.
+     *
+     * @param item the item
+     */
+    public void submit(T item) {
+        if (closed) {
+            item.future().completeExceptionally(errors.apply(name + " is closed", null));
+            return;
+        }
+        queue.add(item);
+        // If close drained the queue before this add, nobody else will complete the item
+        if (closed && queue.remove(item)) {
+            item.future().completeExceptionally(errors.apply(name + " is closed", null));
+        }
+    }
+
+    /**
+     * Gets the number of batches processed successfully.
+     *
+     * @return the batch count
+     */
+    public long batches() {
+        return batches.get();
+    }
+
+    /**
+     * Gets the number of items in the batches processed successfully.
+     *
+     * @return the item count
+     */
+    public long items() {
+        return items.get();
+    }
+
+    /**
+     * Gets the number of items waiting for a batch.
+     *
+     * @return the queue length
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Processes the items already queued, then stops the worker threads. Calling it again
+     * has no further effect.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Items that raced with close
+        T item;
+        while ((item = queue.poll()) != null) {
+            item.future().completeExceptionally(errors.apply(name + " is closed", null));
+        }
+    }
+
+    private void workLoop() {
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                T first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    T next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            for (T item : batch) {
+                item.future().completeExceptionally(errors.apply(name + " interrupted", e));
+            }
+        }
+    }
+
+    private void process(List<T> batch) {
+        try {
+            handler.handle(batch);
+        } catch (Exception e) {
+            for (T item : batch) {
+                item.future().completeExceptionally(e);
+            }
+            return;
+        }
+        batches.incrementAndGet();
+        items.addAndGet(batch.size());
+    }
+}
@@ -0,0 +1,37 @@
+package app.hideit.crypto;
+
+/**
+ * Nonce = the key instance's random 8-byte prefix || a 4-byte big-endian use counter.
+ *
+ * <p>The counter never repeats within a key instance. The prefix keeps separate instances of the
+ * same key material, e.g. one restored with {@link DataEncryptionKey#fromBytes}, from reusing
+ * each other's nonces.
+ */
+final class CounterNonceStrategy implements NonceStrategy {
+
+    static final long MAX_USES = 1L << 32;
+
+    private final long maxUses;
+
+    CounterNonceStrategy(long maxUses) {
+        if (maxUses <= 0 || maxUses > MAX_USES) {
+            throw new IllegalArgumentException("Counter nonce rekey limit must be between 1 and 2^32");
+        }
+        this.maxUses = maxUses;
+    }
+
+    @Override
+    public void nextNonce(DataEncryptionKey dek, long use, byte[] nonce) {
+        byte[] prefix = dek.noncePrefix();
+        System.arraycopy(prefix, 0, nonce, 0, prefix.length);
+        nonce[8] = (byte) (use >>> 24);
+        nonce[9] = (byte) (use >>> 16);
+        nonce[10] = (byte) (use >>> 8);
+        nonce[11] = (byte) use;
+    }
+
+    @Override
+    public long maxUsesPerKey() {
+        return maxUses;
+    }
+}
@@ -5,42 +5,319 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import app.hideit.exception.CryptoException;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides AES-256-GCM encryption with per-record DEK management.
  */
-public final class CryptoProvider {
+public final class CryptoProvider implements AutoCloseable {
 
     private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
-    private static final int GCM_NONCE_LENGTH = 12; // 96 bits
+    private static final int GCM_NONCE_LENGTH = NonceStrategy.NONCE_LENGTH; // 96 bits
     private static final int GCM_TAG_LENGTH = 128; // bits
+    private static final int GCM_TAG_BYTES = GCM_TAG_LENGTH / 8;
+    private static final byte[] SEGMENT_AAD_PREFIX = "efsf-segment-v1|".getBytes(StandardCharsets.US_ASCII);
+    private static final int CIPHER_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final String HKDF_ALGORITHM = "HmacSHA256";
+    private static final int KEY_SALT_LENGTH = 32;
+    private static final byte[] DERIVED_KEY_INFO = "efsf-dek-v1|".getBytes(StandardCharsets.UTF_8);
 
     private final Map<String, DataEncryptionKey> keyStore;
     private final SecureRandom secureRandom;
+    private final NonceStrategy nonceStrategy;
+
+    // Pending crypto-shred timers for keys bound to a record expiry. The scheduler's
+    // delay queue orders them by deadline, so expiry never scans the key store.
+    private final Map<String, ScheduledFuture<?>> keyExpiries;
+    private final ScheduledThreadPoolExecutor expiryScheduler;
+    private final AtomicLong expiredKeyCount = new AtomicLong(0);
+
     private final ObjectMapper objectMapper;
 
+    // Idle Cipher instances; each is re-initialized with a fresh key and nonce before use.
+    // A pool rather than a ThreadLocal so short-lived virtual threads also get reuse.
+    private final BlockingQueue<Cipher> cipherPool;
+
+    // Pre-generated DEKs, or null if pooling is disabled
+    private final DekPool dekPool;
+
+    // Key bucketing: one bucket key per window of record expiries, by window index, or 0 if disabled.
+    // Bucket keys live in the key store and are shredded at the end of their window.
+    private final long bucketWidthMillis;
+    private final Map<Long, DataEncryptionKey> buckets;
+    // Records destroyed explicitly before their bucket ends, by bucket key id
+    private final Map<String, Set<String>> tombstones;
+
+    // Envelope encryption: DEKs are stored wrapped under this provider's KEK, or null if disabled.
+    // Unwrapped DEKs are cached rather than kept in the key store.
+    private final KeyEncryptionProvider keyEncryption;
+    private final UnwrappedKeyCache keyCache;
+
     public CryptoProvider() {
+        this(new Builder());
+    }
+
+    private CryptoProvider(Builder builder) {
         this.keyStore = new ConcurrentHashMap<>();
         this.secureRandom = new SecureRandom();
+        this.nonceStrategy = builder.nonceStrategy;
+        this.keyExpiries = new ConcurrentHashMap<>();
+        this.expiryScheduler = new ScheduledThreadPoolExecutor(1,
+            Thread.ofPlatform().name("efsf-key-expiry").daemon(true).factory());
+        this.expiryScheduler.setRemoveOnCancelPolicy(true);
         this.objectMapper = new ObjectMapper();
+        this.cipherPool = new ArrayBlockingQueue<>(CIPHER_POOL_SIZE);
+        this.dekPool = builder.dekPoolCapacity > 0
+            ? new DekPool(builder.dekPoolCapacity, builder.dekPoolLowWaterMark)
+            : null;
+        this.bucketWidthMillis = builder.bucketWidth != null ? builder.bucketWidth.toMillis() : 0;
+        this.buckets = new ConcurrentHashMap<>();
+        this.tombstones = new ConcurrentHashMap<>();
+        if (builder.keyEncryption != null && builder.bucketWidth != null) {
+            throw new IllegalArgumentException("Key buckets and key encryption cannot be combined");
+        }
+        this.keyEncryption = builder.keyEncryption;
+        this.keyCache = keyEncryption != null
+            ? new UnwrappedKeyCache(builder.keyCacheMaxEntries, builder.keyCacheTtl.toMillis())
+            : null;
+    }
+
+    /**
+     * Creates a new builder for CryptoProvider.
+     *
+     * @return a new Builder
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
      * Generates a new DEK and stores it for later use.
+     * If a DEK pool is configured, the key is taken from the pool.
      *
      * @return the generated DEK
      */
     public DataEncryptionKey generateDEK() {
-        DataEncryptionKey dek = DataEncryptionKey.generate();
+        DataEncryptionKey dek = dekPool != null ? dekPool.take() : DataEncryptionKey.generate();
         keyStore.put(dek.getId(), dek);
         return dek;
     }
 
+    /**
+     * Generates a new DEK bound to a record expiry.
+     * The key is crypto-shredded automatically once {@code expiresAt} passes,
+     * unless it is destroyed explicitly before then.
+     *
+     * @param expiresAt when the record encrypted under this key expires
+     * @return the generated DEK
+     */
+    public DataEncryptionKey generateDEK(Instant expiresAt) {
+        DataEncryptionKey dek = generateDEK();
+        scheduleExpiry(dek.getId(), expiresAt);
+        return dek;
+    }
+
+    /**
+     * Generates a new DEK without registering it with this provider, e.g. to be stored wrapped.
+     * If a DEK pool is configured, the key is taken from the pool.
+     *
+     * @return the generated DEK, owned by the caller
+     */
+    public DataEncryptionKey generateUnmanagedDEK() {
+        return dekPool != null ? dekPool.take() : DataEncryptionKey.generate();
+    }
+
+    /**
+     * Checks whether DEKs are stored wrapped, see {@link Builder#keyEncryption(KeyEncryptionProvider)}.
+     *
+     * @return true if a key encryption provider is configured
+     */
+    public boolean isKeyWrapping() {
+        return keyEncryption != null;
+    }
+
+    /**
+     * Wraps a DEK under the KEK and caches it unwrapped, so reads shortly after a write do not
+     * need to unwrap it.
+     *
+     * @param dek the DEK; the caller keeps ownership
+     * @param expiresAt the cached copy is dropped by then at the latest
+     * @return the wrapped key
+     * @throws CryptoException if key wrapping is not enabled
+     */
+    public byte[] wrapKey(DataEncryptionKey dek, Instant expiresAt) {
+        if (keyEncryption == null) {
+            throw new CryptoException("Key encryption is not enabled");
+        }
+        byte[] keyMaterial = dek.getBytes();
+        try {
+            byte[] wrapped = keyEncryption.wrap(dek.getId(), keyMaterial);
+            keyCache.put(dek, expiresAt.toEpochMilli());
+            return wrapped;
+        } finally {
+            Arrays.fill(keyMaterial, (byte) 0);
+        }
+    }
+
+    /**
+     * Gets a wrapped DEK in usable form, from the unwrapped-key cache or else from the KEK provider.
+     *
+     * @param keyId the DEK id
+     * @param wrappedKey the wrapped key
+     * @param expiresAt the cached copy is dropped by then at the latest
+     * @return the DEK, owned by the caller, who should destroy it after use
+     * @throws CryptoException if key wrapping is not enabled or the key cannot be unwrapped
+     */
+    public DataEncryptionKey unwrapKey(String keyId, byte[] wrappedKey, Instant expiresAt) {
+        if (keyEncryption == null) {
+            throw new CryptoException("Key encryption is not enabled");
+        }
+        DataEncryptionKey cached = keyCache.get(keyId);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] keyMaterial = keyEncryption.unwrap(keyId, wrappedKey);
+        try {
+            DataEncryptionKey dek = DataEncryptionKey.fromBytes(keyId, keyMaterial);
+            keyCache.put(dek, expiresAt.toEpochMilli());
+            return dek;
+        } finally {
+            Arrays.fill(keyMaterial, (byte) 0);
+        }
+    }
+
+    /**
+     * Gets unwrapped-key cache statistics: {@code hits}, {@code misses} (each one an unwrap call),
+     * {@code hit_rate}, {@code evictions}, {@code expirations}, {@code entries} and {@code max_entries}.
+     *
+     * @return a map of statistics, empty if key encryption is not enabled
+     */
+    public Map<String, Object> getKeyCacheStats() {
+        return keyCache != null ? keyCache.stats() : Map.of();
+    }
+
+    /**
+     * Checks whether records share bucket keys, see {@link Builder#keyBuckets(Duration)}.
+     *
+     * @return true if key bucketing is enabled
+     */
+    public boolean isKeyBucketing() {
+        return bucketWidthMillis > 0;
+    }
+
+    /**
+     * Generates a random per-record salt for {@link #deriveDEK(String, Instant, byte[])}.
+     *
+     * @return a new salt
+     */
+    public byte[] generateKeySalt() {
+        byte[] salt = new byte[KEY_SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Derives a record's DEK from the bucket key covering {@code expiresAt}, creating the bucket key
+     * if needed. The DEK is HKDF-SHA256 of the bucket key with the record's salt and id; it is not
+     * stored and should be destroyed by the caller after use. Its id is the bucket key's id.
+     *
+     * @param recordId the record id
+     * @param expiresAt when the record expires
+     * @param salt the record's salt
+     * @return the derived DEK
+     * @throws CryptoException if key bucketing is not enabled
+     */
+    public DataEncryptionKey deriveDEK(String recordId, Instant expiresAt, byte[] salt) {
+        if (!isKeyBucketing()) {
+            throw new CryptoException("Key bucketing is not enabled");
+        }
+        return derive(bucketKey(expiresAt), recordId, salt);
+    }
+
+    /**
+     * Re-derives a record's DEK from the bucket key it was first derived from by
+     * {@link #deriveDEK(String, Instant, byte[])}, e.g. from the key id in the record's envelope.
+     *
+     * @param keyId the bucket key id
+     * @param recordId the record id
+     * @param salt the record's salt
+     * @return the derived DEK
+     * @throws CryptoException if the bucket key is gone or the record was destroyed
+     */
+    public DataEncryptionKey rederiveDEK(String keyId, String recordId, byte[] salt) {
+        DataEncryptionKey bucketKey = keyStore.get(keyId);
+        Set<String> destroyed = tombstones.get(keyId);
+        if (bucketKey == null || destroyed == null) {
+            throw new CryptoException("Key not found: " + keyId);
+        }
+        if (destroyed.contains(recordId)) {
+            throw new CryptoException("Key has been destroyed for record: " + recordId);
+        }
+        return derive(bucketKey, recordId, salt);
+    }
+
+    /**
+     * Crypto-shreds a single record whose DEK is derived from a bucket key, by tombstoning it until
+     * the bucket key itself is destroyed.
+     *
+     * @param keyId the bucket key id
+     * @param recordId the record id
+     * @return true if the record was tombstoned, false if its bucket key is already gone
+     */
+    public boolean destroyDerivedKey(String keyId, String recordId) {
+        Set<String> destroyed = tombstones.get(keyId);
+        return destroyed != null && destroyed.add(recordId);
+    }
+
+    /**
+     * Gets key bucketing statistics: {@code buckets} (live bucket keys) and {@code tombstones}
+     * (records destroyed ahead of their bucket).
+     *
+     * @return a map of statistics, empty if key bucketing is not enabled
+     */
+    public Map<String, Object> getKeyBucketStats() {
+        if (!isKeyBucketing()) {
+            return Map.of();
+        }
+        int tombstoned = 0;
+        for (Set<String> destroyed : tombstones.values()) {
+            tombstoned += destroyed.size();
+        }
+        return Map.of(
+            "buckets", buckets.size(),
+            "tombstones", tombstoned
+        );
+    }
+
+    /**
+     * Gets DEK pool statistics: {@code size}, {@code capacity}, {@code hits},
+     * {@code misses} (takes that found the pool exhausted) and {@code generated}.
+     *
+     * @return a map of statistics, empty if no DEK pool is configured
+     */
+    public Map<String, Object> getDekPoolStats() {
+        return dekPool != null ? dekPool.stats() : Map.of();
+    }
+
     /**
      * Registers an existing DEK with this provider.
      *
@@ -50,6 +327,17 @@ public final class CryptoProvider {
         keyStore.put(dek.getId(), dek);
     }
 
+    /**
+     * Registers an existing DEK that should be crypto-shredded once {@code expiresAt} passes.
+     *
+     * @param dek the DEK to register
+     * @param expiresAt when the record encrypted under this key expires
+     */
+    public void registerKey(DataEncryptionKey dek, Instant expiresAt) {
+        registerKey(dek);
+        scheduleExpiry(dek.getId(), expiresAt);
+    }
+
     /**
      * Gets a DEK by its ID.
      *
@@ -68,22 +356,136 @@ public final class CryptoProvider {
      * @return the encrypted payload
      */
     public EncryptedPayload encrypt(byte[] plaintext, DataEncryptionKey dek) {
+        byte[] nonce = nextNonce(dek);
         try {
-            byte[] nonce = new byte[GCM_NONCE_LENGTH];
-            secureRandom.nextBytes(nonce);
-
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            Cipher cipher = borrowCipher();
             GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, nonce);
             cipher.init(Cipher.ENCRYPT_MODE, dek.toSecretKey(), spec);
 
             byte[] ciphertext = cipher.doFinal(plaintext);
+            releaseCipher(cipher);
 
-            return new EncryptedPayload(ciphertext, nonce, dek.getId());
+            // Freshly allocated, so the payload can own it
+            return EncryptedPayload.wrap(ciphertext, 0, ciphertext.length, nonce, dek.getId());
+        } catch (Exception e) {
+            throw new CryptoException("Encryption failed", e);
+        }
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code src} into {@code dst} using AES-256-GCM, without
+     * intermediate copies. Works with heap and direct buffers.
+     *
+     * @param src the plaintext; its position advances to its limit
+     * @param dst receives the ciphertext, tag included; needs {@link #ciphertextLength(int)}
+     *            bytes remaining, and its position advances past what was written
+     * @param dek the DEK to use
+     * @return the nonce, needed for decryption
+     */
+    public byte[] encrypt(ByteBuffer src, ByteBuffer dst, DataEncryptionKey dek) {
+        byte[] nonce = nextNonce(dek);
+        try {
+            Cipher cipher = borrowCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, dek.toSecretKey(), new GCMParameterSpec(GCM_TAG_LENGTH, nonce));
+            cipher.doFinal(src, dst);
+            releaseCipher(cipher);
+            return nonce;
         } catch (Exception e) {
             throw new CryptoException("Encryption failed", e);
         }
     }
 
+    /**
+     * Gets the ciphertext size, tag included, for a plaintext of the given size.
+     *
+     * @param plaintextLength the plaintext size in bytes
+     * @return the ciphertext size in bytes
+     */
+    public static int ciphertextLength(int plaintextLength) {
+        return plaintextLength + GCM_TAG_BYTES;
+    }
+
+    /**
+     * Gets the plaintext size for a ciphertext of the given size, tag included.
+     *
+     * @param ciphertextLength the ciphertext size in bytes
+     * @return the plaintext size in bytes
+     */
+    public static int plaintextLength(int ciphertextLength) {
+        return ciphertextLength - GCM_TAG_BYTES;
+    }
+
+    /**
+     * Encrypts one segment of a stream with AES-256-GCM. The stream id, the segment's index and
+     * whether it is the last segment are authenticated with it, so segments that are reordered,
+     * moved between streams, or cut off before the last one fail to decrypt.
+     *
+     * @param plaintext the array holding the segment
+     * @param offset where the segment starts
+     * @param length the segment length
+     * @param dek the DEK to use
+     * @param streamId the id of the stream the segment belongs to
+     * @param index the segment's position in the stream, from 0
+     * @param last whether this is the stream's last segment
+     * @return the sealed segment: the nonce followed by the ciphertext, {@link #segmentLength(int)} bytes
+     */
+    public byte[] encryptSegment(byte[] plaintext, int offset, int length, DataEncryptionKey dek,
+                                 String streamId, long index, boolean last) {
+        byte[] nonce = nextNonce(dek);
+        try {
+            Cipher cipher = borrowCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, dek.toSecretKey(), new GCMParameterSpec(GCM_TAG_LENGTH, nonce));
+            cipher.updateAAD(segmentAad(streamId, index, last));
+
+            byte[] segment = new byte[segmentLength(length)];
+            System.arraycopy(nonce, 0, segment, 0, GCM_NONCE_LENGTH);
+            cipher.doFinal(plaintext, offset, length, segment, GCM_NONCE_LENGTH);
+            releaseCipher(cipher);
+            return segment;
+        } catch (Exception e) {
+            throw new CryptoException("Segment encryption failed", e);
+        }
+    }
+
+    /**
+     * Decrypts a segment sealed by {@link #encryptSegment}.
+     *
+     * @param segment the sealed segment
+     * @param dek the DEK to use
+     * @param streamId the id of the stream the segment is expected to belong to
+     * @param index the position the segment is expected at
+     * @param last whether the segment is expected to be the last one
+     * @return the plaintext
+     * @throws CryptoException if the segment does not authenticate at that position
+     */
+    public byte[] decryptSegment(byte[] segment, DataEncryptionKey dek, String streamId, long index, boolean last) {
+        if (segment.length < segmentLength(0)) {
+            throw new CryptoException("Truncated segment " + index + " of stream: " + streamId);
+        }
+        try {
+            Cipher cipher = borrowCipher();
+            cipher.init(Cipher.DECRYPT_MODE, dek.toSecretKey(),
+                new GCMParameterSpec(GCM_TAG_LENGTH, segment, 0, GCM_NONCE_LENGTH));
+            cipher.updateAAD(segmentAad(streamId, index, last));
+
+            byte[] plaintext = cipher.doFinal(segment, GCM_NONCE_LENGTH, segment.length - GCM_NONCE_LENGTH);
+            releaseCipher(cipher);
+            return plaintext;
+        } catch (Exception e) {
+            throw new CryptoException("Decryption failed for segment " + index + " of stream: " + streamId, e);
+        }
+    }
+
+    /**
+     * Gets the size of a sealed segment, nonce and tag included, for a plaintext of the given size.
+     *
+     * @param plaintextLength the segment's plaintext size in bytes
+     * @return the sealed segment size in bytes
+     */
+    public static int segmentLength(int plaintextLength) {
+        return GCM_NONCE_LENGTH + ciphertextLength(plaintextLength);
+    }
+
     /**
      * Encrypts a string using AES-256-GCM.
      *
@@ -103,12 +505,17 @@ public final class CryptoProvider {
      * @return the encrypted payload
      */
     public EncryptedPayload encryptJson(Object data, DataEncryptionKey dek) {
+        byte[] json;
         try {
-            String json = objectMapper.writeValueAsString(data);
-            return encrypt(json, dek);
+            json = objectMapper.writeValueAsBytes(data);
         } catch (JsonProcessingException e) {
             throw new CryptoException("JSON serialization failed", e);
         }
+        try {
+            return encrypt(json, dek);
+        } finally {
+            Arrays.fill(json, (byte) 0);
+        }
     }
 
     /**
@@ -119,12 +526,41 @@ public final class CryptoProvider {
      * @return the decrypted data
      */
     public byte[] decrypt(EncryptedPayload payload, DataEncryptionKey dek) {
-        try {
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, payload.getNonce());
-            cipher.init(Cipher.DECRYPT_MODE, dek.toSecretKey(), spec);
+        byte[] plaintext = new byte[plaintextLength(payload.getCiphertextLength())];
+        decrypt(payload, ByteBuffer.wrap(plaintext), dek);
+        return plaintext;
+    }
+
+    /**
+     * Decrypts a payload into a caller-provided buffer, e.g. a pooled or direct one, reading the
+     * payload's ciphertext in place.
+     *
+     * @param payload the encrypted payload
+     * @param dst receives the plaintext; needs {@link #plaintextLength(int)} bytes remaining
+     * @param dek the DEK to use
+     * @return the number of plaintext bytes written
+     */
+    public int decrypt(EncryptedPayload payload, ByteBuffer dst, DataEncryptionKey dek) {
+        return decrypt(payload.ciphertextSource(), payload.nonceArray(), dst, dek);
+    }
 
-            return cipher.doFinal(payload.getCiphertext());
+    /**
+     * Decrypts the remaining bytes of {@code src} into {@code dst} using AES-256-GCM, without
+     * intermediate copies. Nothing is written unless the tag verifies.
+     *
+     * @param src the ciphertext, tag included; its position advances to its limit
+     * @param nonce the nonce returned by {@link #encrypt(ByteBuffer, ByteBuffer, DataEncryptionKey)}
+     * @param dst receives the plaintext; needs {@link #plaintextLength(int)} bytes remaining
+     * @param dek the DEK to use
+     * @return the number of plaintext bytes written
+     */
+    public int decrypt(ByteBuffer src, byte[] nonce, ByteBuffer dst, DataEncryptionKey dek) {
+        try {
+            Cipher cipher = borrowCipher();
+            cipher.init(Cipher.DECRYPT_MODE, dek.toSecretKey(), new GCMParameterSpec(GCM_TAG_LENGTH, nonce));
+            int written = cipher.doFinal(src, dst);
+            releaseCipher(cipher);
+            return written;
         } catch (Exception e) {
             throw new CryptoException("Decryption failed", e);
         }
@@ -165,11 +601,13 @@ public final class CryptoProvider {
      * @return the decrypted and deserialized object
      */
     public <T> T decryptJson(EncryptedPayload payload, DataEncryptionKey dek, Class<T> type) {
+        byte[] json = decrypt(payload, dek);
         try {
-            String json = decryptToString(payload, dek);
             return objectMapper.readValue(json, type);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new CryptoException("JSON deserialization failed", e);
+        } finally {
+            Arrays.fill(json, (byte) 0);
         }
     }
 
@@ -180,16 +618,25 @@ public final class CryptoProvider {
      * @return true if the key was destroyed, false if not found
      */
     public boolean destroyKey(String keyId) {
+        ScheduledFuture<?> expiry = keyExpiries.remove(keyId);
+        if (expiry != null) {
+            expiry.cancel(false);
+        }
+        if (tombstones.remove(keyId) != null) {
+            buckets.values().removeIf(bucketKey -> bucketKey.getId().equals(keyId));
+        }
+        boolean cached = keyCache != null && keyCache.invalidate(keyId);
         DataEncryptionKey dek = keyStore.remove(keyId);
         if (dek != null) {
             dek.destroy();
             return true;
         }
-        return false;
+        return cached;
     }
 
     /**
-     * Gets the number of active keys.
+     * Gets the number of active keys. Keys whose record expiry has passed are
+     * destroyed by the expiry timer and no longer counted.
      *
      * @return the key count
      */
@@ -201,9 +648,242 @@ public final class CryptoProvider {
      * Destroys all keys managed by this provider.
      */
     public void destroyAllKeys() {
+        for (ScheduledFuture<?> expiry : keyExpiries.values()) {
+            expiry.cancel(false);
+        }
+        keyExpiries.clear();
+        buckets.clear();
+        tombstones.clear();
+        if (keyCache != null) {
+            keyCache.clear();
+        }
         for (DataEncryptionKey dek : keyStore.values()) {
             dek.destroy();
         }
         keyStore.clear();
     }
+
+    /**
+     * Gets the number of keys crypto-shredded because their record expired.
+     *
+     * @return the expired key count
+     */
+    public long getExpiredKeyCount() {
+        return expiredKeyCount.get();
+    }
+
+    /**
+     * Destroys all keys, including unused pooled keys, and stops the pool refill thread.
+     */
+    @Override
+    public void close() {
+        if (dekPool != null) {
+            dekPool.close();
+        }
+        expiryScheduler.shutdownNow();
+        destroyAllKeys();
+        if (keyEncryption != null) {
+            keyEncryption.close();
+        }
+    }
+
+    private void scheduleExpiry(String keyId, Instant expiresAt) {
+        long delayMillis = Math.max(0, Duration.between(Instant.now(), expiresAt).toMillis());
+        // Scheduling inside compute() holds the map entry, so a timer that fires immediately
+        // blocks in destroyKey() until its own future has been recorded and can be removed
+        keyExpiries.compute(keyId, (id, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return expiryScheduler.schedule(() -> {
+                if (destroyKey(id)) {
+                    expiredKeyCount.incrementAndGet();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Gets the bucket key for the window containing {@code expiresAt}. It is shredded at the end of
+     * the window, by which time every record in the bucket has expired.
+     */
+    private DataEncryptionKey bucketKey(Instant expiresAt) {
+        long index = Math.floorDiv(expiresAt.toEpochMilli(), bucketWidthMillis);
+        DataEncryptionKey existing = buckets.get(index);
+        if (existing != null) {
+            return existing;
+        }
+
+        DataEncryptionKey created = DataEncryptionKey.generate();
+        DataEncryptionKey bucketKey = buckets.computeIfAbsent(index, i -> {
+            tombstones.put(created.getId(), ConcurrentHashMap.newKeySet());
+            keyStore.put(created.getId(), created);
+            return created;
+        });
+        if (bucketKey == created) {
+            // Scheduled only once the bucket is published, so a window that has already ended is
+            // shredded (and unpublished) straight away rather than left behind
+            scheduleExpiry(created.getId(), Instant.ofEpochMilli((index + 1) * bucketWidthMillis));
+        } else {
+            created.destroy();
+        }
+        return bucketKey;
+    }
+
+    /**
+     * HKDF-SHA256 (RFC 5869) with the record's salt, binding the DEK to the record id.
+     */
+    private static DataEncryptionKey derive(DataEncryptionKey bucketKey, String recordId, byte[] salt) {
+        byte[] ikm = bucketKey.getBytes();
+        byte[] prk = null;
+        byte[] okm = null;
+        try {
+            Mac mac = Mac.getInstance(HKDF_ALGORITHM);
+            mac.init(new SecretKeySpec(salt, HKDF_ALGORITHM));
+            prk = mac.doFinal(ikm);
+
+            // One HMAC block is exactly one 256-bit key: T(1) = HMAC(PRK, info || 0x01)
+            mac.init(new SecretKeySpec(prk, HKDF_ALGORITHM));
+            mac.update(DERIVED_KEY_INFO);
+            mac.update(recordId.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 1);
+            okm = mac.doFinal();
+            return DataEncryptionKey.fromBytes(bucketKey.getId(), okm);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Key derivation failed", e);
+        } finally {
+            Arrays.fill(ikm, (byte) 0);
+            if (prk != null) {
+                Arrays.fill(prk, (byte) 0);
+            }
+            if (okm != null) {
+                Arrays.fill(okm, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Gets a nonce not yet used with this key instance, so a pooled cipher is never
+     * re-initialized with a (key, nonce) pair it has already used.
+     */
+    private byte[] nextNonce(DataEncryptionKey dek) {
+        long use = dek.recordUse();
+        if (use >= nonceStrategy.maxUsesPerKey()) {
+            throw new CryptoException("Key has reached its limit of " + nonceStrategy.maxUsesPerKey()
+                + " encryptions and must be rotated: " + dek.getId());
+        }
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        nonceStrategy.nextNonce(dek, use, nonce);
+        return nonce;
+    }
+
+    private static byte[] segmentAad(String streamId, long index, boolean last) {
+        byte[] id = streamId.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(SEGMENT_AAD_PREFIX.length + 4 + id.length + 8 + 1)
+            .put(SEGMENT_AAD_PREFIX)
+            .putInt(id.length)
+            .put(id)
+            .putLong(index)
+            .put((byte) (last ? 1 : 0))
+            .array();
+    }
+
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        Cipher cipher = cipherPool.poll();
+        return cipher != null ? cipher : Cipher.getInstance(CIPHER_ALGORITHM);
+    }
+
+    /**
+     * Returns a cipher to the pool. Only called after a successful operation;
+     * a cipher that threw is simply dropped.
+     */
+    private void releaseCipher(Cipher cipher) {
+        cipherPool.offer(cipher);
+    }
+
+    /**
+     * Builder for CryptoProvider.
+     */
+    public static class Builder {
+        private int dekPoolCapacity;
+        private int dekPoolLowWaterMark;
+        private Duration bucketWidth;
+        private NonceStrategy nonceStrategy = NonceStrategy.counter();
+        private KeyEncryptionProvider keyEncryption;
+        private int keyCacheMaxEntries = 10_000;
+        private Duration keyCacheTtl = Duration.ofMinutes(5);
+
+        /**
+         * Keeps up to {@code capacity} DEKs pre-generated by a background thread, so that
+         * {@link #generateDEK()} does not pay for key generation in the common case.
+         *
+         * @param capacity the maximum number of pooled keys
+         * @param lowWaterMark refilling starts when the pool drops below this size
+         * @return this builder
+         */
+        public Builder dekPool(int capacity, int lowWaterMark) {
+            this.dekPoolCapacity = capacity;
+            this.dekPoolLowWaterMark = lowWaterMark;
+            return this;
+        }
+
+        /**
+         * Sets how encryption nonces are generated. Defaults to {@link NonceStrategy#counter()}.
+         *
+         * @param nonceStrategy the nonce strategy
+         * @return this builder
+         */
+        public Builder nonceStrategy(NonceStrategy nonceStrategy) {
+            this.nonceStrategy = nonceStrategy;
+            return this;
+        }
+
+        /**
+         * Shares keys between records that expire in the same {@code width}-long window: each
+         * record's DEK is derived from its window's bucket key and never stored, and the bucket
+         * key is shredded when the window ends. Key memory then grows with the number of windows
+         * rather than the number of records, at the cost of keys outliving their record's expiry
+         * by up to {@code width}.
+         *
+         * @param width the bucket window
+         * @return this builder
+         */
+        public Builder keyBuckets(Duration width) {
+            if (width.toMillis() <= 0) {
+                throw new IllegalArgumentException("Bucket width must be positive");
+            }
+            this.bucketWidth = width;
+            return this;
+        }
+
+        /**
+         * Stores DEKs wrapped under the given provider's KEK instead of in the clear. The provider
+         * takes ownership and closes it on {@link CryptoProvider#close()}.
+         *
+         * @param keyEncryption the KEK provider
+         * @return this builder
+         */
+        public Builder keyEncryption(KeyEncryptionProvider keyEncryption) {
+            this.keyEncryption = keyEncryption;
+            return this;
+        }
+
+        /**
+         * Sizes the cache of unwrapped DEKs used with {@link #keyEncryption}. Defaults to
+         * 10,000 keys for 5 minutes; a key is never cached past its record's expiry.
+         *
+         * @param maxEntries the most keys cached, least recently used first out
+         * @param ttl how long a key stays cached after it was unwrapped
+         * @return this builder
+         */
+        public Builder unwrappedKeyCache(int maxEntries, Duration ttl) {
+            this.keyCacheMaxEntries = maxEntries;
+            this.keyCacheTtl = ttl;
+            return this;
+        }
+
+        public CryptoProvider build() {
+            return new CryptoProvider(this);
+        }
+    }
 }
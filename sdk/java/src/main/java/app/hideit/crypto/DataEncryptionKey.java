@@ -3,12 +3,13 @@ package app.hideit.crypto;
 import app.hideit.exception.CryptoException;
 
 import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A Data Encryption Key (DEK) with lifecycle management and secure destruction.
@@ -17,11 +18,18 @@ public final class DataEncryptionKey {
 
     private static final String ALGORITHM = "AES";
     private static final int KEY_SIZE_BYTES = 32; // 256 bits
+    private static final int NONCE_PREFIX_BYTES = 8;
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
 
     private final String id;
     private final Instant createdAt;
     private byte[] keyMaterial;
     private boolean destroyed;
+    private final SecretKey secretKey = new KeyView();
+
+    // Encryptions made under this instance, and its counter-nonce prefix, drawn on first use
+    private final AtomicLong uses = new AtomicLong();
+    private volatile byte[] noncePrefix;
 
     private DataEncryptionKey(String id, byte[] keyMaterial, Instant createdAt) {
         this.id = id;
@@ -36,11 +44,20 @@ public final class DataEncryptionKey {
      * @return a new DataEncryptionKey
      */
     public static DataEncryptionKey generate() {
-        SecureRandom random = new SecureRandom();
+        return generate(SHARED_RANDOM);
+    }
+
+    /**
+     * Generates a new random DEK, drawing both the key material and the key ID from the given source.
+     *
+     * @param random the randomness source
+     * @return a new DataEncryptionKey
+     */
+    public static DataEncryptionKey generate(SecureRandom random) {
         byte[] keyMaterial = new byte[KEY_SIZE_BYTES];
         random.nextBytes(keyMaterial);
         return new DataEncryptionKey(
-            UUID.randomUUID().toString(),
+            randomUuid(random).toString(),
             keyMaterial,
             Instant.now()
         );
@@ -84,15 +101,53 @@ public final class DataEncryptionKey {
         return destroyed;
     }
 
+    /**
+     * Gets how many encryptions have been made under this key instance.
+     *
+     * @return the use count
+     */
+    public long getUseCount() {
+        return uses.get();
+    }
+
+    /**
+     * Records an encryption under this key instance.
+     *
+     * @return how many encryptions preceded this one
+     */
+    long recordUse() {
+        return uses.getAndIncrement();
+    }
+
+    /**
+     * Gets this instance's random counter-nonce prefix, drawing it on first use.
+     */
+    byte[] noncePrefix() {
+        byte[] prefix = noncePrefix;
+        if (prefix == null) {
+            synchronized (this) {
+                prefix = noncePrefix;
+                if (prefix == null) {
+                    prefix = new byte[NONCE_PREFIX_BYTES];
+                    SHARED_RANDOM.nextBytes(prefix);
+                    noncePrefix = prefix;
+                }
+            }
+        }
+        return prefix;
+    }
+
     /**
      * Gets the key as a SecretKey for use with JCE.
+     * The returned key is a view of this DEK rather than a copy, so repeated calls
+     * allocate nothing and destroying the DEK also invalidates the view.
      *
      * @return the SecretKey
      * @throws CryptoException if the key has been destroyed
      */
     public SecretKey toSecretKey() {
         ensureNotDestroyed();
-        return new SecretKeySpec(keyMaterial, ALGORITHM);
+        return secretKey;
     }
 
     /**
@@ -129,12 +184,54 @@ public final class DataEncryptionKey {
         }
     }
 
+    /**
+     * Builds a version 4 UUID like {@link UUID#randomUUID()}, but from the given source
+     * instead of the JDK's shared one.
+     */
+    private static UUID randomUuid(SecureRandom random) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40); // version 4
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80); // IETF variant
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
     private void ensureNotDestroyed() {
         if (destroyed) {
             throw new CryptoException("Key has been destroyed: " + id);
         }
     }
 
+    /**
+     * JCE view of the key material. Providers copy the encoded key during init,
+     * so the only long-lived copy stays in {@link #keyMaterial} where destroy() can zero it.
+     */
+    private final class KeyView implements SecretKey {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getAlgorithm() {
+            return ALGORITHM;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return getBytes();
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+    }
+
     @Override
     public String toString() {
         return "DataEncryptionKey{" +
@@ -0,0 +1,123 @@
+package app.hideit.crypto;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of pre-generated DEKs, refilled by a background thread
+ * whenever it drops below its low-water mark.
+ */
+final class DekPool implements AutoCloseable {
+
+    private final BlockingQueue<DataEncryptionKey> keys;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final SecureRandom random;
+    private final Semaphore refillSignal;
+    private final Thread refiller;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong generated = new AtomicLong(0);
+
+    DekPool(int capacity, int lowWaterMark) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("DEK pool capacity must be positive");
+        }
+        if (lowWaterMark < 0 || lowWaterMark > capacity) {
+            throw new IllegalArgumentException("DEK pool low-water mark must be between 0 and the capacity");
+        }
+        this.keys = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.random = new SecureRandom();
+        this.refillSignal = new Semaphore(0);
+        this.refiller = Thread.ofPlatform()
+            .name("efsf-dek-pool-refill")
+            .daemon(true)
+            .start(this::refillLoop);
+    }
+
+    /**
+     * Takes a pooled DEK, generating one inline if the pool is exhausted.
+     *
+     * @return a fresh, unused DEK
+     */
+    DataEncryptionKey take() {
+        DataEncryptionKey dek = keys.poll();
+        if (dek != null) {
+            hits.incrementAndGet();
+            if (keys.size() < lowWaterMark) {
+                signalRefill();
+            }
+            return dek;
+        }
+        misses.incrementAndGet();
+        signalRefill();
+        return DataEncryptionKey.generate(random);
+    }
+
+    /**
+     * Gets pool statistics: current size, hits, misses (pool exhausted) and keys generated in the background.
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> stats() {
+        return Map.of(
+            "size", keys.size(),
+            "capacity", capacity,
+            "hits", hits.get(),
+            "misses", misses.get(),
+            "generated", generated.get()
+        );
+    }
+
+    /**
+     * Stops the refill thread and zeroizes every key still in the pool.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        refiller.interrupt();
+        try {
+            refiller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DataEncryptionKey dek;
+        while ((dek = keys.poll()) != null) {
+            dek.destroy();
+        }
+    }
+
+    private void signalRefill() {
+        if (refillSignal.availablePermits() == 0) {
+            refillSignal.release();
+        }
+    }
+
+    private void refillLoop() {
+        try {
+            while (!closed) {
+                while (!closed && keys.size() < capacity) {
+                    DataEncryptionKey dek = DataEncryptionKey.generate(random);
+                    if (closed || !keys.offer(dek)) {
+                        dek.destroy();
+                        break;
+                    }
+                    generated.incrementAndGet();
+                }
+                refillSignal.acquire();
+                refillSignal.drainPermits();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+}
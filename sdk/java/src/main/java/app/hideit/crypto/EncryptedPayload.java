@@ -1,5 +1,6 @@
 package app.hideit.crypto;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Map;
@@ -7,27 +8,91 @@ import java.util.Objects;
 
 /**
  * Represents an encrypted payload containing ciphertext, nonce, and key reference.
+ *
+ * <p>The array getters return copies. For large payloads, {@link #getCiphertextBuffer()} and
+ * {@link #getNonceBuffer()} give read-only views instead, and {@link #wrap} builds a payload
+ * over existing arrays, e.g. a slice of a stored envelope, without copying them.
  */
 public final class EncryptedPayload {
 
     private final byte[] ciphertext;
+    private final int ciphertextOffset;
+    private final int ciphertextLength;
     private final byte[] nonce;
     private final String keyId;
 
     public EncryptedPayload(byte[] ciphertext, byte[] nonce, String keyId) {
-        this.ciphertext = Arrays.copyOf(ciphertext, ciphertext.length);
-        this.nonce = Arrays.copyOf(nonce, nonce.length);
+        this(Arrays.copyOf(ciphertext, ciphertext.length), 0, ciphertext.length, Arrays.copyOf(nonce, nonce.length), keyId);
+    }
+
+    private EncryptedPayload(byte[] ciphertext, int ciphertextOffset, int ciphertextLength, byte[] nonce, String keyId) {
+        Objects.checkFromIndexSize(ciphertextOffset, ciphertextLength, ciphertext.length);
+        this.ciphertext = ciphertext;
+        this.ciphertextOffset = ciphertextOffset;
+        this.ciphertextLength = ciphertextLength;
+        this.nonce = nonce;
         this.keyId = Objects.requireNonNull(keyId, "keyId cannot be null");
     }
 
+    /**
+     * Creates a payload over a range of an existing array, without copying. The caller must not
+     * modify the range or the nonce afterwards.
+     *
+     * @param ciphertext the array holding the ciphertext
+     * @param offset where the ciphertext starts
+     * @param length the ciphertext length
+     * @param nonce the nonce
+     * @param keyId the key id
+     * @return a payload sharing the given arrays
+     */
+    public static EncryptedPayload wrap(byte[] ciphertext, int offset, int length, byte[] nonce, String keyId) {
+        return new EncryptedPayload(ciphertext, offset, length, nonce, keyId);
+    }
+
     public byte[] getCiphertext() {
-        return Arrays.copyOf(ciphertext, ciphertext.length);
+        return Arrays.copyOfRange(ciphertext, ciphertextOffset, ciphertextOffset + ciphertextLength);
     }
 
     public byte[] getNonce() {
         return Arrays.copyOf(nonce, nonce.length);
     }
 
+    /**
+     * Gets a read-only view of the ciphertext, positioned at its start.
+     *
+     * @return the ciphertext view
+     */
+    public ByteBuffer getCiphertextBuffer() {
+        return ByteBuffer.wrap(ciphertext, ciphertextOffset, ciphertextLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets a read-only view of the nonce.
+     *
+     * @return the nonce view
+     */
+    public ByteBuffer getNonceBuffer() {
+        return ByteBuffer.wrap(nonce).asReadOnlyBuffer();
+    }
+
+    public int getCiphertextLength() {
+        return ciphertextLength;
+    }
+
+    /**
+     * A writable view of the ciphertext for the JCE, which processes array-backed buffers in place.
+     */
+    ByteBuffer ciphertextSource() {
+        return ByteBuffer.wrap(ciphertext, ciphertextOffset, ciphertextLength);
+    }
+
+    /**
+     * The nonce itself, for the JCE.
+     */
+    byte[] nonceArray() {
+        return nonce;
+    }
+
     public String getKeyId() {
         return keyId;
     }
@@ -38,7 +103,7 @@ public final class EncryptedPayload {
      * @return the size in bytes
      */
     public int getSize() {
-        return ciphertext.length + nonce.length;
+        return ciphertextLength + nonce.length;
     }
 
     /**
@@ -48,7 +113,7 @@ public final class EncryptedPayload {
      */
     public Map<String, Object> toMap() {
         return Map.of(
-            "ciphertext", Base64.getEncoder().encodeToString(ciphertext),
+            "ciphertext", Base64.getEncoder().encodeToString(getCiphertext()),
             "nonce", Base64.getEncoder().encodeToString(nonce),
             "key_id", keyId
         );
@@ -72,7 +137,8 @@ public final class EncryptedPayload {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         EncryptedPayload that = (EncryptedPayload) o;
-        return Arrays.equals(ciphertext, that.ciphertext) &&
+        return Arrays.equals(ciphertext, ciphertextOffset, ciphertextOffset + ciphertextLength,
+                that.ciphertext, that.ciphertextOffset, that.ciphertextOffset + that.ciphertextLength) &&
             Arrays.equals(nonce, that.nonce) &&
             Objects.equals(keyId, that.keyId);
     }
@@ -80,7 +146,7 @@ public final class EncryptedPayload {
     @Override
     public int hashCode() {
         int result = Objects.hash(keyId);
-        result = 31 * result + Arrays.hashCode(ciphertext);
+        result = 31 * result + getCiphertextBuffer().hashCode();
         result = 31 * result + Arrays.hashCode(nonce);
         return result;
     }
@@ -0,0 +1,43 @@
+package app.hideit.crypto;
+
+/**
+ * Wraps and unwraps DEKs under a key-encryption key (KEK), e.g. one held by a KMS or HSM.
+ *
+ * <p>With a provider configured, stored records carry their DEK wrapped rather than in the clear,
+ * so reading a record needs the KEK as well as the stored value. Implementations must be
+ * thread-safe. Unwrapping may be a remote call; {@link CryptoProvider} caches unwrapped DEKs so
+ * that hot records do not pay for it on every read.
+ */
+public interface KeyEncryptionProvider extends AutoCloseable {
+
+    /**
+     * Wraps DEK material under the KEK.
+     *
+     * @param keyId the DEK id, which implementations should bind to the wrapped key (e.g. as AAD)
+     * @param keyMaterial the raw DEK bytes; not retained
+     * @return the wrapped key, in the provider's own format
+     */
+    byte[] wrap(String keyId, byte[] keyMaterial);
+
+    /**
+     * Unwraps DEK material.
+     *
+     * @param keyId the DEK id the key was wrapped with
+     * @param wrappedKey the wrapped key from {@link #wrap}
+     * @return the raw DEK bytes, owned by the caller
+     * @throws app.hideit.exception.CryptoException if the key cannot be unwrapped
+     */
+    byte[] unwrap(String keyId, byte[] wrappedKey);
+
+    /**
+     * Gets the name of this provider, for diagnostics.
+     *
+     * @return the provider name
+     */
+    String getProviderName();
+
+    @Override
+    default void close() {
+        // Nothing to release by default
+    }
+}
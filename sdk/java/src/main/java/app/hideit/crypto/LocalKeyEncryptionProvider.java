@@ -0,0 +1,161 @@
+package app.hideit.crypto;
+
+import app.hideit.exception.CryptoException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A {@link KeyEncryptionProvider} with an AES-256 KEK held in process memory, for tests and
+ * single-node deployments. Wrapped keys are {@code nonce (12) || AES-GCM(DEK) with the DEK id as AAD}.
+ *
+ * <p>The KEK is either random (records do not survive a restart) or loaded from a file holding it
+ * as Base64, which must be protected like any other secret.
+ */
+public final class LocalKeyEncryptionProvider implements KeyEncryptionProvider {
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int KEK_SIZE_BYTES = 32;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 128; // bits
+
+    private final SecretKeySpec kek;
+    private final SecureRandom random = new SecureRandom();
+
+    private LocalKeyEncryptionProvider(byte[] kek) {
+        if (kek.length != KEK_SIZE_BYTES) {
+            throw new CryptoException("Invalid KEK size: expected " + KEK_SIZE_BYTES + " bytes, got " + kek.length);
+        }
+        this.kek = new SecretKeySpec(kek, "AES");
+    }
+
+    /**
+     * Creates a provider with a random in-memory KEK.
+     *
+     * @return a new provider
+     */
+    public static LocalKeyEncryptionProvider create() {
+        byte[] kek = new byte[KEK_SIZE_BYTES];
+        new SecureRandom().nextBytes(kek);
+        try {
+            return new LocalKeyEncryptionProvider(kek);
+        } finally {
+            Arrays.fill(kek, (byte) 0);
+        }
+    }
+
+    /**
+     * Creates a provider from existing KEK bytes.
+     *
+     * @param kek the 32-byte KEK
+     * @return a new provider
+     */
+    public static LocalKeyEncryptionProvider fromBytes(byte[] kek) {
+        return new LocalKeyEncryptionProvider(kek);
+    }
+
+    /**
+     * Loads the KEK from a file holding it as Base64, first generating the file (readable by its
+     * owner only, where the file system supports it) if it does not exist.
+     *
+     * @param path the key file
+     * @return a new provider
+     * @throws CryptoException if the file cannot be read or written
+     */
+    public static LocalKeyEncryptionProvider fromFile(Path path) {
+        try {
+            if (!Files.exists(path)) {
+                createKeyFile(path);
+            }
+            byte[] kek = Base64.getDecoder().decode(Files.readString(path, StandardCharsets.US_ASCII).trim());
+            try {
+                return new LocalKeyEncryptionProvider(kek);
+            } finally {
+                Arrays.fill(kek, (byte) 0);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CryptoException("Failed to load KEK from " + path, e);
+        }
+    }
+
+    @Override
+    public byte[] wrap(String keyId, byte[] keyMaterial) {
+        try {
+            byte[] nonce = new byte[NONCE_LENGTH];
+            random.nextBytes(nonce);
+
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, kek, new GCMParameterSpec(TAG_LENGTH, nonce));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(keyMaterial);
+
+            return ByteBuffer.allocate(NONCE_LENGTH + ciphertext.length).put(nonce).put(ciphertext).array();
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Key wrapping failed", e);
+        }
+    }
+
+    @Override
+    public byte[] unwrap(String keyId, byte[] wrappedKey) {
+        if (wrappedKey.length <= NONCE_LENGTH) {
+            throw new CryptoException("Invalid wrapped key for: " + keyId);
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, kek, new GCMParameterSpec(TAG_LENGTH, wrappedKey, 0, NONCE_LENGTH));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(wrappedKey, NONCE_LENGTH, wrappedKey.length - NONCE_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Key unwrapping failed for: " + keyId, e);
+        }
+    }
+
+    @Override
+    public String getProviderName() {
+        return "local";
+    }
+
+    private static void createKeyFile(Path path) throws IOException {
+        byte[] kek = new byte[KEK_SIZE_BYTES];
+        new SecureRandom().nextBytes(kek);
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        // Written in full under a temporary name first, so readers never see a partial key
+        Path temp = path.getFileSystem().supportedFileAttributeViews().contains("posix")
+            ? Files.createTempFile(parent, path.getFileName() + ".", ".tmp",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+            : Files.createTempFile(parent, path.getFileName() + ".", ".tmp");
+        try {
+            Files.writeString(temp, Base64.getEncoder().encodeToString(kek), StandardCharsets.US_ASCII);
+            try {
+                // Unlike a rename, a hard link fails rather than replace a key created concurrently
+                Files.createLink(path, temp);
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // No hard links on this file system
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Created concurrently; use that one
+        } finally {
+            Files.deleteIfExists(temp);
+            Arrays.fill(kek, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package app.hideit.crypto;
+
+/**
+ * Chooses the AES-GCM nonce for each encryption under a DEK.
+ *
+ * <p>A (key, nonce) pair must never repeat. {@link CryptoProvider} counts the encryptions made
+ * under each key instance, passes that count in as {@code use}, and refuses to encrypt once it
+ * reaches {@link #maxUsesPerKey()}, so the key has to be rotated.
+ */
+public interface NonceStrategy {
+
+    /** The GCM nonce length, in bytes. */
+    int NONCE_LENGTH = 12;
+
+    /**
+     * Fills in the nonce for the next encryption under a key.
+     *
+     * @param dek the key about to be used
+     * @param use how many encryptions this key instance has made before this one
+     * @param nonce the {@value #NONCE_LENGTH}-byte nonce to fill in
+     */
+    void nextNonce(DataEncryptionKey dek, long use, byte[] nonce);
+
+    /**
+     * Gets how many encryptions a key instance may make with this strategy before it must be rotated.
+     *
+     * @return the rekey limit
+     */
+    long maxUsesPerKey();
+
+    /**
+     * Deterministic nonces: a random 8-byte prefix, drawn once per key instance, followed by a
+     * 4-byte big-endian use counter. Generating one touches no shared state, so writers on
+     * different keys never contend. Keys may be used 2^32 times.
+     *
+     * @return the counter strategy
+     */
+    static NonceStrategy counter() {
+        return new CounterNonceStrategy(CounterNonceStrategy.MAX_USES);
+    }
+
+    /**
+     * Counter nonces with a lower rekey limit.
+     *
+     * @param maxUsesPerKey the rekey limit, at most 2^32
+     * @return the counter strategy
+     */
+    static NonceStrategy counter(long maxUsesPerKey) {
+        return new CounterNonceStrategy(maxUsesPerKey);
+    }
+
+    /**
+     * Fully random nonces from one shared {@link java.security.SecureRandom}, limited to 2^32
+     * uses per key as NIST SP 800-38D requires for random nonces.
+     *
+     * @return the random strategy
+     */
+    static NonceStrategy random() {
+        return new RandomNonceStrategy();
+    }
+}
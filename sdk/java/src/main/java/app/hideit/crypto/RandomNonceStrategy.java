@@ -0,0 +1,23 @@
+package app.hideit.crypto;
+
+import java.security.SecureRandom;
+
+/**
+ * Fully random nonces from a shared SecureRandom, as CryptoProvider used before nonce strategies.
+ */
+final class RandomNonceStrategy implements NonceStrategy {
+
+    private static final long MAX_USES = 1L << 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public void nextNonce(DataEncryptionKey dek, long use, byte[] nonce) {
+        random.nextBytes(nonce);
+    }
+
+    @Override
+    public long maxUsesPerKey() {
+        return MAX_USES;
+    }
+}
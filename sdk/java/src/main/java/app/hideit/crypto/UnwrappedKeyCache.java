@@ -0,0 +1,142 @@
+package app.hideit.crypto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An LRU cache of unwrapped DEKs, bounded by entry count, with a time-to-live per entry.
+ *
+ * <p>Callers get their own copy of a cached key, so an eviction never destroys a key that is in
+ * use. Evicted, expired and invalidated keys are destroyed, which zeroizes their material.
+ */
+final class UnwrappedKeyCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    UnwrappedKeyCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Key cache size must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Key cache TTL must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Gets a copy of a cached key.
+     *
+     * @param keyId the key id
+     * @return the key, owned by the caller, or null on a miss
+     */
+    DataEncryptionKey get(String keyId) {
+        synchronized (this) {
+            Entry entry = entries.get(keyId);
+            if (entry != null && entry.expiresAtMillis() <= System.currentTimeMillis()) {
+                entries.remove(keyId).key().destroy();
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return DataEncryptionKey.fromBytes(keyId, entry.key().getBytes());
+        }
+    }
+
+    /**
+     * Caches a copy of a key, evicting the least recently used keys beyond the size limit.
+     *
+     * @param dek the key; the caller keeps ownership
+     * @param notAfterMillis the entry never outlives this time, e.g. the record's expiry
+     */
+    void put(DataEncryptionKey dek, long notAfterMillis) {
+        long expiresAtMillis = Math.min(System.currentTimeMillis() + ttlMillis, notAfterMillis);
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        DataEncryptionKey copy = DataEncryptionKey.fromBytes(dek.getId(), dek.getBytes());
+        synchronized (this) {
+            Entry previous = entries.put(dek.getId(), new Entry(copy, expiresAtMillis));
+            if (previous != null) {
+                previous.key().destroy();
+            }
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                evicted.key().destroy();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops and destroys a cached key.
+     *
+     * @param keyId the key id
+     * @return true if the key was cached
+     */
+    boolean invalidate(String keyId) {
+        synchronized (this) {
+            Entry entry = entries.remove(keyId);
+            if (entry != null) {
+                entry.key().destroy();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Drops and destroys all cached keys.
+     */
+    void clear() {
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                entry.key().destroy();
+            }
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets cache statistics: {@code hits}, {@code misses}, {@code hit_rate}, {@code evictions}
+     * (dropped for space), {@code expirations}, {@code entries} and {@code max_entries}.
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        synchronized (this) {
+            return Map.of(
+                "hits", hitCount,
+                "misses", lookups - hitCount,
+                "hit_rate", lookups > 0 ? (double) hitCount / lookups : 0.0,
+                "evictions", evictions.sum(),
+                "expirations", expirations.sum(),
+                "entries", entries.size(),
+                "max_entries", maxEntries
+            );
+        }
+    }
+
+    private record Entry(DataEncryptionKey key, long expiresAtMillis) {}
+}
@@ -0,0 +1,438 @@
+package app.hideit.record;
+
+import app.hideit.crypto.DataEncryptionKey;
+import app.hideit.crypto.EncryptedPayload;
+import app.hideit.exception.EfsfException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Versioned binary envelope holding an encrypted record as stored by EphemeralStore.
+ *
+ * <p>All header fields sit at fixed offsets (big-endian):
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "EFSF"
+ *      4     1  format version
+ *      5     1  classification ordinal
+ *      6    16  record id (UUID)
+ *     22     8  created at (epoch millis)
+ *     30     8  expires at (epoch millis)
+ *     38    16  key id (UUID)
+ *     54    32  key material
+ *     86    12  nonce
+ *     98     4  ciphertext length
+ *    102     n  ciphertext
+ * </pre>
+ *
+ * <p>Version {@value #DERIVED_KEY_VERSION} envelopes, written when the crypto provider uses key
+ * buckets, have the same layout but never hold a key: the key id names the bucket key and the
+ * key material slot holds the record's HKDF salt instead.
+ *
+ * <p>Version {@value #WRAPPED_KEY_VERSION} envelopes, written when DEKs are wrapped under a KEK,
+ * replace the key material slot with a 2-byte length and the wrapped key, shifting the payload
+ * section by the difference.
+ *
+ * <p>Envelopes with {@link #STREAM_FLAG} set in the version byte head a record stored as a stream:
+ * their payload is the stream's manifest, and the stream itself is stored in chunks under
+ * separate keys.
+ *
+ * Record metadata is not part of the envelope; records written by the store never carry any.
+ */
+public final class RecordEnvelope {
+
+    /** The current envelope format version. */
+    public static final byte VERSION = 1;
+
+    /** The format version of envelopes whose DEK is derived from a bucket key rather than stored. */
+    public static final byte DERIVED_KEY_VERSION = 2;
+
+    /** The format version of envelopes whose DEK is stored wrapped under a key-encryption key. */
+    public static final byte WRAPPED_KEY_VERSION = 3;
+
+    /** Set in the version byte of envelopes that head a chunked stream. */
+    public static final byte STREAM_FLAG = 0x40;
+
+    /**
+     * Number of leading bytes needed by {@link #readHeader}: everything up to and including the key id.
+     */
+    public static final int HEADER_PREFIX_LENGTH = 54;
+
+    /**
+     * Offset of the payload section (nonce, ciphertext length and ciphertext), which follows the key material.
+     * Wrapped-key envelopes have a variable-length key section, so their payload starts elsewhere.
+     */
+    public static final int PAYLOAD_OFFSET = HEADER_PREFIX_LENGTH + 32;
+
+    private static final byte[] MAGIC = {'E', 'F', 'S', 'F'};
+    private static final int KEY_LENGTH = PAYLOAD_OFFSET - HEADER_PREFIX_LENGTH;
+    private static final int NONCE_LENGTH = 12;
+
+    private static final int VERSION_OFFSET = 4;
+    private static final int CLASSIFICATION_OFFSET = 5;
+    private static final int RECORD_ID_OFFSET = 6;
+    private static final int CREATED_AT_OFFSET = 22;
+    private static final int EXPIRES_AT_OFFSET = 30;
+    private static final int KEY_ID_OFFSET = 38;
+    private static final int KEY_OFFSET = HEADER_PREFIX_LENGTH;
+    private static final int NONCE_OFFSET = PAYLOAD_OFFSET;
+    private static final int CIPHERTEXT_LENGTH_OFFSET = NONCE_OFFSET + NONCE_LENGTH;
+    private static final int HEADER_LENGTH = CIPHERTEXT_LENGTH_OFFSET + 4;
+    private static final int WRAPPED_KEY_LENGTH_SIZE = 2;
+    private static final int WRAPPED_HEADER_MIN_LENGTH = HEADER_LENGTH - KEY_LENGTH + WRAPPED_KEY_LENGTH_SIZE;
+
+    private final EphemeralRecord record;
+    private final DataEncryptionKey key;
+    private final byte[] keySalt;
+    private final byte[] wrappedKey;
+    private final EncryptedPayload payload;
+    private final boolean stream;
+
+    public RecordEnvelope(EphemeralRecord record, DataEncryptionKey key, EncryptedPayload payload) {
+        this(record, key, null, null, payload, false);
+    }
+
+    private RecordEnvelope(EphemeralRecord record, DataEncryptionKey key, byte[] keySalt, byte[] wrappedKey,
+                           EncryptedPayload payload, boolean stream) {
+        this.record = record;
+        this.key = key;
+        this.keySalt = keySalt;
+        this.wrappedKey = wrappedKey;
+        this.payload = payload;
+        this.stream = stream;
+    }
+
+    /**
+     * Creates an envelope for a payload encrypted under a DEK derived from a bucket key.
+     * The payload's key id is the bucket key id.
+     *
+     * @param record the record metadata
+     * @param keySalt the record's key derivation salt
+     * @param payload the encrypted payload
+     * @return the envelope
+     */
+    public static RecordEnvelope derivedKey(EphemeralRecord record, byte[] keySalt, EncryptedPayload payload) {
+        if (keySalt.length != KEY_LENGTH) {
+            throw new EfsfException("Unsupported key salt length: " + keySalt.length);
+        }
+        return new RecordEnvelope(record, null, keySalt.clone(), null, payload, false);
+    }
+
+    /**
+     * Creates an envelope for a payload whose DEK is stored wrapped under a key-encryption key.
+     *
+     * @param record the record metadata
+     * @param wrappedKey the wrapped DEK, at most 65535 bytes
+     * @param payload the encrypted payload
+     * @return the envelope
+     */
+    public static RecordEnvelope wrappedKey(EphemeralRecord record, byte[] wrappedKey, EncryptedPayload payload) {
+        if (wrappedKey.length > 0xFFFF) {
+            throw new EfsfException("Wrapped key too long: " + wrappedKey.length);
+        }
+        return new RecordEnvelope(record, null, null, wrappedKey.clone(), payload, false);
+    }
+
+    /**
+     * Gets a copy of this envelope marked as the head of a chunked stream, whose payload is the
+     * stream manifest.
+     *
+     * @return the stream head envelope
+     */
+    public RecordEnvelope asStream() {
+        return new RecordEnvelope(record, key, keySalt, wrappedKey, payload, true);
+    }
+
+    public EphemeralRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Gets the stored DEK.
+     *
+     * @return the DEK, or null if it is derived from a bucket key
+     */
+    public DataEncryptionKey getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the salt the DEK is derived with.
+     *
+     * @return the salt, or null if the DEK is stored in the envelope
+     */
+    public byte[] getKeySalt() {
+        return keySalt != null ? keySalt.clone() : null;
+    }
+
+    public boolean isDerivedKey() {
+        return keySalt != null;
+    }
+
+    /**
+     * Gets the wrapped DEK.
+     *
+     * @return the wrapped key, or null if the DEK is not stored wrapped
+     */
+    public byte[] getWrappedKey() {
+        return wrappedKey != null ? wrappedKey.clone() : null;
+    }
+
+    public boolean isWrappedKey() {
+        return wrappedKey != null;
+    }
+
+    public EncryptedPayload getPayload() {
+        return payload;
+    }
+
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * Gets the header of this envelope.
+     *
+     * @return the record metadata and key id
+     */
+    public Header getHeader() {
+        return new Header(record, payload.getKeyId(), isDerivedKey(), stream);
+    }
+
+    /**
+     * Checks whether the given bytes start with an envelope header.
+     *
+     * @param bytes the stored bytes
+     * @return true if the bytes look like a binary envelope
+     */
+    public static boolean isEnvelope(byte[] bytes) {
+        if (!hasHeader(bytes)) {
+            return false;
+        }
+        return bytes.length >= (format(bytes) == WRAPPED_KEY_VERSION ? WRAPPED_HEADER_MIN_LENGTH : HEADER_LENGTH);
+    }
+
+    /**
+     * Checks whether the given bytes start with an envelope header that {@link #readHeader} can read,
+     * whether or not the rest of the envelope follows.
+     *
+     * @param bytes the stored bytes, or a prefix of them
+     * @return true if the bytes start with a binary envelope header
+     */
+    public static boolean hasHeader(byte[] bytes) {
+        return bytes.length >= HEADER_PREFIX_LENGTH && Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Writes this envelope in binary form.
+     *
+     * @return the encoded envelope
+     */
+    public byte[] toBytes() {
+        // Views rather than copies; the ciphertext is written once, straight into the output
+        ByteBuffer ciphertext = payload.getCiphertextBuffer();
+        ByteBuffer nonce = payload.getNonceBuffer();
+        if (nonce.remaining() != NONCE_LENGTH) {
+            throw new EfsfException("Unsupported nonce length: " + nonce.remaining());
+        }
+
+        byte[] keyMaterial = key != null ? key.getBytes() : keySalt != null ? keySalt.clone() : wrappedKey.clone();
+        int keySectionLength = wrappedKey != null ? WRAPPED_KEY_LENGTH_SIZE + wrappedKey.length : KEY_LENGTH;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH - KEY_LENGTH + keySectionLength + ciphertext.remaining());
+            buffer.put(MAGIC);
+            byte version = key != null ? VERSION : keySalt != null ? DERIVED_KEY_VERSION : WRAPPED_KEY_VERSION;
+            buffer.put(stream ? (byte) (version | STREAM_FLAG) : version);
+            buffer.put((byte) record.getClassification().ordinal());
+            putUuid(buffer, record.getId());
+            buffer.putLong(record.getCreatedAt().toEpochMilli());
+            buffer.putLong(record.getExpiresAt().toEpochMilli());
+            putUuid(buffer, payload.getKeyId());
+            if (wrappedKey != null) {
+                buffer.putShort((short) wrappedKey.length);
+            }
+            buffer.put(keyMaterial);
+            buffer.put(nonce);
+            buffer.putInt(ciphertext.remaining());
+            buffer.put(ciphertext);
+            return buffer.array();
+        } finally {
+            Arrays.fill(keyMaterial, (byte) 0);
+        }
+    }
+
+    /**
+     * Reads an envelope from its binary form.
+     *
+     * <p>The payload's ciphertext is a view into {@code bytes} rather than a copy, so the caller
+     * must not modify the array while the envelope is in use.
+     *
+     * @param bytes the encoded envelope
+     * @return the decoded envelope
+     * @throws EfsfException if the bytes are not a valid envelope
+     */
+    public static RecordEnvelope fromBytes(byte[] bytes) {
+        if (!isEnvelope(bytes)) {
+            throw new EfsfException("Not a record envelope");
+        }
+
+        Header header = readHeader(bytes);
+        boolean wrapped = format(bytes) == WRAPPED_KEY_VERSION;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte[] keyMaterial = null;
+        try {
+            int keySectionLength;
+            if (wrapped) {
+                keyMaterial = new byte[Short.toUnsignedInt(buffer.getShort(KEY_OFFSET))];
+                buffer.get(KEY_OFFSET + WRAPPED_KEY_LENGTH_SIZE, keyMaterial);
+                keySectionLength = WRAPPED_KEY_LENGTH_SIZE + keyMaterial.length;
+            } else {
+                keyMaterial = new byte[KEY_LENGTH];
+                buffer.get(KEY_OFFSET, keyMaterial);
+                keySectionLength = KEY_LENGTH;
+            }
+
+            int nonceOffset = KEY_OFFSET + keySectionLength;
+            byte[] nonce = new byte[NONCE_LENGTH];
+            buffer.get(nonceOffset, nonce);
+            int ciphertextLength = buffer.getInt(nonceOffset + NONCE_LENGTH);
+            int ciphertextOffset = nonceOffset + NONCE_LENGTH + 4;
+            if (ciphertextLength != bytes.length - ciphertextOffset) {
+                throw new EfsfException("Truncated or corrupt record envelope");
+            }
+            EncryptedPayload payload = EncryptedPayload.wrap(bytes, ciphertextOffset, ciphertextLength, nonce, header.keyId());
+            RecordEnvelope envelope;
+            if (wrapped) {
+                envelope = wrappedKey(header.record(), keyMaterial, payload);
+            } else if (header.derivedKey()) {
+                envelope = derivedKey(header.record(), keyMaterial, payload);
+            } else {
+                envelope = new RecordEnvelope(
+                    header.record(),
+                    DataEncryptionKey.fromBytes(header.keyId(), keyMaterial),
+                    payload
+                );
+            }
+            return header.stream() ? envelope.asStream() : envelope;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new EfsfException("Truncated or corrupt record envelope", e);
+        } finally {
+            if (keyMaterial != null) {
+                Arrays.fill(keyMaterial, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Reads only the envelope header, without touching the key, nonce or ciphertext.
+     * Only the first {@link #HEADER_PREFIX_LENGTH} bytes are required.
+     *
+     * @param bytes the encoded envelope, or a prefix of it
+     * @return the record metadata and key id
+     * @throws EfsfException if the bytes do not start with a valid header
+     */
+    public static Header readHeader(byte[] bytes) {
+        if (!hasHeader(bytes)) {
+            throw new EfsfException("Not a record envelope");
+        }
+        byte version = format(bytes);
+        if (version != VERSION && version != DERIVED_KEY_VERSION && version != WRAPPED_KEY_VERSION) {
+            throw new EfsfException("Unsupported record envelope version: " + version);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int ordinal = bytes[CLASSIFICATION_OFFSET];
+        DataClassification[] classifications = DataClassification.values();
+        if (ordinal < 0 || ordinal >= classifications.length) {
+            throw new EfsfException("Invalid classification in record envelope: " + ordinal);
+        }
+        Instant createdAt = Instant.ofEpochMilli(buffer.getLong(CREATED_AT_OFFSET));
+        Instant expiresAt = Instant.ofEpochMilli(buffer.getLong(EXPIRES_AT_OFFSET));
+
+        EphemeralRecord record = new EphemeralRecord.Builder()
+            .id(getUuid(buffer, RECORD_ID_OFFSET))
+            .createdAt(createdAt)
+            .expiresAt(expiresAt)
+            .ttl(Duration.between(createdAt, expiresAt))
+            .classification(classifications[ordinal])
+            .build();
+        boolean stream = (bytes[VERSION_OFFSET] & STREAM_FLAG) != 0;
+        return new Header(record, getUuid(buffer, KEY_ID_OFFSET), version == DERIVED_KEY_VERSION, stream);
+    }
+
+    /**
+     * Reads the header from the legacy JSON layout without decoding the key or payload.
+     *
+     * @param stored the parsed legacy JSON document
+     * @return the record metadata and key id
+     */
+    @SuppressWarnings("unchecked")
+    public static Header readLegacyHeader(Map<String, Object> stored) {
+        Map<String, Object> recordMap = (Map<String, Object>) stored.get("record");
+        Map<String, Object> payloadMap = (Map<String, Object>) stored.get("payload");
+        return new Header(EphemeralRecord.fromMap(recordMap), (String) payloadMap.get("key_id"));
+    }
+
+    /**
+     * Builds an envelope from the legacy JSON layout ({@code record}/{@code payload}/{@code key} maps),
+     * so that records written before the binary format remain readable.
+     *
+     * @param stored the parsed legacy JSON document
+     * @return the equivalent envelope
+     */
+    @SuppressWarnings("unchecked")
+    public static RecordEnvelope fromLegacyMap(Map<String, Object> stored) {
+        Map<String, Object> recordMap = (Map<String, Object>) stored.get("record");
+        Map<String, Object> payloadMap = (Map<String, Object>) stored.get("payload");
+        EncryptedPayload payload = EncryptedPayload.fromMap(payloadMap);
+        DataEncryptionKey key = DataEncryptionKey.fromBase64(payload.getKeyId(), (String) stored.get("key"));
+        return new RecordEnvelope(EphemeralRecord.fromMap(recordMap), key, payload);
+    }
+
+    /**
+     * Gets the envelope format version, without the stream flag.
+     */
+    private static byte format(byte[] bytes) {
+        return (byte) (bytes[VERSION_OFFSET] & ~STREAM_FLAG);
+    }
+
+    private static void putUuid(ByteBuffer buffer, String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new EfsfException("Record envelope requires UUID identifiers, got: " + id, e);
+        }
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static String getUuid(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8)).toString();
+    }
+
+    /**
+     * The part of an envelope needed for expiry, existence and metadata checks.
+     *
+     * @param record the record metadata
+     * @param keyId the id of the DEK the payload is encrypted with, or of its bucket key
+     * @param derivedKey whether the DEK is derived from a bucket key rather than stored
+     * @param stream whether the record is stored as a chunked stream
+     */
+    public record Header(EphemeralRecord record, String keyId, boolean derivedKey, boolean stream) {
+
+        public Header(EphemeralRecord record, String keyId, boolean derivedKey) {
+            this(record, keyId, derivedKey, false);
+        }
+
+        public Header(EphemeralRecord record, String keyId) {
+            this(record, keyId, false, false);
+        }
+    }
+}
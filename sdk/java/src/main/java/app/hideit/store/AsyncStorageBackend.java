@@ -0,0 +1,99 @@
+package app.hideit.store;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A storage backend that can perform record operations without blocking the calling thread.
+ * EphemeralStore's async methods use these operations when the configured backend implements them,
+ * and otherwise run the blocking {@link StorageBackend} operations on the store's executor.
+ */
+public interface AsyncStorageBackend extends StorageBackend {
+
+    /**
+     * Stores a value with the specified key and TTL.
+     *
+     * @param key the key
+     * @param value the value
+     * @param ttl the time-to-live
+     * @return a stage that completes once the value is stored
+     */
+    CompletionStage<Void> setAsync(String key, String value, Duration ttl);
+
+    /**
+     * Gets a value by key.
+     *
+     * @param key the key
+     * @return a stage that completes with the value, or empty if not found
+     */
+    CompletionStage<Optional<String>> getAsync(String key);
+
+    /**
+     * Deletes a value by key.
+     *
+     * @param key the key
+     * @return a stage that completes with true if the key existed and was deleted
+     */
+    CompletionStage<Boolean> deleteAsync(String key);
+
+    /**
+     * Gets a value and deletes its key in one step, as {@link #getAndDelete}.
+     * The default implementation chains {@link #getAsync} and {@link #deleteAsync}.
+     *
+     * @param key the key
+     * @return a stage that completes with the value that was deleted, or empty if not found
+     */
+    default CompletionStage<Optional<String>> getAndDeleteAsync(String key) {
+        return getAsync(key).thenCompose(value -> value.isEmpty()
+            ? CompletableFuture.completedFuture(value)
+            : deleteAsync(key).thenApply(deleted -> deleted ? value : Optional.<String>empty()));
+    }
+
+    /**
+     * Stores a binary value with the specified key and TTL, as {@link #setBytes}.
+     * The default implementation stores it as Base64 text with {@link #setAsync}.
+     *
+     * @param key the key
+     * @param value the value
+     * @param ttl the time-to-live
+     * @return a stage that completes once the value is stored
+     */
+    default CompletionStage<Void> setBytesAsync(String key, byte[] value, Duration ttl) {
+        return setAsync(key, BinaryValues.encode(value), ttl);
+    }
+
+    /**
+     * Gets a binary value by key, as {@link #getBytes}.
+     *
+     * @param key the key
+     * @return a stage that completes with the value, or empty if not found
+     */
+    default CompletionStage<Optional<byte[]>> getBytesAsync(String key) {
+        return getAsync(key).thenApply(value -> value.map(BinaryValues::decode));
+    }
+
+    /**
+     * Gets a binary value and deletes its key in one step, as {@link #getAndDeleteBytes}.
+     *
+     * @param key the key
+     * @return a stage that completes with the value that was deleted, or empty if not found
+     */
+    default CompletionStage<Optional<byte[]>> getAndDeleteBytesAsync(String key) {
+        return getAndDeleteAsync(key).thenApply(value -> value.map(BinaryValues::decode));
+    }
+
+    /**
+     * Gets the leading bytes of a binary value and deletes its key in one step,
+     * as {@link #getAndDeleteBytesPrefix}. The default implementation returns the whole value
+     * from {@link #getAndDeleteBytesAsync}.
+     *
+     * @param key the key
+     * @param length the number of leading bytes needed
+     * @return a stage that completes with the leading bytes and value length, or empty if not found
+     */
+    default CompletionStage<Optional<ValuePrefix>> getAndDeleteBytesPrefixAsync(String key, int length) {
+        return getAndDeleteBytesAsync(key).thenApply(value -> value.map(bytes -> new ValuePrefix(bytes, bytes.length)));
+    }
+}
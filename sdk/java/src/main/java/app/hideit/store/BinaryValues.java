@@ -0,0 +1,39 @@
+package app.hideit.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Conversions between the text and binary views of a stored value, for backends
+ * (or default methods) that hold a value in one form and are asked for the other.
+ */
+final class BinaryValues {
+
+    private BinaryValues() {}
+
+    /**
+     * Gets the text view of a binary value.
+     *
+     * @param value the binary value
+     * @return the value as Base64
+     */
+    static String encode(byte[] value) {
+        return Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * Gets the binary view of a text value: the Base64-decoded bytes if the text is Base64
+     * (as {@link #encode} produces), and otherwise the text's UTF-8 bytes, so that text
+     * values written before a backend supported binary values stay readable.
+     *
+     * @param value the text value
+     * @return the value as bytes
+     */
+    static byte[] decode(String value) {
+        try {
+            return Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package app.hideit.store;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background expiry for in-process backends. Writes are indexed in a hierarchical
+ * {@link TimingWheel}, so each tick does work proportional to the entries that expired
+ * rather than to the size of the store, and at most {@code maxReapPerTick} removals
+ * per tick keep pauses bounded.
+ *
+ * <p>The index holds only keys and deadlines, never the entries themselves, so values that are
+ * deleted or overwritten become garbage right away rather than at their old deadline.
+ */
+final class ExpiryReaper implements AutoCloseable {
+
+    static final int DEFAULT_MAX_REAP_PER_TICK = 10_000;
+
+    /**
+     * Removes an expired entry, but only if the key still maps to an entry with that expiry,
+     * i.e. it was not deleted or rewritten with a different TTL since it was scheduled.
+     */
+    @FunctionalInterface
+    interface Remover {
+        boolean removeIfCurrent(String key, long expiresAtMillis);
+    }
+
+    private final Queue<Scheduled> inbox;
+    private final TimingWheel<Scheduled> wheel;
+    private final ArrayDeque<Scheduled> backlog;
+    private final ScheduledExecutorService executor;
+    private final int maxReapPerTick;
+    private final Remover remover;
+
+    // Statistics
+    private final AtomicLong reapedTotal = new AtomicLong(0);
+    private volatile int reapedLastTick;
+    private volatile int backlogSize;
+    private volatile long lagMillis;
+
+    ExpiryReaper(String name, Duration tick, int maxReapPerTick, Remover remover) {
+        if (maxReapPerTick <= 0) {
+            throw new IllegalArgumentException("maxReapPerTick must be positive");
+        }
+        long tickMillis = tick.toMillis();
+        this.inbox = new ConcurrentLinkedQueue<>();
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        this.backlog = new ArrayDeque<>();
+        this.maxReapPerTick = maxReapPerTick;
+        this.remover = remover;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name(name).daemon(true).factory());
+        this.executor.scheduleAtFixedRate(this::reap, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules the entry written under a key for removal once {@code expiresAtMillis} has passed.
+     * Safe to call from any thread.
+     *
+     * @param key the key
+     * @param expiresAtMillis the entry's expiry in epoch millis
+     */
+    void schedule(String key, long expiresAtMillis) {
+        inbox.add(new Scheduled(key, expiresAtMillis));
+    }
+
+    /**
+     * Gets reaper statistics: {@code scheduled} (entries in the expiry index),
+     * {@code backlog} (expired entries not yet removed), {@code lag_ms} (how long the oldest
+     * of those has been expired), {@code reaped_last_tick} and {@code reaped_total}.
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> stats() {
+        return Map.of(
+            "scheduled", inbox.size() + wheel.size(),
+            "backlog", backlogSize,
+            "lag_ms", lagMillis,
+            "reaped_last_tick", reapedLastTick,
+            "reaped_total", reapedTotal.get()
+        );
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One reaper tick. Overwritten or deleted entries leave their key in the index until the
+     * old deadline and are skipped then, since removal is conditional on the expiry still matching.
+     */
+    private void reap() {
+        long now = System.currentTimeMillis();
+
+        Scheduled scheduled;
+        while ((scheduled = inbox.poll()) != null) {
+            // Entries count as expired strictly after expiresAt
+            wheel.add(scheduled, scheduled.expiresAtMillis() + 1);
+        }
+        wheel.advance(now, backlog);
+
+        int reaped = 0;
+        for (int i = 0; i < maxReapPerTick && (scheduled = backlog.poll()) != null; i++) {
+            if (remover.removeIfCurrent(scheduled.key(), scheduled.expiresAtMillis())) {
+                reaped++;
+            }
+        }
+
+        reapedLastTick = reaped;
+        reapedTotal.addAndGet(reaped);
+        backlogSize = backlog.size();
+        Scheduled oldest = backlog.peek();
+        lagMillis = oldest != null ? Math.max(0, now - oldest.expiresAtMillis()) : 0;
+    }
+
+    private record Scheduled(String key, long expiresAtMillis) {}
+}
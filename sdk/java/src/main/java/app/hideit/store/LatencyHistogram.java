@@ -0,0 +1,82 @@
+package app.hideit.store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets, from 1 µs to about 1 s
+ * plus an overflow bucket. Cheap enough to record on every operation.
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = 22;
+
+    private final LongAdder[] counts;
+    private final LongAdder totalMicros = new LongAdder();
+
+    LatencyHistogram() {
+        this.counts = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one observation.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        totalMicros.add(micros);
+        // Bucket i holds latencies up to 2^i µs
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts[Math.min(bucket, BUCKETS - 1)].increment();
+    }
+
+    /**
+     * Gets a snapshot: {@code count}, {@code mean_us}, {@code p50_us}, {@code p99_us} and
+     * {@code max_us} (bucket upper bounds, so accurate to a factor of two), and {@code buckets},
+     * the count per bucket keyed by its upper bound ({@code "le_<N>us"}, or {@code "le_inf"}).
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.put(i == BUCKETS - 1 ? "le_inf" : "le_" + (1L << i) + "us", snapshot[i]);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("mean_us", count == 0 ? 0 : totalMicros.sum() / count);
+        result.put("p50_us", percentile(snapshot, count, 0.50));
+        result.put("p99_us", percentile(snapshot, count, 0.99));
+        result.put("max_us", percentile(snapshot, count, 1.0));
+        result.put("buckets", buckets);
+        return result;
+    }
+
+    private static long percentile(long[] snapshot, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,428 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking Redis storage backend built on Lettuce.
+ *
+ * <p>Commands are multiplexed over a few long-lived connections, and the async operations return
+ * as soon as a command is written, completing when its reply arrives. No thread waits on the
+ * network, so one JVM can keep thousands of EphemeralStore operations in flight on a handful of
+ * connections. The blocking {@link StorageBackend} operations wait on the same commands.
+ *
+ * <p>Values are stored as raw bytes; text values as their UTF-8 bytes. The key and value layout
+ * matches {@link RedisBackend}'s default layout, so both can serve the same records.
+ * Requires {@code io.lettuce:lettuce-core} on the classpath.
+ */
+public final class LettuceRedisBackend implements AsyncStorageBackend {
+
+    private final RedisClient client;
+    private final boolean ownsClient;
+    private final List<StatefulRedisConnection<String, byte[]>> connections;
+    private final AtomicInteger next = new AtomicInteger();
+    private final String keyPrefix;
+
+    private LettuceRedisBackend(Builder builder) {
+        if (builder.connections <= 0) {
+            throw new IllegalArgumentException("Connections must be positive");
+        }
+        if (builder.client != null) {
+            this.client = builder.client;
+            this.ownsClient = false;
+        } else if (builder.uri != null) {
+            this.client = RedisClient.create(builder.uri);
+            this.ownsClient = true;
+        } else {
+            throw new IllegalArgumentException("Either a URI or a RedisClient is required");
+        }
+        this.keyPrefix = builder.keyPrefix != null ? builder.keyPrefix : "";
+
+        RedisCodec<String, byte[]> codec = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+        this.connections = new ArrayList<>(builder.connections);
+        try {
+            for (int i = 0; i < builder.connections; i++) {
+                connections.add(client.connect(codec));
+            }
+        } catch (Exception e) {
+            close();
+            throw new BackendException("Failed to connect to Redis: " + builder.uri, e);
+        }
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletionStage<Void> setAsync(String key, String value, Duration ttl) {
+        return setBytesAsync(key, value.getBytes(StandardCharsets.UTF_8), ttl);
+    }
+
+    @Override
+    public CompletionStage<Optional<String>> getAsync(String key) {
+        return getBytesAsync(key).thenApply(value -> value.map(LettuceRedisBackend::text));
+    }
+
+    @Override
+    public CompletionStage<Boolean> deleteAsync(String key) {
+        return wrap("Redis DEL failed for key: " + key, commands().del(keyPrefix + key))
+            .thenApply(deleted -> deleted > 0);
+    }
+
+    /**
+     * Gets and deletes the value with a single GETDEL command (Redis 6.2+),
+     * which is atomic on the server.
+     */
+    @Override
+    public CompletionStage<Optional<String>> getAndDeleteAsync(String key) {
+        return getAndDeleteBytesAsync(key).thenApply(value -> value.map(LettuceRedisBackend::text));
+    }
+
+    @Override
+    public CompletionStage<Void> setBytesAsync(String key, byte[] value, Duration ttl) {
+        return wrap("Redis SET failed for key: " + key, commands().setex(keyPrefix + key, toSeconds(ttl), value))
+            .thenApply(reply -> null);
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getBytesAsync(String key) {
+        return wrap("Redis GET failed for key: " + key, commands().get(keyPrefix + key))
+            .thenApply(Optional::ofNullable);
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getAndDeleteBytesAsync(String key) {
+        return wrap("Redis GETDEL failed for key: " + key, commands().getdel(keyPrefix + key))
+            .thenApply(Optional::ofNullable);
+    }
+
+    /**
+     * Checks whether a key exists, without blocking.
+     *
+     * @param key the key
+     * @return a stage that completes with true if the key exists
+     */
+    public CompletionStage<Boolean> existsAsync(String key) {
+        return wrap("Redis EXISTS failed for key: " + key, commands().exists(keyPrefix + key))
+            .thenApply(count -> count > 0);
+    }
+
+    /**
+     * Gets the remaining TTL for a key, without blocking.
+     *
+     * @param key the key
+     * @return a stage that completes with the remaining TTL, or empty if the key doesn't exist
+     */
+    public CompletionStage<Optional<Duration>> ttlAsync(String key) {
+        return wrap("Redis TTL failed for key: " + key, commands().ttl(keyPrefix + key))
+            .thenApply(seconds -> seconds < 0 ? Optional.empty() : Optional.of(Duration.ofSeconds(seconds)));
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        await(setAsync(key, value, ttl));
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        return await(getAsync(key));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return await(deleteAsync(key));
+    }
+
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        return await(getAndDeleteAsync(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return await(existsAsync(key));
+    }
+
+    @Override
+    public Optional<Duration> ttl(String key) {
+        return await(ttlAsync(key));
+    }
+
+    @Override
+    public void setBytes(String key, byte[] value, Duration ttl) {
+        await(setBytesAsync(key, value, ttl));
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String key) {
+        return await(getBytesAsync(key));
+    }
+
+    @Override
+    public Optional<byte[]> getAndDeleteBytes(String key) {
+        return await(getAndDeleteBytesAsync(key));
+    }
+
+    /**
+     * Stores all entries with SETEX commands written back to back on one connection,
+     * then waits for all replies.
+     */
+    @Override
+    public void setAll(Map<String, TimedValue> entries) {
+        Map<String, TimedBytes> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+            TimedValue timed = entry.getValue();
+            encoded.put(entry.getKey(), new TimedBytes(timed.value().getBytes(StandardCharsets.UTF_8), timed.ttl()));
+        }
+        setAllBytes(encoded);
+    }
+
+    /**
+     * Gets all values with a single MGET command.
+     */
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> result = new LinkedHashMap<>();
+        getAllBytes(keys).forEach((key, value) -> result.put(key, text(value)));
+        return result;
+    }
+
+    /**
+     * Deletes all keys with a single multi-key DEL command.
+     */
+    @Override
+    public int deleteAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        String[] fullKeys = keys.stream().map(key -> keyPrefix + key).toArray(String[]::new);
+        return (int) (long) await(wrap("Redis DEL failed for " + keys.size() + " keys", commands().del(fullKeys)));
+    }
+
+    @Override
+    public void setAllBytes(Map<String, TimedBytes> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        RedisAsyncCommands<String, byte[]> commands = commands();
+        List<CompletableFuture<String>> replies = new ArrayList<>(entries.size());
+        for (Map.Entry<String, TimedBytes> entry : entries.entrySet()) {
+            TimedBytes timed = entry.getValue();
+            replies.add(commands.setex(keyPrefix + entry.getKey(), toSeconds(timed.ttl()), timed.value())
+                .toCompletableFuture());
+        }
+        await(wrap("Redis pipelined SET failed for " + entries.size() + " keys",
+            CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new))));
+    }
+
+    /**
+     * Gets all binary values with a single MGET command.
+     */
+    @Override
+    public Map<String, byte[]> getAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        String[] fullKeys = keyList.stream().map(key -> keyPrefix + key).toArray(String[]::new);
+        List<KeyValue<String, byte[]>> values = await(wrap("Redis MGET failed for " + keys.size() + " keys",
+            commands().mget(fullKeys)));
+        for (int i = 0; i < keyList.size(); i++) {
+            KeyValue<String, byte[]> value = values.get(i);
+            if (value.hasValue()) {
+                result.put(keyList.get(i), value.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets and deletes all binary values with GETDEL commands, pipelined on the connection.
+     * Each key is read and deleted atomically.
+     */
+    @Override
+    public Map<String, byte[]> getAndDeleteAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        RedisAsyncCommands<String, byte[]> commands = commands();
+        List<String> keyList = new ArrayList<>(keys);
+        List<CompletableFuture<byte[]>> replies = new ArrayList<>(keyList.size());
+        for (String key : keyList) {
+            replies.add(commands.getdel(keyPrefix + key).toCompletableFuture());
+        }
+        await(wrap("Redis pipelined GETDEL failed for " + keys.size() + " keys",
+            CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new))));
+        for (int i = 0; i < keyList.size(); i++) {
+            byte[] value = replies.get(i).join();
+            if (value != null) {
+                result.put(keyList.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getBackendName() {
+        return "redis-lettuce";
+    }
+
+    @Override
+    public void close() {
+        for (StatefulRedisConnection<String, byte[]> connection : connections) {
+            connection.close();
+        }
+        if (ownsClient) {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Checks if the Redis connection is healthy.
+     *
+     * @return true if the connection is healthy
+     */
+    public boolean isHealthy() {
+        try {
+            return "PONG".equals(await(wrap("Redis PING failed", commands().ping())));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Picks a connection round-robin; each one multiplexes any number of concurrent commands.
+     */
+    private RedisAsyncCommands<String, byte[]> commands() {
+        int index = Math.floorMod(next.getAndIncrement(), connections.size());
+        return connections.get(index).async();
+    }
+
+    /**
+     * Fails the stage with a {@link BackendException} if the command fails.
+     */
+    private static <T> CompletableFuture<T> wrap(String failure, CompletionStage<T> reply) {
+        return reply.toCompletableFuture().handle((value, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                throw new BackendException(failure, cause);
+            }
+            return value;
+        });
+    }
+
+    private static <T> T await(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BackendException backendException) {
+                throw backendException;
+            }
+            throw new BackendException("Redis command failed", e.getCause());
+        }
+    }
+
+    private static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static long toSeconds(Duration ttl) {
+        long seconds = ttl.getSeconds();
+        return seconds <= 0 ? 1 : seconds; // Minimum 1 second TTL
+    }
+
+    /**
+     * Builder for LettuceRedisBackend.
+     */
+    public static final class Builder {
+        private String uri;
+        private RedisClient client;
+        private String keyPrefix = "efsf:";
+        private int connections = 2;
+
+        private Builder() {}
+
+        /**
+         * Sets the Redis URI to connect to.
+         *
+         * @param uri the Redis URI (e.g., "redis://localhost:6379")
+         * @return this builder
+         */
+        public Builder uri(String uri) {
+            this.uri = uri;
+            return this;
+        }
+
+        /**
+         * Uses an existing RedisClient, e.g. one with custom client options or shared event loops.
+         * The backend closes its connections but leaves the client running.
+         *
+         * @param client the RedisClient
+         * @return this builder
+         */
+        public Builder client(RedisClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Sets the prefix for all keys (default {@code "efsf:"}).
+         *
+         * @param keyPrefix the key prefix
+         * @return this builder
+         */
+        public Builder keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * Sets how many multiplexed connections to open (default 2). Commands are spread across them
+         * round-robin; a single connection already carries any number of in-flight commands.
+         *
+         * @param connections the number of connections
+         * @return this builder
+         */
+        public Builder connections(int connections) {
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * Builds the backend and opens its connections.
+         *
+         * @return the backend
+         */
+        public LettuceRedisBackend build() {
+            return new LettuceRedisBackend(this);
+        }
+    }
+}
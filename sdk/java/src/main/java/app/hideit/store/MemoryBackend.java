@@ -2,26 +2,63 @@ package app.hideit.store;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * In-memory storage backend with lazy expiration.
  * Suitable for testing and single-node deployments.
+ * Operations never block, so the async variants complete immediately.
+ * Binary values are held as the arrays passed in and copied on the way out.
+ *
+ * <p>Optionally, a background {@link ExpiryReaper} removes expired entries proactively,
+ * doing work proportional to the entries that expired rather than to the size of the store.
  */
-public final class MemoryBackend implements StorageBackend {
+public final class MemoryBackend implements AsyncStorageBackend {
 
     private final Map<String, Entry> data;
 
+    // Null when only lazy expiration is used
+    private final ExpiryReaper reaper;
+
+    /**
+     * Creates a memory backend with lazy expiration only.
+     */
     public MemoryBackend() {
         this.data = new ConcurrentHashMap<>();
+        this.reaper = null;
+    }
+
+    /**
+     * Creates a memory backend with a background expiry reaper.
+     *
+     * @param reaperTick how often the reaper runs; also the granularity of the expiry index
+     */
+    public MemoryBackend(Duration reaperTick) {
+        this(reaperTick, ExpiryReaper.DEFAULT_MAX_REAP_PER_TICK);
+    }
+
+    /**
+     * Creates a memory backend with a background expiry reaper.
+     *
+     * @param reaperTick how often the reaper runs; also the granularity of the expiry index
+     * @param maxReapPerTick the maximum number of expired entries handled per tick;
+     *                       the rest carries over to the next tick
+     */
+    public MemoryBackend(Duration reaperTick, int maxReapPerTick) {
+        this.data = new ConcurrentHashMap<>();
+        this.reaper = new ExpiryReaper("efsf-memory-reaper", reaperTick, maxReapPerTick, this::removeIfCurrent);
     }
 
     @Override
     public void set(String key, String value, Duration ttl) {
         Instant expiresAt = Instant.now().plus(ttl);
-        data.put(key, new Entry(value, expiresAt));
+        put(key, new Entry(value, expiresAt));
     }
 
     @Override
@@ -32,7 +69,24 @@ public final class MemoryBackend implements StorageBackend {
         }
         // Return the value even if expired - let the caller handle expiration
         // This allows EphemeralStore to distinguish between missing and expired records
-        return Optional.of(entry.value());
+        return Optional.of(entry.text());
+    }
+
+    @Override
+    public void setBytes(String key, byte[] value, Duration ttl) {
+        put(key, new Entry(value, Instant.now().plus(ttl)));
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String key) {
+        Entry entry = data.get(key);
+        return entry != null ? Optional.of(entry.bytes()) : Optional.empty();
+    }
+
+    @Override
+    public Optional<byte[]> getAndDeleteBytes(String key) {
+        Entry entry = data.remove(key);
+        return entry != null ? Optional.of(entry.bytes()) : Optional.empty();
     }
 
     @Override
@@ -40,6 +94,102 @@ public final class MemoryBackend implements StorageBackend {
         return data.remove(key) != null;
     }
 
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        Entry entry = data.remove(key);
+        return entry != null ? Optional.of(entry.text()) : Optional.empty();
+    }
+
+    @Override
+    public CompletionStage<Void> setAsync(String key, String value, Duration ttl) {
+        set(key, value, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Optional<String>> getAsync(String key) {
+        return CompletableFuture.completedFuture(get(key));
+    }
+
+    @Override
+    public CompletionStage<Boolean> deleteAsync(String key) {
+        return CompletableFuture.completedFuture(delete(key));
+    }
+
+    @Override
+    public CompletionStage<Optional<String>> getAndDeleteAsync(String key) {
+        return CompletableFuture.completedFuture(getAndDelete(key));
+    }
+
+    @Override
+    public CompletionStage<Void> setBytesAsync(String key, byte[] value, Duration ttl) {
+        setBytes(key, value, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getBytesAsync(String key) {
+        return CompletableFuture.completedFuture(getBytes(key));
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getAndDeleteBytesAsync(String key) {
+        return CompletableFuture.completedFuture(getAndDeleteBytes(key));
+    }
+
+    @Override
+    public void setAll(Map<String, TimedValue> entries) {
+        Instant now = Instant.now();
+        for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+            TimedValue timed = entry.getValue();
+            put(entry.getKey(), new Entry(timed.value(), now.plus(timed.ttl())));
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            Entry entry = data.get(key);
+            if (entry != null) {
+                result.put(key, entry.text());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void setAllBytes(Map<String, TimedBytes> entries) {
+        Instant now = Instant.now();
+        for (Map.Entry<String, TimedBytes> entry : entries.entrySet()) {
+            TimedBytes timed = entry.getValue();
+            put(entry.getKey(), new Entry(timed.value(), now.plus(timed.ttl())));
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> getAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            Entry entry = data.get(key);
+            if (entry != null) {
+                result.put(key, entry.bytes());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int deleteAll(Collection<String> keys) {
+        int deleted = 0;
+        for (String key : keys) {
+            if (data.remove(key) != null) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
     @Override
     public boolean exists(String key) {
         Entry entry = data.get(key);
@@ -74,6 +224,9 @@ public final class MemoryBackend implements StorageBackend {
 
     @Override
     public void close() {
+        if (reaper != null) {
+            reaper.close();
+        }
         data.clear();
     }
 
@@ -93,10 +246,11 @@ public final class MemoryBackend implements StorageBackend {
      */
     public int cleanup() {
         int removed = 0;
+        Instant now = Instant.now();
         var iterator = data.entrySet().iterator();
         while (iterator.hasNext()) {
             var entry = iterator.next();
-            if (isExpired(entry.getValue())) {
+            if (now.isAfter(entry.getValue().expiresAt())) {
                 iterator.remove();
                 removed++;
             }
@@ -104,9 +258,46 @@ public final class MemoryBackend implements StorageBackend {
         return removed;
     }
 
+    /**
+     * Gets expiry reaper statistics: {@code scheduled} (entries in the expiry index),
+     * {@code backlog} (expired entries not yet removed), {@code lag_ms} (how long the oldest
+     * of those has been expired), {@code reaped_last_tick} and {@code reaped_total}.
+     *
+     * @return a map of statistics, empty if the reaper is disabled
+     */
+    public Map<String, Object> getReaperStats() {
+        return reaper != null ? reaper.stats() : Map.of();
+    }
+
+    private void put(String key, Entry entry) {
+        data.put(key, entry);
+        if (reaper != null) {
+            reaper.schedule(key, entry.expiresAt().toEpochMilli());
+        }
+    }
+
+    private boolean removeIfCurrent(String key, long expiresAtMillis) {
+        Entry entry = data.get(key);
+        return entry != null && entry.expiresAt().toEpochMilli() == expiresAtMillis
+            && data.remove(key, entry);
+    }
+
     private boolean isExpired(Entry entry) {
         return Instant.now().isAfter(entry.expiresAt());
     }
 
-    private record Entry(String value, Instant expiresAt) {}
+    /**
+     * A stored value, held as the String or byte[] it was written as.
+     */
+    private record Entry(Object value, Instant expiresAt) {
+
+        String text() {
+            return value instanceof byte[] bytes ? BinaryValues.encode(bytes) : (String) value;
+        }
+
+        byte[] bytes() {
+            return value instanceof byte[] bytes ? bytes.clone() : BinaryValues.decode((String) value);
+        }
+    }
+
 }
@@ -0,0 +1,184 @@
+package app.hideit.store;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local LRU cache of stored values in front of a remote backend, bounded by a byte budget.
+ *
+ * <p>The cache only serves and admits values while it is {@linkplain #setActive active}, i.e. while
+ * an invalidation feed is connected; deactivating it drops everything, since invalidations may be
+ * missed. Each entry also expires with the stored value's own TTL.
+ *
+ * <p>Fills are two-phase so that an invalidation racing with a remote read wins: {@link #beginLoad}
+ * registers a token before the read, {@link #completeLoad} only admits the value if no invalidation
+ * for the key arrived in between. Evicted and invalidated values are zeroized.
+ */
+final class NearCache {
+
+    private final long maxBytes;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Object> loads = new LinkedHashMap<>();
+    private long bytes;
+
+    private volatile boolean active;
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    NearCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Near cache size must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a copy of a cached value.
+     *
+     * @param key the key
+     * @return the value, or empty on a miss or while inactive
+     */
+    Optional<byte[]> get(String key) {
+        if (!active) {
+            misses.increment();
+            return Optional.empty();
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtMillis() <= System.currentTimeMillis()) {
+                release(entries.remove(key));
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(entry.value().clone());
+        }
+    }
+
+    /**
+     * Registers a remote read of a key that may be admitted to the cache.
+     *
+     * @param key the key
+     * @return a token for {@link #completeLoad}, or null if the cache is inactive
+     */
+    Object beginLoad(String key) {
+        if (!active) {
+            return null;
+        }
+        Object token = new Object();
+        synchronized (this) {
+            loads.put(key, token);
+        }
+        return token;
+    }
+
+    /**
+     * Admits the result of a remote read, unless the key was invalidated since {@link #beginLoad}.
+     * Must be called for every non-null token, with a null value if the read failed or found nothing.
+     *
+     * @param key the key
+     * @param token the token from {@link #beginLoad}
+     * @param value the value read, or null
+     * @param ttlMillis the value's remaining TTL; values without a positive TTL are not cached
+     */
+    void completeLoad(String key, Object token, byte[] value, long ttlMillis) {
+        if (token == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!loads.remove(key, token) || value == null || ttlMillis <= 0 || value.length > maxBytes || !active) {
+                return;
+            }
+            release(entries.put(key, new Entry(value.clone(), System.currentTimeMillis() + ttlMillis)));
+            bytes += value.length;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                release(evicted);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops a key after it changed or was deleted remotely.
+     *
+     * @param key the key
+     */
+    void invalidate(String key) {
+        synchronized (this) {
+            loads.remove(key);
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                release(entry);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Activates or deactivates the cache; either way, everything cached so far is dropped.
+     *
+     * @param active whether invalidations are currently being received
+     */
+    void setActive(boolean active) {
+        synchronized (this) {
+            this.active = active;
+            loads.clear();
+            for (Entry entry : entries.values()) {
+                release(entry);
+            }
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Gets cache statistics: {@code hits}, {@code misses}, {@code invalidations} (entries dropped
+     * because the value changed remotely), {@code evictions} (dropped for space), {@code expirations},
+     * {@code entries}, {@code bytes}, {@code max_bytes} and {@code active}.
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> stats() {
+        synchronized (this) {
+            return Map.of(
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "invalidations", invalidations.sum(),
+                "evictions", evictions.sum(),
+                "expirations", expirations.sum(),
+                "entries", entries.size(),
+                "bytes", bytes,
+                "max_bytes", maxBytes,
+                "active", active
+            );
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry != null) {
+            bytes -= entry.value().length;
+            Arrays.fill(entry.value(), (byte) 0);
+        }
+    }
+
+    private record Entry(byte[] value, long expiresAtMillis) {}
+}
@@ -0,0 +1,890 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory storage backend that keeps keys and values outside the Java heap.
+ *
+ * <p>Each entry's key and value are copied together into a block of a direct-memory slab,
+ * carved into power-of-two size classes (64 bytes up to the slab size); larger entries get a
+ * dedicated direct buffer. The heap only holds an open-addressing index made of primitive
+ * arrays, one hash, packed location, pair of lengths and expiry per slot (28 bytes), so stored
+ * entries add no objects for the collector to trace or copy. An entry's bytes are overwritten
+ * with zeros as soon as it is deleted, overwritten or found expired, and freed blocks are
+ * reused for later writes.
+ *
+ * <p>Expiration is lazy by default, as in {@link MemoryBackend}. A background reaper can be
+ * enabled to zeroize expired entries proactively; unlike {@link MemoryBackend}'s, it keeps no
+ * per-entry state but sweeps a bounded slice of the index each tick. Operations never block on
+ * I/O, so the async variants complete immediately.
+ */
+public final class OffHeapMemoryBackend implements AsyncStorageBackend {
+
+    public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    public static final long DEFAULT_MAX_MEMORY = 256L << 20;
+
+    private static final int MIN_BLOCK_SIZE = 64;
+    private static final byte[] ZEROS = new byte[4096];
+
+    // The index is split into independently locked segments, picked by the top bits of the hash
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final int SLOT_BYTES = Integer.BYTES + 3 * Long.BYTES;
+
+    // Index slots the reaper examines per tick
+    private static final int SWEEP_SLOTS_PER_TICK = 1 << 16;
+
+    // Packed locations hold the size class + 1 above bit 33, the binary flag in bit 32 and the
+    // block (or large buffer id) in the low 32 bits, so a live location is never 0 or -1
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    private final Segment[] segments;
+    private final SizeClass[] sizeClasses;
+    private final LargeBuffers large;
+    private final int slabSize;
+    private final long maxMemory;
+
+    // Null when only lazy expiration is used
+    private final ScheduledExecutorService reaper;
+    private final int maxReapPerTick;
+
+    // Reaper sweep position, only touched by the reaper thread
+    private int sweepSegment;
+    private int sweepSlot;
+    private long passStartedMillis;
+
+    // Statistics
+    private final AtomicLong allocatedBytes = new AtomicLong(0);
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final AtomicLong reapedTotal = new AtomicLong(0);
+    private volatile int reapedLastTick;
+    private volatile long passMillis;
+
+    /**
+     * Creates an off-heap backend with default slab size, memory limit and lazy expiration.
+     */
+    public OffHeapMemoryBackend() {
+        this(builder());
+    }
+
+    private OffHeapMemoryBackend(Builder builder) {
+        if (builder.slabSize < MIN_BLOCK_SIZE || Integer.bitCount(builder.slabSize) != 1) {
+            throw new IllegalArgumentException("Slab size must be a power of two of at least " + MIN_BLOCK_SIZE);
+        }
+        if (builder.maxMemory < builder.slabSize) {
+            throw new IllegalArgumentException("Max memory must be at least one slab");
+        }
+        if (builder.maxReapPerTick <= 0) {
+            throw new IllegalArgumentException("maxReapPerTick must be positive");
+        }
+        this.slabSize = builder.slabSize;
+        this.maxMemory = builder.maxMemory;
+        this.maxReapPerTick = builder.maxReapPerTick;
+
+        this.segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+
+        int classCount = Integer.numberOfTrailingZeros(slabSize) - Integer.numberOfTrailingZeros(MIN_BLOCK_SIZE) + 1;
+        this.sizeClasses = new SizeClass[classCount];
+        for (int i = 0; i < classCount; i++) {
+            sizeClasses[i] = new SizeClass(MIN_BLOCK_SIZE << i);
+        }
+        this.large = new LargeBuffers();
+
+        if (builder.reaperTick == null) {
+            this.reaper = null;
+        } else {
+            long tickMillis = builder.reaperTick.toMillis();
+            this.passStartedMillis = System.currentTimeMillis();
+            this.reaper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("efsf-offheap-reaper").daemon(true).factory());
+            this.reaper.scheduleAtFixedRate(this::reap, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        try {
+            store(key, bytes, ttl, false);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        // Return the value even if expired - let the caller handle expiration,
+        // as MemoryBackend does
+        return Optional.ofNullable(read(key, false)).map(OffHeapMemoryBackend::toText);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(hash, keyBytes);
+            if (slot < 0) {
+                return false;
+            }
+            segment.removeAt(slot);
+            segment.compactIfNeeded();
+            return true;
+        }
+    }
+
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        return Optional.ofNullable(read(key, true)).map(OffHeapMemoryBackend::toText);
+    }
+
+    /**
+     * Copies the value into off-heap memory; the array itself is not retained.
+     */
+    @Override
+    public void setBytes(String key, byte[] value, Duration ttl) {
+        store(key, value, ttl, true);
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String key) {
+        return Optional.ofNullable(read(key, false)).map(OffHeapMemoryBackend::toBinary);
+    }
+
+    @Override
+    public Optional<byte[]> getAndDeleteBytes(String key) {
+        return Optional.ofNullable(read(key, true)).map(OffHeapMemoryBackend::toBinary);
+    }
+
+    @Override
+    public CompletionStage<Void> setAsync(String key, String value, Duration ttl) {
+        set(key, value, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Optional<String>> getAsync(String key) {
+        return CompletableFuture.completedFuture(get(key));
+    }
+
+    @Override
+    public CompletionStage<Boolean> deleteAsync(String key) {
+        return CompletableFuture.completedFuture(delete(key));
+    }
+
+    @Override
+    public CompletionStage<Optional<String>> getAndDeleteAsync(String key) {
+        return CompletableFuture.completedFuture(getAndDelete(key));
+    }
+
+    @Override
+    public CompletionStage<Void> setBytesAsync(String key, byte[] value, Duration ttl) {
+        setBytes(key, value, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getBytesAsync(String key) {
+        return CompletableFuture.completedFuture(getBytes(key));
+    }
+
+    @Override
+    public CompletionStage<Optional<byte[]>> getAndDeleteBytesAsync(String key) {
+        return CompletableFuture.completedFuture(getAndDeleteBytes(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return ttl(key).isPresent();
+    }
+
+    @Override
+    public Optional<Duration> ttl(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long now = System.currentTimeMillis();
+        synchronized (segment) {
+            int slot = segment.find(hash, keyBytes);
+            if (slot < 0) {
+                return Optional.empty();
+            }
+            if (segment.isExpired(slot, now)) {
+                segment.removeAt(slot);
+                segment.compactIfNeeded();
+                return Optional.empty();
+            }
+            return Optional.of(Duration.ofMillis(Math.max(0, segment.expiries[slot] - now)));
+        }
+    }
+
+    @Override
+    public String getBackendName() {
+        return "offheap-memory";
+    }
+
+    /**
+     * Zeroizes every stored entry and drops the slabs. The direct memory itself is returned
+     * when the buffers are garbage collected.
+     */
+    @Override
+    public void close() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.capacity(); slot++) {
+                    if (segment.isLive(slot)) {
+                        segment.removeAt(slot);
+                    }
+                }
+                segment.allocate(INITIAL_SEGMENT_CAPACITY);
+            }
+        }
+        for (SizeClass sizeClass : sizeClasses) {
+            synchronized (sizeClass) {
+                sizeClass.slabs.clear();
+                sizeClass.free.clear();
+                sizeClass.carved = 0;
+            }
+        }
+        allocatedBytes.set(0);
+    }
+
+    /**
+     * Gets the number of entries (including potentially expired ones).
+     *
+     * @return the entry count
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.count;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes and zeroizes all expired entries.
+     *
+     * @return the number of entries removed
+     */
+    public int cleanup() {
+        int removed = 0;
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.capacity(); slot++) {
+                    if (segment.isExpired(slot, now)) {
+                        segment.removeAt(slot);
+                        removed++;
+                    }
+                }
+                segment.compactIfNeeded();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets off-heap memory statistics: {@code entries}, {@code used_bytes} (key and value bytes
+     * stored), {@code allocated_bytes} (direct memory reserved for slabs and large entries),
+     * {@code max_bytes}, {@code slabs} and {@code index_bytes} (heap taken by the index arrays).
+     *
+     * @return a map of statistics
+     */
+    public Map<String, Object> getMemoryStats() {
+        int slabs = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            synchronized (sizeClass) {
+                slabs += sizeClass.slabs.size();
+            }
+        }
+        int entries = 0;
+        long indexBytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.count;
+                indexBytes += (long) segment.capacity() * SLOT_BYTES;
+            }
+        }
+        return Map.of(
+            "entries", entries,
+            "used_bytes", usedBytes.get(),
+            "allocated_bytes", allocatedBytes.get(),
+            "max_bytes", maxMemory,
+            "slabs", slabs,
+            "index_bytes", indexBytes
+        );
+    }
+
+    /**
+     * Gets expiry reaper statistics: {@code reaped_last_tick}, {@code reaped_total} and
+     * {@code pass_ms}, how long the last full sweep of the index took, which bounds how long
+     * an expired entry can go unreaped.
+     *
+     * @return a map of statistics, empty if the reaper is disabled
+     */
+    public Map<String, Object> getReaperStats() {
+        if (reaper == null) {
+            return Map.of();
+        }
+        return Map.of(
+            "reaped_last_tick", reapedLastTick,
+            "reaped_total", reapedTotal.get(),
+            "pass_ms", passMillis
+        );
+    }
+
+    /**
+     * Counts the non-zero bytes across all slabs, so tests can check that freed
+     * blocks were zeroized.
+     */
+    long countNonZeroSlabBytes() {
+        long count = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            synchronized (sizeClass) {
+                for (ByteBuffer slab : sizeClass.slabs) {
+                    for (int i = 0; i < slab.capacity(); i++) {
+                        if (slab.get(i) != 0) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private void store(String key, byte[] value, Duration ttl, boolean binary) {
+        long expiresAtMillis = System.currentTimeMillis() + ttl.toMillis();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long location = allocate(keyBytes.length + value.length, binary);
+        ByteBuffer buffer = buffer(location);
+        int offset = offset(location);
+        buffer.put(offset, keyBytes);
+        buffer.put(offset + keyBytes.length, value);
+        usedBytes.addAndGet(keyBytes.length + value.length);
+
+        // Readers copy under the segment's lock, so once put returns nobody can still be
+        // reading the previous location
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.put(hash, keyBytes, location, lengths(keyBytes.length, value.length), expiresAtMillis);
+        }
+    }
+
+    /**
+     * Copies out the value stored under a key, optionally removing it.
+     *
+     * @return the value, or null if there is none
+     */
+    private Value read(String key, boolean remove) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(hash, keyBytes);
+            if (slot < 0) {
+                return null;
+            }
+            long location = segment.locations[slot];
+            long lengths = segment.lengths[slot];
+            byte[] bytes = new byte[valueLength(lengths)];
+            buffer(location).get(offset(location) + keyLength(lengths), bytes);
+            if (remove) {
+                segment.removeAt(slot);
+                segment.compactIfNeeded();
+            }
+            return new Value(bytes, isBinary(location));
+        }
+    }
+
+    /**
+     * One reaper tick: sweeps up to {@link #SWEEP_SLOTS_PER_TICK} index slots from where the
+     * last tick stopped, removing at most {@code maxReapPerTick} expired entries. Entries moved
+     * by a rehash during a pass may be missed until the next one.
+     */
+    private void reap() {
+        long now = System.currentTimeMillis();
+        int budget = SWEEP_SLOTS_PER_TICK;
+        int reaped = 0;
+        while (budget > 0 && reaped < maxReapPerTick) {
+            Segment segment = segments[sweepSegment];
+            boolean finished;
+            synchronized (segment) {
+                while (sweepSlot < segment.capacity() && budget > 0 && reaped < maxReapPerTick) {
+                    if (segment.isExpired(sweepSlot, now)) {
+                        segment.removeAt(sweepSlot);
+                        reaped++;
+                    }
+                    sweepSlot++;
+                    budget--;
+                }
+                finished = sweepSlot >= segment.capacity();
+                if (finished) {
+                    segment.compactIfNeeded();
+                }
+            }
+            if (finished) {
+                sweepSlot = 0;
+                sweepSegment = (sweepSegment + 1) % segments.length;
+                if (sweepSegment == 0) {
+                    passMillis = now - passStartedMillis;
+                    passStartedMillis = now;
+                    break;
+                }
+            }
+        }
+        reapedLastTick = reaped;
+        reapedTotal.addAndGet(reaped);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    /**
+     * Spreads the key's hash code, so both its top bits (the segment) and its low bits
+     * (the slot) are well mixed.
+     */
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private long allocate(int length, boolean binary) {
+        if (length > slabSize) {
+            reserve(length);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            synchronized (large) {
+                return pack(sizeClasses.length, large.add(buffer), binary);
+            }
+        }
+        int classIndex = classIndexFor(length);
+        SizeClass sizeClass = sizeClasses[classIndex];
+        int block;
+        synchronized (sizeClass) {
+            if (sizeClass.free.size > 0) {
+                block = sizeClass.free.pop();
+            } else {
+                if (sizeClass.carved == sizeClass.slabs.size() * sizeClass.blocksPerSlab) {
+                    reserve(slabSize);
+                    sizeClass.slabs.add(ByteBuffer.allocateDirect(slabSize));
+                }
+                block = sizeClass.carved++;
+            }
+        }
+        return pack(classIndex, block, binary);
+    }
+
+    private void reserve(long bytes) {
+        long allocated;
+        do {
+            allocated = allocatedBytes.get();
+            if (allocated + bytes > maxMemory) {
+                throw new BackendException("Off-heap memory limit of " + maxMemory + " bytes exhausted");
+            }
+        } while (!allocatedBytes.compareAndSet(allocated, allocated + bytes));
+    }
+
+    private void release(long location, long lengths) {
+        int length = keyLength(lengths) + valueLength(lengths);
+        ByteBuffer buffer = buffer(location);
+        int offset = offset(location);
+        for (int done = 0; done < length; done += ZEROS.length) {
+            buffer.put(offset + done, ZEROS, 0, Math.min(ZEROS.length, length - done));
+        }
+        usedBytes.addAndGet(-length);
+
+        if (isLarge(location)) {
+            synchronized (large) {
+                large.remove(block(location));
+            }
+            allocatedBytes.addAndGet(-length);
+            return;
+        }
+        SizeClass sizeClass = sizeClasses[classIndex(location)];
+        synchronized (sizeClass) {
+            sizeClass.free.push(block(location));
+        }
+    }
+
+    private ByteBuffer buffer(long location) {
+        if (isLarge(location)) {
+            synchronized (large) {
+                return large.buffers.get(block(location));
+            }
+        }
+        SizeClass sizeClass = sizeClasses[classIndex(location)];
+        synchronized (sizeClass) {
+            return sizeClass.slabs.get(block(location) / sizeClass.blocksPerSlab);
+        }
+    }
+
+    private int offset(long location) {
+        if (isLarge(location)) {
+            return 0;
+        }
+        SizeClass sizeClass = sizeClasses[classIndex(location)];
+        return (block(location) % sizeClass.blocksPerSlab) * sizeClass.blockSize;
+    }
+
+    private boolean isLarge(long location) {
+        return classIndex(location) == sizeClasses.length;
+    }
+
+    private static int classIndexFor(int length) {
+        int blockSize = Math.max(MIN_BLOCK_SIZE, Integer.highestOneBit(Math.max(1, length - 1)) << 1);
+        return Integer.numberOfTrailingZeros(blockSize) - Integer.numberOfTrailingZeros(MIN_BLOCK_SIZE);
+    }
+
+    private static long pack(int classIndex, int block, boolean binary) {
+        return ((long) (classIndex + 1) << 33) | (binary ? 1L << 32 : 0) | (block & 0xFFFFFFFFL);
+    }
+
+    private static int classIndex(long location) {
+        return (int) (location >>> 33) - 1;
+    }
+
+    private static int block(long location) {
+        return (int) location;
+    }
+
+    private static boolean isBinary(long location) {
+        return (location & (1L << 32)) != 0;
+    }
+
+    private static long lengths(int keyLength, int valueLength) {
+        return ((long) keyLength << 32) | (valueLength & 0xFFFFFFFFL);
+    }
+
+    private static int keyLength(long lengths) {
+        return (int) (lengths >>> 32);
+    }
+
+    private static int valueLength(long lengths) {
+        return (int) lengths;
+    }
+
+    private static String toText(Value value) {
+        byte[] bytes = value.bytes();
+        String text = value.binary() ? BinaryValues.encode(bytes) : new String(bytes, StandardCharsets.UTF_8);
+        Arrays.fill(bytes, (byte) 0);
+        return text;
+    }
+
+    private static byte[] toBinary(Value value) {
+        return value.binary() ? value.bytes() : BinaryValues.decode(toText(value));
+    }
+
+    /**
+     * A value copied out of off-heap memory. {@code binary} records whether it was written
+     * as bytes or as text.
+     */
+    private record Value(byte[] bytes, boolean binary) {}
+
+    /**
+     * One segment of the index: an open-addressing table with linear probing over parallel
+     * arrays. Removed entries leave a tombstone until the next rehash. Guarded by its own monitor.
+     */
+    private final class Segment {
+        int[] hashes;
+        long[] locations;
+        long[] lengths;
+        long[] expiries;
+        int count;
+        int deleted;
+
+        Segment() {
+            allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        void allocate(int capacity) {
+            hashes = new int[capacity];
+            locations = new long[capacity];
+            lengths = new long[capacity];
+            expiries = new long[capacity];
+            count = 0;
+            deleted = 0;
+        }
+
+        int capacity() {
+            return locations.length;
+        }
+
+        boolean isLive(int slot) {
+            return locations[slot] != EMPTY && locations[slot] != DELETED;
+        }
+
+        boolean isExpired(int slot, long nowMillis) {
+            return isLive(slot) && nowMillis > expiries[slot];
+        }
+
+        /**
+         * Finds the slot holding a key.
+         *
+         * @return the slot, or -1 if the key is absent
+         */
+        int find(int hash, byte[] key) {
+            int mask = capacity() - 1;
+            for (int slot = hash & mask; locations[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (locations[slot] != DELETED && hashes[slot] == hash && keyEquals(slot, key)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Maps a key to a new location, releasing the one it replaces.
+         */
+        void put(int hash, byte[] key, long location, long entryLengths, long expiresAtMillis) {
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                release(locations[slot], lengths[slot]);
+            } else {
+                // Keep at least a quarter of the slots empty so probes terminate quickly
+                if ((count + deleted + 1) * 4L > capacity() * 3L) {
+                    rehash();
+                }
+                int mask = capacity() - 1;
+                slot = hash & mask;
+                while (isLive(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (locations[slot] == DELETED) {
+                    deleted--;
+                }
+                count++;
+            }
+            hashes[slot] = hash;
+            locations[slot] = location;
+            lengths[slot] = entryLengths;
+            expiries[slot] = expiresAtMillis;
+        }
+
+        /**
+         * Releases the entry in a slot and leaves a tombstone. Other slots do not move, so this
+         * is safe while iterating.
+         */
+        void removeAt(int slot) {
+            release(locations[slot], lengths[slot]);
+            hashes[slot] = 0;
+            locations[slot] = DELETED;
+            lengths[slot] = 0;
+            expiries[slot] = 0;
+            count--;
+            deleted++;
+        }
+
+        void compactIfNeeded() {
+            if (deleted * 4L > capacity()) {
+                rehash();
+            }
+        }
+
+        /**
+         * Rebuilds the table at one to two thirds free, dropping tombstones.
+         */
+        private void rehash() {
+            int[] oldHashes = hashes;
+            long[] oldLocations = locations;
+            long[] oldLengths = lengths;
+            long[] oldExpiries = expiries;
+            int live = count;
+
+            allocate(Math.max(INITIAL_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, live * 3)) << 1));
+            int mask = capacity() - 1;
+            for (int i = 0; i < oldLocations.length; i++) {
+                if (oldLocations[i] == EMPTY || oldLocations[i] == DELETED) {
+                    continue;
+                }
+                int slot = oldHashes[i] & mask;
+                while (locations[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                locations[slot] = oldLocations[i];
+                lengths[slot] = oldLengths[i];
+                expiries[slot] = oldExpiries[i];
+            }
+            count = live;
+        }
+
+        private boolean keyEquals(int slot, byte[] key) {
+            if (keyLength(lengths[slot]) != key.length) {
+                return false;
+            }
+            ByteBuffer buffer = buffer(locations[slot]);
+            int offset = offset(locations[slot]);
+            for (int i = 0; i < key.length; i++) {
+                if (buffer.get(offset + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Slabs of one block size, with a stack of freed block numbers. Guarded by its own monitor.
+     */
+    private final class SizeClass {
+        final int blockSize;
+        final int blocksPerSlab;
+        final List<ByteBuffer> slabs = new ArrayList<>();
+        final IntStack free = new IntStack();
+        int carved;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+            this.blocksPerSlab = slabSize / blockSize;
+        }
+    }
+
+    /**
+     * Dedicated buffers for entries larger than a slab, by id, with a stack of freed ids.
+     * Guarded by its own monitor.
+     */
+    private static final class LargeBuffers {
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        final IntStack free = new IntStack();
+
+        int add(ByteBuffer buffer) {
+            if (free.size > 0) {
+                int id = free.pop();
+                buffers.set(id, buffer);
+                return id;
+            }
+            buffers.add(buffer);
+            return buffers.size() - 1;
+        }
+
+        void remove(int id) {
+            buffers.set(id, null);
+            free.push(id);
+        }
+    }
+
+    private static final class IntStack {
+        int[] items = new int[16];
+        int size;
+
+        void push(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, items.length * 2);
+            }
+            items[size++] = item;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Builder for OffHeapMemoryBackend.
+     */
+    public static final class Builder {
+        private int slabSize = DEFAULT_SLAB_SIZE;
+        private long maxMemory = DEFAULT_MAX_MEMORY;
+        private Duration reaperTick;
+        private int maxReapPerTick = ExpiryReaper.DEFAULT_MAX_REAP_PER_TICK;
+
+        private Builder() {}
+
+        /**
+         * Sets the slab size, which is also the largest entry (key and value together)
+         * stored in a slab. Must be a power of two.
+         *
+         * @param slabSize the slab size in bytes
+         * @return this builder
+         */
+        public Builder slabSize(int slabSize) {
+            this.slabSize = slabSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum direct memory the backend may reserve. Writes beyond it
+         * fail with a {@link BackendException}.
+         *
+         * @param maxMemory the limit in bytes
+         * @return this builder
+         */
+        public Builder maxMemory(long maxMemory) {
+            this.maxMemory = maxMemory;
+            return this;
+        }
+
+        /**
+         * Enables a background expiry reaper.
+         *
+         * @param tick how often the reaper runs
+         * @return this builder
+         */
+        public Builder reaper(Duration tick) {
+            return reaper(tick, ExpiryReaper.DEFAULT_MAX_REAP_PER_TICK);
+        }
+
+        /**
+         * Enables a background expiry reaper.
+         *
+         * @param tick how often the reaper runs
+         * @param maxReapPerTick the maximum number of expired entries handled per tick
+         * @return this builder
+         */
+        public Builder reaper(Duration tick, int maxReapPerTick) {
+            this.reaperTick = tick;
+            this.maxReapPerTick = maxReapPerTick;
+            return this;
+        }
+
+        /**
+         * Builds the backend.
+         *
+         * @return the backend
+         */
+        public OffHeapMemoryBackend build() {
+            return new OffHeapMemoryBackend(this);
+        }
+    }
+}
@@ -1,22 +1,103 @@
 package app.hideit.store;
 
 import app.hideit.exception.BackendException;
+import app.hideit.record.RecordEnvelope;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * Redis storage backend with native TTL support.
  * Uses connection pooling for efficient resource management.
+ *
+ * <p>Binary values ({@link #setBytes} and friends) use Jedis's byte[] commands, so they reach
+ * Redis as raw bytes with no Base64 or UTF-8 conversion. A value written as text reads back
+ * through {@link #getBytes} as its UTF-8 bytes.
+ *
+ * <p>With auto-batching enabled (see {@link Builder#autoBatching}), single-key commands from
+ * concurrent callers are coalesced into pipelines over a few connections, so throughput scales
+ * with Redis rather than with pool size and round-trip time. Callers still block until their
+ * own reply arrives.
+ *
+ * <p>With the {@link Layout#HASH hash layout}, each record envelope is stored as a hash whose
+ * {@code prefix} field holds its header prefix and whose {@code rest} field holds the remainder,
+ * so header-only reads ({@link #getBytesPrefix} and {@link #getAndDeleteBytesPrefix}) fetch the
+ * small {@code prefix} field with HMGET instead of the whole payload.
+ *
+ * <p>With a near cache (see {@link Builder#nearCache}), binary reads are served from a local,
+ * byte-bounded LRU of stored (still encrypted) values. Entries are invalidated through Redis
+ * keyspace notifications, expire no later than the key's own TTL, and are only served while the
+ * notification subscription is connected.
  */
 public final class RedisBackend implements StorageBackend {
 
+    // Hash layout fields, in value order. The only boundary with a meaning is the end of an
+    // envelope's header prefix; other values are stored whole in the first field.
+    private static final byte[][] HASH_FIELDS = {
+        "prefix".getBytes(StandardCharsets.UTF_8),
+        "rest".getBytes(StandardCharsets.UTF_8)
+    };
+
+    // Replaces the key (of either layout) with a hash of the two fields, leaving out an empty
+    // rest, and sets its expiry. ARGV: prefix, rest, TTL seconds
+    private static final byte[] HASH_SET_SCRIPT = (
+        "redis.call('DEL', KEYS[1]) "
+            + "redis.call('HSET', KEYS[1], 'prefix', ARGV[1]) "
+            + "if #ARGV[2] > 0 then redis.call('HSET', KEYS[1], 'rest', ARGV[2]) end "
+            + "redis.call('EXPIRE', KEYS[1], ARGV[3]) "
+            + "return 1"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    // Reads the requested fields plus the total value length, then deletes the key; returns nil
+    // unless this call's DEL removed it. ARGV: the fields to read
+    private static final byte[] HASH_GET_AND_DELETE_SCRIPT = (
+        "local values = redis.call('HMGET', KEYS[1], unpack(ARGV)) "
+            + "local length = redis.call('HSTRLEN', KEYS[1], 'prefix') + redis.call('HSTRLEN', KEYS[1], 'rest') "
+            + "if redis.call('DEL', KEYS[1]) == 0 then return false end "
+            + "values[#values + 1] = length "
+            + "return values"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    // Reads a value and its remaining TTL in milliseconds, for near cache fills
+    private static final byte[] GET_WITH_TTL_SCRIPT = (
+        "return {redis.call('GET', KEYS[1]), redis.call('PTTL', KEYS[1])}"
+    ).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HASH_GET_WITH_TTL_SCRIPT = (
+        "local values = redis.call('HMGET', KEYS[1], 'prefix', 'rest') "
+            + "values[#values + 1] = redis.call('PTTL', KEYS[1]) "
+            + "return values"
+    ).getBytes(StandardCharsets.UTF_8);
+
     private final JedisPool pool;
     private final String keyPrefix;
+    private final Layout layout;
+
+    // Null unless the near cache is enabled
+    private final NearCache nearCache;
+    private final RedisKeyspaceSubscriber invalidations;
+
+    // Null unless auto-batching is enabled
+    private final RedisCommandBatcher batcher;
+
+    // Pool statistics
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LongAdder borrowFailures = new LongAdder();
 
     /**
      * Creates a Redis backend from a URI.
@@ -34,18 +115,7 @@ public final class RedisBackend implements StorageBackend {
      * @param keyPrefix the prefix for all keys
      */
     public RedisBackend(String uri, String keyPrefix) {
-        try {
-            JedisPoolConfig config = new JedisPoolConfig();
-            config.setMaxTotal(10);
-            config.setMaxIdle(5);
-            config.setMinIdle(1);
-            config.setTestOnBorrow(true);
-
-            this.pool = new JedisPool(config, URI.create(uri));
-            this.keyPrefix = keyPrefix != null ? keyPrefix : "";
-        } catch (Exception e) {
-            throw new BackendException("Failed to connect to Redis: " + uri, e);
-        }
+        this(builder().uri(uri).keyPrefix(keyPrefix));
     }
 
     /**
@@ -55,67 +125,381 @@ public final class RedisBackend implements StorageBackend {
      * @param keyPrefix the prefix for all keys
      */
     public RedisBackend(JedisPool pool, String keyPrefix) {
-        this.pool = pool;
-        this.keyPrefix = keyPrefix != null ? keyPrefix : "";
+        this(builder().pool(pool).keyPrefix(keyPrefix));
+    }
+
+    private RedisBackend(Builder builder) {
+        if (builder.pool != null) {
+            this.pool = builder.pool;
+        } else if (builder.uri != null) {
+            try {
+                this.pool = new JedisPool(builder.poolConfig(), URI.create(builder.uri));
+            } catch (Exception e) {
+                throw new BackendException("Failed to connect to Redis: " + builder.uri, e);
+            }
+        } else {
+            throw new IllegalArgumentException("Either a URI or a JedisPool is required");
+        }
+        this.keyPrefix = builder.keyPrefix != null ? builder.keyPrefix : "";
+        this.layout = builder.layout;
+        this.batcher = builder.flushWindow == null ? null : new RedisCommandBatcher(
+            this::borrow, builder.flushWindow, builder.maxBatchSize, builder.batchingConnections);
+        if (builder.nearCacheBytes > 0) {
+            this.nearCache = new NearCache(builder.nearCacheBytes);
+            this.invalidations = new RedisKeyspaceSubscriber(this::borrow, nearCache, keyPrefix);
+        } else {
+            this.nearCache = null;
+            this.invalidations = null;
+        }
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     @Override
     public void set(String key, String value, Duration ttl) {
+        if (layout == Layout.HASH) {
+            setBytes(key, value.getBytes(StandardCharsets.UTF_8), ttl);
+            return;
+        }
         String fullKey = keyPrefix + key;
-        try (Jedis jedis = pool.getResource()) {
-            long seconds = ttl.getSeconds();
-            if (seconds <= 0) {
-                seconds = 1; // Minimum 1 second TTL
+        long seconds = toSeconds(ttl);
+        execute("Redis SET failed for key: " + key,
+            jedis -> jedis.setex(fullKey, seconds, value),
+            pipeline -> pipeline.setex(fullKey, seconds, value));
+        invalidate(key);
+    }
+
+    /**
+     * Stores all entries with pipelined SETEX commands in a single round trip.
+     */
+    @Override
+    public void setAll(Map<String, TimedValue> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (layout == Layout.HASH) {
+            Map<String, TimedBytes> encoded = new LinkedHashMap<>();
+            for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+                TimedValue timed = entry.getValue();
+                encoded.put(entry.getKey(), new TimedBytes(timed.value().getBytes(StandardCharsets.UTF_8), timed.ttl()));
             }
-            jedis.setex(fullKey, seconds, value);
+            setAllBytes(encoded);
+            return;
+        }
+        try (Jedis jedis = borrow()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+                TimedValue timed = entry.getValue();
+                pipeline.setex(keyPrefix + entry.getKey(), toSeconds(timed.ttl()), timed.value());
+            }
+            pipeline.sync();
         } catch (Exception e) {
-            throw new BackendException("Redis SET failed for key: " + key, e);
+            throw new BackendException("Redis pipelined SET failed for " + entries.size() + " keys", e);
+        } finally {
+            entries.keySet().forEach(this::invalidate);
         }
     }
 
     @Override
     public Optional<String> get(String key) {
+        if (layout == Layout.HASH) {
+            return getBytes(key).map(value -> new String(value, StandardCharsets.UTF_8));
+        }
         String fullKey = keyPrefix + key;
-        try (Jedis jedis = pool.getResource()) {
-            String value = jedis.get(fullKey);
-            return Optional.ofNullable(value);
+        String value = execute("Redis GET failed for key: " + key,
+            jedis -> jedis.get(fullKey),
+            pipeline -> pipeline.get(fullKey));
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * Gets all values with a single MGET command.
+     */
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        if (layout == Layout.HASH) {
+            getAllBytes(keys).forEach((key, value) -> result.put(key, new String(value, StandardCharsets.UTF_8)));
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        String[] fullKeys = new String[keyList.size()];
+        for (int i = 0; i < fullKeys.length; i++) {
+            fullKeys[i] = keyPrefix + keyList.get(i);
+        }
+        try (Jedis jedis = borrow()) {
+            List<String> values = jedis.mget(fullKeys);
+            for (int i = 0; i < fullKeys.length; i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    result.put(keyList.get(i), value);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new BackendException("Redis MGET failed for " + keys.size() + " keys", e);
+        }
+    }
+
+    @Override
+    public void setBytes(String key, byte[] value, Duration ttl) {
+        byte[] fullKey = binaryKey(key);
+        long seconds = toSeconds(ttl);
+        if (layout == Layout.HASH) {
+            List<byte[]> keys = List.of(fullKey);
+            List<byte[]> args = hashSetArgs(value, seconds);
+            execute("Redis HSET failed for key: " + key,
+                jedis -> jedis.eval(HASH_SET_SCRIPT, keys, args),
+                pipeline -> pipeline.eval(HASH_SET_SCRIPT, keys, args));
+        } else {
+            execute("Redis SET failed for key: " + key,
+                jedis -> jedis.setex(fullKey, seconds, value),
+                pipeline -> pipeline.setex(fullKey, seconds, value));
+        }
+        invalidate(key);
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String key) {
+        if (nearCache != null) {
+            return nearCachedGet(key);
+        }
+        return readBytes(key);
+    }
+
+    private Optional<byte[]> readBytes(String key) {
+        if (layout == Layout.HASH) {
+            return hashGet(key, HASH_FIELDS.length);
+        }
+        byte[] fullKey = binaryKey(key);
+        byte[] value = execute("Redis GET failed for key: " + key,
+            jedis -> jedis.get(fullKey),
+            pipeline -> pipeline.get(fullKey));
+        return Optional.ofNullable(value);
+    }
+
+    @Override
+    public Optional<byte[]> getAndDeleteBytes(String key) {
+        if (layout == Layout.HASH) {
+            return hashGetAndDelete(key, HASH_FIELDS.length).map(ValuePrefix::prefix);
+        }
+        byte[] fullKey = binaryKey(key);
+        byte[] value = execute("Redis GETDEL failed for key: " + key,
+            jedis -> jedis.getDel(fullKey),
+            pipeline -> pipeline.getDel(fullKey));
+        invalidate(key);
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * In the hash layout, reads only the fields that cover the first {@code length} bytes with
+     * HMGET; a header-sized prefix fetches just the {@code prefix} field.
+     */
+    @Override
+    public Optional<byte[]> getBytesPrefix(String key, int length) {
+        if (layout == Layout.HASH) {
+            Optional<byte[]> cached = nearCache != null ? nearCache.get(key) : Optional.empty();
+            return cached.isPresent() ? cached : hashGet(key, fieldsCovering(length));
+        }
+        return getBytes(key);
+    }
+
+    /**
+     * In the hash layout, reads only the fields that cover the first {@code length} bytes and the
+     * field lengths, and deletes the key, in one atomic script.
+     */
+    @Override
+    public Optional<ValuePrefix> getAndDeleteBytesPrefix(String key, int length) {
+        if (layout == Layout.HASH) {
+            return hashGetAndDelete(key, fieldsCovering(length));
+        }
+        return getAndDeleteBytes(key).map(value -> new ValuePrefix(value, value.length));
+    }
+
+    /**
+     * Stores all binary entries with pipelined SETEX commands (or hash writes) in a single round trip.
+     */
+    @Override
+    public void setAllBytes(Map<String, TimedBytes> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = borrow()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, TimedBytes> entry : entries.entrySet()) {
+                TimedBytes timed = entry.getValue();
+                byte[] fullKey = binaryKey(entry.getKey());
+                long seconds = toSeconds(timed.ttl());
+                if (layout == Layout.HASH) {
+                    pipeline.eval(HASH_SET_SCRIPT, List.of(fullKey), hashSetArgs(timed.value(), seconds));
+                } else {
+                    pipeline.setex(fullKey, seconds, timed.value());
+                }
+            }
+            pipeline.sync();
         } catch (Exception e) {
-            throw new BackendException("Redis GET failed for key: " + key, e);
+            throw new BackendException("Redis pipelined SET failed for " + entries.size() + " keys", e);
+        } finally {
+            entries.keySet().forEach(this::invalidate);
+        }
+    }
+
+    /**
+     * Gets all binary values with a single MGET command, or pipelined HMGET commands
+     * in the hash layout.
+     */
+    @Override
+    public Map<String, byte[]> getAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        byte[][] fullKeys = new byte[keyList.size()][];
+        for (int i = 0; i < fullKeys.length; i++) {
+            fullKeys[i] = binaryKey(keyList.get(i));
+        }
+        try (Jedis jedis = borrow()) {
+            if (layout == Layout.HASH) {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<List<byte[]>>> responses = new ArrayList<>(fullKeys.length);
+                for (byte[] fullKey : fullKeys) {
+                    responses.add(pipeline.hmget(fullKey, HASH_FIELDS));
+                }
+                pipeline.sync();
+                for (int i = 0; i < fullKeys.length; i++) {
+                    String key = keyList.get(i);
+                    joinFields(responses.get(i).get(), HASH_FIELDS.length).ifPresent(value -> result.put(key, value));
+                }
+                return result;
+            }
+            List<byte[]> values = jedis.mget(fullKeys);
+            for (int i = 0; i < fullKeys.length; i++) {
+                byte[] value = values.get(i);
+                if (value != null) {
+                    result.put(keyList.get(i), value);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new BackendException("Redis MGET failed for " + keys.size() + " keys", e);
+        }
+    }
+
+    /**
+     * Gets and deletes all values with pipelined GETDEL commands, or the hash layout's
+     * get-and-delete script, in a single round trip. Each key is read and deleted atomically.
+     */
+    @Override
+    public Map<String, byte[]> getAndDeleteAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        List<byte[]> fields = Arrays.asList(HASH_FIELDS);
+        try (Jedis jedis = borrow()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<?>> responses = new ArrayList<>(keyList.size());
+            for (String key : keyList) {
+                byte[] fullKey = binaryKey(key);
+                responses.add(layout == Layout.HASH
+                    ? pipeline.eval(HASH_GET_AND_DELETE_SCRIPT, List.of(fullKey), fields)
+                    : pipeline.getDel(fullKey));
+            }
+            pipeline.sync();
+            for (int i = 0; i < keyList.size(); i++) {
+                String key = keyList.get(i);
+                Object reply = responses.get(i).get();
+                if (layout == Layout.HASH) {
+                    if (reply instanceof List<?> values) {
+                        joinFields(values, HASH_FIELDS.length).ifPresent(value -> result.put(key, value));
+                    }
+                } else if (reply != null) {
+                    result.put(key, (byte[]) reply);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new BackendException("Redis pipelined GETDEL failed for " + keys.size() + " keys", e);
+        } finally {
+            keys.forEach(this::invalidate);
         }
     }
 
     @Override
     public boolean delete(String key) {
         String fullKey = keyPrefix + key;
-        try (Jedis jedis = pool.getResource()) {
-            return jedis.del(fullKey) > 0;
+        long deleted = execute("Redis DEL failed for key: " + key,
+            jedis -> jedis.del(fullKey),
+            pipeline -> pipeline.del(fullKey));
+        invalidate(key);
+        return deleted > 0;
+    }
+
+    /**
+     * Gets and deletes the value with a single GETDEL command (Redis 6.2+), or a script
+     * in the hash layout, which is atomic on the server.
+     */
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        if (layout == Layout.HASH) {
+            return getAndDeleteBytes(key).map(value -> new String(value, StandardCharsets.UTF_8));
+        }
+        String fullKey = keyPrefix + key;
+        String value = execute("Redis GETDEL failed for key: " + key,
+            jedis -> jedis.getDel(fullKey),
+            pipeline -> pipeline.getDel(fullKey));
+        invalidate(key);
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * Deletes all keys with a single multi-key DEL command.
+     */
+    @Override
+    public int deleteAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        String[] fullKeys = keys.stream().map(key -> keyPrefix + key).toArray(String[]::new);
+        try (Jedis jedis = borrow()) {
+            return (int) jedis.del(fullKeys);
         } catch (Exception e) {
-            throw new BackendException("Redis DEL failed for key: " + key, e);
+            throw new BackendException("Redis DEL failed for " + keys.size() + " keys", e);
+        } finally {
+            keys.forEach(this::invalidate);
         }
     }
 
     @Override
     public boolean exists(String key) {
         String fullKey = keyPrefix + key;
-        try (Jedis jedis = pool.getResource()) {
-            return jedis.exists(fullKey);
-        } catch (Exception e) {
-            throw new BackendException("Redis EXISTS failed for key: " + key, e);
-        }
+        return execute("Redis EXISTS failed for key: " + key,
+            jedis -> jedis.exists(fullKey),
+            pipeline -> pipeline.exists(fullKey));
     }
 
     @Override
     public Optional<Duration> ttl(String key) {
         String fullKey = keyPrefix + key;
-        try (Jedis jedis = pool.getResource()) {
-            long seconds = jedis.ttl(fullKey);
-            if (seconds < 0) {
-                return Optional.empty(); // Key doesn't exist or has no TTL
-            }
-            return Optional.of(Duration.ofSeconds(seconds));
-        } catch (Exception e) {
-            throw new BackendException("Redis TTL failed for key: " + key, e);
+        long seconds = execute("Redis TTL failed for key: " + key,
+            jedis -> jedis.ttl(fullKey),
+            pipeline -> pipeline.ttl(fullKey));
+        if (seconds < 0) {
+            return Optional.empty(); // Key doesn't exist or has no TTL
         }
+        return Optional.of(Duration.ofSeconds(seconds));
     }
 
     @Override
@@ -125,21 +509,430 @@ public final class RedisBackend implements StorageBackend {
 
     @Override
     public void close() {
+        if (invalidations != null) {
+            invalidations.close();
+        }
+        if (batcher != null) {
+            batcher.close();
+        }
         if (pool != null && !pool.isClosed()) {
             pool.close();
         }
     }
 
+    /**
+     * Gets auto-batching statistics: {@code batches} (pipelines sent), {@code commands}
+     * (commands sent in them) and {@code queued} (commands waiting for a flush).
+     *
+     * @return a map of statistics, empty if auto-batching is disabled
+     */
+    public Map<String, Object> getBatchingStats() {
+        return batcher != null ? batcher.stats() : Map.of();
+    }
+
+    /**
+     * Gets near cache statistics: {@code hits}, {@code misses}, {@code invalidations} (entries dropped
+     * on a keyspace notification or a local write), {@code evictions} (dropped to stay within the
+     * byte budget), {@code expirations}, {@code entries}, {@code bytes}, {@code max_bytes} and
+     * {@code active} (whether the invalidation subscription is connected and the cache in use).
+     *
+     * @return a map of statistics, empty if the near cache is disabled
+     */
+    public Map<String, Object> getNearCacheStats() {
+        return nearCache != null ? nearCache.stats() : Map.of();
+    }
+
+    /**
+     * Gets connection pool statistics: {@code active} (connections borrowed), {@code idle},
+     * {@code waiters} (threads blocked waiting for a connection), {@code borrow_failures}
+     * (borrows that timed out or could not connect) and {@code borrow_wait}, a histogram of
+     * the time spent in each borrow (see {@code count}, {@code p50_us}, {@code p99_us},
+     * {@code max_us} and {@code buckets}).
+     *
+     * @return a map of statistics
+     */
+    public Map<String, Object> getPoolStats() {
+        return Map.of(
+            "active", pool.getNumActive(),
+            "idle", pool.getNumIdle(),
+            "waiters", pool.getNumWaiters(),
+            "borrow_failures", borrowFailures.sum(),
+            "borrow_wait", borrowWait.snapshot()
+        );
+    }
+
+    private Jedis borrow() {
+        long start = System.nanoTime();
+        try {
+            return pool.getResource();
+        } catch (RuntimeException e) {
+            borrowFailures.increment();
+            throw e;
+        } finally {
+            borrowWait.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs a single-key command, on its own pooled connection or, with auto-batching,
+     * as part of the next pipeline.
+     */
+    private <T> T execute(String failure, Function<Jedis, T> direct, Function<Pipeline, Response<T>> pipelined) {
+        if (batcher != null) {
+            try {
+                return batcher.submit(pipelined).join();
+            } catch (CompletionException e) {
+                throw new BackendException(failure, e.getCause());
+            }
+        }
+        try (Jedis jedis = borrow()) {
+            return direct.apply(jedis);
+        } catch (Exception e) {
+            throw new BackendException(failure, e);
+        }
+    }
+
+    /**
+     * Serves a binary read from the near cache, or reads the value with its remaining TTL
+     * in one command and offers it to the cache.
+     */
+    private Optional<byte[]> nearCachedGet(String key) {
+        Optional<byte[]> cached = nearCache.get(key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Object load = nearCache.beginLoad(key);
+        if (load == null) {
+            return readBytes(key);
+        }
+
+        byte[] value = null;
+        long ttlMillis = -1;
+        try {
+            byte[] script = layout == Layout.HASH ? HASH_GET_WITH_TTL_SCRIPT : GET_WITH_TTL_SCRIPT;
+            int fieldCount = layout == Layout.HASH ? HASH_FIELDS.length : 1;
+            List<byte[]> keys = List.of(binaryKey(key));
+            List<byte[]> args = List.of();
+            List<?> reply = (List<?>) execute("Redis GET failed for key: " + key,
+                jedis -> jedis.eval(script, keys, args),
+                pipeline -> pipeline.eval(script, keys, args));
+            value = joinFields(reply, fieldCount).orElse(null);
+            ttlMillis = (Long) reply.get(fieldCount);
+            return Optional.ofNullable(value);
+        } finally {
+            nearCache.completeLoad(key, load, value, ttlMillis);
+        }
+    }
+
+    private void invalidate(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Reads the first {@code fieldCount} hash fields with HMGET and joins them.
+     */
+    private Optional<byte[]> hashGet(String key, int fieldCount) {
+        byte[] fullKey = binaryKey(key);
+        byte[][] fields = Arrays.copyOf(HASH_FIELDS, fieldCount);
+        List<byte[]> values = execute("Redis HMGET failed for key: " + key,
+            jedis -> jedis.hmget(fullKey, fields),
+            pipeline -> pipeline.hmget(fullKey, fields));
+        return joinFields(values, fieldCount);
+    }
+
+    /**
+     * Reads the first {@code fieldCount} hash fields and the value length, and deletes the key.
+     */
+    private Optional<ValuePrefix> hashGetAndDelete(String key, int fieldCount) {
+        List<byte[]> keys = List.of(binaryKey(key));
+        List<byte[]> args = Arrays.asList(Arrays.copyOf(HASH_FIELDS, fieldCount));
+        Object reply = execute("Redis hash GETDEL failed for key: " + key,
+            jedis -> jedis.eval(HASH_GET_AND_DELETE_SCRIPT, keys, args),
+            pipeline -> pipeline.eval(HASH_GET_AND_DELETE_SCRIPT, keys, args));
+        invalidate(key);
+        if (!(reply instanceof List<?> values)) {
+            return Optional.empty();
+        }
+        long length = (Long) values.get(fieldCount);
+        return joinFields(values, fieldCount).map(prefix -> new ValuePrefix(prefix, length));
+    }
+
+    /**
+     * Splits a value into the hash layout's fields and appends the TTL, as arguments for the set
+     * script. Only envelopes are split, after their header prefix; anything else, such as stream
+     * chunks or text, goes whole into the first field.
+     */
+    private static List<byte[]> hashSetArgs(byte[] value, long seconds) {
+        int split = RecordEnvelope.hasHeader(value) ? RecordEnvelope.HEADER_PREFIX_LENGTH : value.length;
+        return List.of(
+            Arrays.copyOfRange(value, 0, split),
+            Arrays.copyOfRange(value, split, value.length),
+            Long.toString(seconds).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Joins the first {@code fieldCount} field values, or returns empty if the key was missing
+     * (all fields null).
+     */
+    private static Optional<byte[]> joinFields(List<?> values, int fieldCount) {
+        int length = 0;
+        boolean found = false;
+        for (int i = 0; i < fieldCount; i++) {
+            if (values.get(i) instanceof byte[] field) {
+                length += field.length;
+                found = true;
+            }
+        }
+        if (!found) {
+            return Optional.empty();
+        }
+        byte[] joined = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < fieldCount; i++) {
+            if (values.get(i) instanceof byte[] field) {
+                System.arraycopy(field, 0, joined, offset, field.length);
+                offset += field.length;
+            }
+        }
+        return Optional.of(joined);
+    }
+
+    /**
+     * Counts the hash fields needed to cover the first {@code length} bytes of a value. The
+     * first field holds at least the header prefix, or the whole value if it is shorter.
+     */
+    private static int fieldsCovering(int length) {
+        return length <= RecordEnvelope.HEADER_PREFIX_LENGTH ? 1 : HASH_FIELDS.length;
+    }
+
+    private byte[] binaryKey(String key) {
+        return (keyPrefix + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toSeconds(Duration ttl) {
+        long seconds = ttl.getSeconds();
+        return seconds <= 0 ? 1 : seconds; // Minimum 1 second TTL
+    }
+
     /**
      * Checks if the Redis connection is healthy.
      *
      * @return true if the connection is healthy
      */
     public boolean isHealthy() {
-        try (Jedis jedis = pool.getResource()) {
+        try (Jedis jedis = borrow()) {
             return "PONG".equals(jedis.ping());
         } catch (Exception e) {
             return false;
         }
     }
+
+    /**
+     * Builder for RedisBackend.
+     */
+    public static final class Builder {
+        private String uri;
+        private JedisPool pool;
+        private String keyPrefix = "efsf:";
+        private Layout layout = Layout.STRING;
+        private long nearCacheBytes;
+        private Duration flushWindow;
+        private int maxBatchSize = 128;
+        private int batchingConnections = 2;
+        private int maxTotal = 10;
+        private int maxIdle = 5;
+        private int minIdle = 1;
+        private Duration borrowTimeout;
+        private Duration idleValidationInterval = Duration.ofSeconds(30);
+        private boolean testOnBorrow;
+
+        private Builder() {}
+
+        /**
+         * Sets the Redis URI to connect to.
+         *
+         * @param uri the Redis URI (e.g., "redis://localhost:6379")
+         * @return this builder
+         */
+        public Builder uri(String uri) {
+            this.uri = uri;
+            return this;
+        }
+
+        /**
+         * Uses an existing JedisPool instead of connecting to a URI.
+         * The backend closes the pool when it is closed.
+         *
+         * @param pool the JedisPool
+         * @return this builder
+         */
+        public Builder pool(JedisPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the pool size limits (defaults 10, 5 and 1).
+         * Pool settings apply only when the backend creates the pool from a URI.
+         *
+         * @param maxTotal the maximum number of connections
+         * @param maxIdle the maximum number of idle connections kept open
+         * @param minIdle the minimum number of idle connections kept open
+         * @return this builder
+         */
+        public Builder poolSize(int maxTotal, int maxIdle, int minIdle) {
+            this.maxTotal = maxTotal;
+            this.maxIdle = maxIdle;
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * Sets how long a borrow waits for a free connection before failing with a
+         * {@link BackendException}. By default it waits indefinitely.
+         *
+         * @param borrowTimeout the maximum wait
+         * @return this builder
+         */
+        public Builder borrowTimeout(Duration borrowTimeout) {
+            this.borrowTimeout = borrowTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how often idle connections are validated with a PING in the background
+         * (default 30 seconds). Broken connections are evicted before a caller borrows them.
+         *
+         * @param interval the validation interval
+         * @return this builder
+         */
+        public Builder idleValidationInterval(Duration interval) {
+            this.idleValidationInterval = interval;
+            return this;
+        }
+
+        /**
+         * Also validates every connection when it is borrowed (default false).
+         * This costs a PING round trip per command.
+         *
+         * @param testOnBorrow whether to validate on borrow
+         * @return this builder
+         */
+        public Builder testOnBorrow(boolean testOnBorrow) {
+            this.testOnBorrow = testOnBorrow;
+            return this;
+        }
+
+        /**
+         * Sets the prefix for all keys (default {@code "efsf:"}).
+         *
+         * @param keyPrefix the key prefix
+         * @return this builder
+         */
+        public Builder keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * Sets how values are laid out in Redis (default {@link Layout#STRING}).
+         * The two layouts cannot share a key prefix: a record written in one is not readable
+         * in the other, so switch layouts under a new prefix and let the old records expire.
+         *
+         * @param layout the layout
+         * @return this builder
+         */
+        public Builder layout(Layout layout) {
+            this.layout = layout;
+            return this;
+        }
+
+        /**
+         * Enables a near cache of up to {@code maxBytes} of stored values for binary reads.
+         * It takes one pooled connection for the invalidation subscription, and requires keyspace
+         * notifications on the server ({@code notify-keyspace-events} including {@code K} and
+         * {@code A}, or {@code K} and {@code g$hxe}); building fails if the server reports them off.
+         *
+         * @param maxBytes the byte budget for cached values
+         * @return this builder
+         */
+        public Builder nearCache(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("Near cache size must be positive");
+            }
+            this.nearCacheBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Enables auto-batching of single-key commands.
+         *
+         * @param flushWindow how long a flush thread waits for more commands after the first
+         *                    one arrives; zero sends whatever is already queued
+         * @param maxBatchSize the maximum number of commands per pipeline
+         * @return this builder
+         */
+        public Builder autoBatching(Duration flushWindow, int maxBatchSize) {
+            this.flushWindow = flushWindow;
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets how many connections (one flush thread each) auto-batching uses (default 2).
+         *
+         * @param connections the number of connections
+         * @return this builder
+         */
+        public Builder batchingConnections(int connections) {
+            this.batchingConnections = connections;
+            return this;
+        }
+
+        /**
+         * Builds the backend.
+         *
+         * @return the backend
+         */
+        public RedisBackend build() {
+            return new RedisBackend(this);
+        }
+
+        private JedisPoolConfig poolConfig() {
+            JedisPoolConfig config = new JedisPoolConfig();
+            config.setMaxTotal(maxTotal);
+            config.setMaxIdle(maxIdle);
+            config.setMinIdle(minIdle);
+            config.setTestOnBorrow(testOnBorrow);
+            config.setTestWhileIdle(true);
+            config.setTimeBetweenEvictionRuns(idleValidationInterval);
+            // Validate every idle connection on each run
+            config.setNumTestsPerEvictionRun(-1);
+            config.setBlockWhenExhausted(true);
+            if (borrowTimeout != null) {
+                config.setMaxWait(borrowTimeout);
+            }
+            return config;
+        }
+    }
+
+    /**
+     * How values are laid out in Redis.
+     */
+    public enum Layout {
+
+        /** Each value is a plain string key, read and written whole. */
+        STRING,
+
+        /**
+         * Each value is a hash with the expiry set on the hash. A record envelope (see
+         * {@link RecordEnvelope}) is split into a {@code prefix} field holding its header prefix
+         * and a {@code rest} field; any other value is stored whole in {@code prefix}. Only that
+         * boundary has a meaning: header-only reads fetch just the {@code prefix} field.
+         * Requires Redis 4.0 or later.
+         */
+        HASH
+    }
 }
@@ -0,0 +1,438 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Redis Cluster storage backend with native TTL support.
+ *
+ * <p>Single-key commands are routed to the owning node by {@link JedisCluster}. Batch operations
+ * group their keys by hash slot, send one MGET or DEL per slot (cluster multi-key commands must
+ * stay within a slot), and pipeline the groups per node, with the nodes' pipelines synced in
+ * parallel. A batch therefore costs one round trip per node, not per key or per slot.
+ *
+ * <p>Keys can carry a hash tag (see {@link Builder#hashTag}) so that related records land in the
+ * same slot, and batches over them become a single command.
+ */
+public final class RedisClusterBackend implements StorageBackend {
+
+    private final JedisCluster cluster;
+    private final String keyPrefix;
+    private final Function<String, String> hashTag;
+
+    private RedisClusterBackend(Builder builder) {
+        if (builder.cluster != null) {
+            this.cluster = builder.cluster;
+        } else if (!builder.nodes.isEmpty()) {
+            try {
+                this.cluster = new JedisCluster(builder.nodes);
+            } catch (Exception e) {
+                throw new BackendException("Failed to connect to Redis Cluster: " + builder.nodes, e);
+            }
+        } else {
+            throw new IllegalArgumentException("Either cluster nodes or a JedisCluster is required");
+        }
+        this.keyPrefix = builder.keyPrefix != null ? builder.keyPrefix : "";
+        this.hashTag = builder.hashTag;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        try {
+            cluster.setex(fullKey(key), toSeconds(ttl), value);
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster SET failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        try {
+            return Optional.ofNullable(cluster.get(fullKey(key)));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster GET failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            return cluster.del(fullKey(key)) > 0;
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster DEL failed for key: " + key, e);
+        }
+    }
+
+    /**
+     * Gets and deletes the value with a single GETDEL command (Redis 6.2+),
+     * which is atomic on the owning node.
+     */
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        try {
+            return Optional.ofNullable(cluster.getDel(fullKey(key)));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster GETDEL failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            return cluster.exists(fullKey(key));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster EXISTS failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<Duration> ttl(String key) {
+        long seconds;
+        try {
+            seconds = cluster.ttl(fullKey(key));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster TTL failed for key: " + key, e);
+        }
+        if (seconds < 0) {
+            return Optional.empty(); // Key doesn't exist or has no TTL
+        }
+        return Optional.of(Duration.ofSeconds(seconds));
+    }
+
+    /**
+     * Stores all entries with SETEX commands pipelined per node.
+     */
+    @Override
+    public void setAll(Map<String, TimedValue> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+                TimedValue timed = entry.getValue();
+                pipeline.setex(fullKey(entry.getKey()), toSeconds(timed.ttl()), timed.value());
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster pipelined SET failed for " + entries.size() + " keys", e);
+        }
+    }
+
+    /**
+     * Gets all values with one MGET per hash slot, pipelined per node.
+     */
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> found = new HashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            List<List<String>> groups = bySlot(keys);
+            List<Response<List<String>>> responses = new ArrayList<>(groups.size());
+            for (List<String> slotKeys : groups) {
+                responses.add(pipeline.mget(fullKeys(slotKeys)));
+            }
+            pipeline.sync();
+            for (int i = 0; i < groups.size(); i++) {
+                collect(groups.get(i), responses.get(i).get(), found);
+            }
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster MGET failed for " + keys.size() + " keys", e);
+        }
+        return inOrder(keys, found);
+    }
+
+    /**
+     * Deletes all keys with one multi-key DEL per hash slot, pipelined per node.
+     */
+    @Override
+    public int deleteAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            List<Response<Long>> responses = new ArrayList<>();
+            for (List<String> slotKeys : bySlot(keys)) {
+                responses.add(pipeline.del(fullKeys(slotKeys)));
+            }
+            pipeline.sync();
+            long deleted = 0;
+            for (Response<Long> response : responses) {
+                deleted += response.get();
+            }
+            return (int) deleted;
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster DEL failed for " + keys.size() + " keys", e);
+        }
+    }
+
+    @Override
+    public void setBytes(String key, byte[] value, Duration ttl) {
+        try {
+            cluster.setex(binaryKey(key), toSeconds(ttl), value);
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster SET failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getBytes(String key) {
+        try {
+            return Optional.ofNullable(cluster.get(binaryKey(key)));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster GET failed for key: " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getAndDeleteBytes(String key) {
+        try {
+            return Optional.ofNullable(cluster.getDel(binaryKey(key)));
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster GETDEL failed for key: " + key, e);
+        }
+    }
+
+    /**
+     * Gets and deletes all binary values with GETDEL commands pipelined per node.
+     * Each key is read and deleted atomically on its owning node.
+     */
+    @Override
+    public Map<String, byte[]> getAndDeleteAllBytes(Collection<String> keys) {
+        Map<String, byte[]> found = new HashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        List<String> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            List<Response<byte[]>> responses = new ArrayList<>(keyList.size());
+            for (String key : keyList) {
+                responses.add(pipeline.getDel(binaryKey(key)));
+            }
+            pipeline.sync();
+            List<byte[]> values = new ArrayList<>(responses.size());
+            for (Response<byte[]> response : responses) {
+                values.add(response.get());
+            }
+            collect(keyList, values, found);
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster pipelined GETDEL failed for " + keys.size() + " keys", e);
+        }
+        return inOrder(keys, found);
+    }
+
+    /**
+     * Stores all binary entries with SETEX commands pipelined per node.
+     */
+    @Override
+    public void setAllBytes(Map<String, TimedBytes> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            for (Map.Entry<String, TimedBytes> entry : entries.entrySet()) {
+                TimedBytes timed = entry.getValue();
+                pipeline.setex(binaryKey(entry.getKey()), toSeconds(timed.ttl()), timed.value());
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster pipelined SET failed for " + entries.size() + " keys", e);
+        }
+    }
+
+    /**
+     * Gets all binary values with one MGET per hash slot, pipelined per node.
+     */
+    @Override
+    public Map<String, byte[]> getAllBytes(Collection<String> keys) {
+        Map<String, byte[]> found = new HashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        try (ClusterPipeline pipeline = cluster.pipelined()) {
+            List<List<String>> groups = bySlot(keys);
+            List<Response<List<byte[]>>> responses = new ArrayList<>(groups.size());
+            for (List<String> slotKeys : groups) {
+                byte[][] binaryKeys = new byte[slotKeys.size()][];
+                for (int i = 0; i < binaryKeys.length; i++) {
+                    binaryKeys[i] = binaryKey(slotKeys.get(i));
+                }
+                responses.add(pipeline.mget(binaryKeys));
+            }
+            pipeline.sync();
+            for (int i = 0; i < groups.size(); i++) {
+                collect(groups.get(i), responses.get(i).get(), found);
+            }
+        } catch (Exception e) {
+            throw new BackendException("Redis Cluster MGET failed for " + keys.size() + " keys", e);
+        }
+        return inOrder(keys, found);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "redis-cluster";
+    }
+
+    @Override
+    public void close() {
+        cluster.close();
+    }
+
+    /**
+     * Gets the hash slot a key is stored in, after the prefix and hash tag are applied.
+     *
+     * @param key the key
+     * @return the slot, from 0 to 16383
+     */
+    public int slotOf(String key) {
+        return JedisClusterCRC16.getSlot(fullKey(key));
+    }
+
+    /**
+     * Groups keys by hash slot, dropping duplicates.
+     */
+    private List<List<String>> bySlot(Collection<String> keys) {
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            groups.computeIfAbsent(slotOf(key), slot -> new ArrayList<>()).add(key);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private String fullKey(String key) {
+        String tag = hashTag != null ? hashTag.apply(key) : null;
+        return tag == null ? keyPrefix + key : keyPrefix + "{" + tag + "}" + key;
+    }
+
+    private String[] fullKeys(List<String> keys) {
+        return keys.stream().map(this::fullKey).toArray(String[]::new);
+    }
+
+    private byte[] binaryKey(String key) {
+        return fullKey(key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <V> void collect(List<String> keys, List<V> values, Map<String, V> found) {
+        for (int i = 0; i < keys.size(); i++) {
+            V value = values.get(i);
+            if (value != null) {
+                found.put(keys.get(i), value);
+            }
+        }
+    }
+
+    private static <V> Map<String, V> inOrder(Collection<String> keys, Map<String, V> found) {
+        Map<String, V> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private static long toSeconds(Duration ttl) {
+        long seconds = ttl.getSeconds();
+        return seconds <= 0 ? 1 : seconds; // Minimum 1 second TTL
+    }
+
+    /**
+     * Builder for RedisClusterBackend.
+     */
+    public static final class Builder {
+        private final Set<HostAndPort> nodes = new LinkedHashSet<>();
+        private JedisCluster cluster;
+        private String keyPrefix = "efsf:";
+        private Function<String, String> hashTag;
+
+        private Builder() {}
+
+        /**
+         * Adds seed nodes to discover the cluster from.
+         *
+         * @param hostAndPorts nodes as {@code host:port}
+         * @return this builder
+         */
+        public Builder nodes(String... hostAndPorts) {
+            for (String hostAndPort : hostAndPorts) {
+                nodes.add(HostAndPort.from(hostAndPort));
+            }
+            return this;
+        }
+
+        /**
+         * Uses an existing JedisCluster, e.g. one configured with credentials or TLS, instead of
+         * connecting to seed nodes. The backend closes it when it is closed.
+         *
+         * @param cluster the JedisCluster
+         * @return this builder
+         */
+        public Builder cluster(JedisCluster cluster) {
+            this.cluster = cluster;
+            return this;
+        }
+
+        /**
+         * Sets the prefix for all keys (default {@code "efsf:"}). It should not contain braces,
+         * which Redis would take as a hash tag.
+         *
+         * @param keyPrefix the key prefix
+         * @return this builder
+         */
+        public Builder keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * Sets a function that picks the hash tag for each key; keys with the same tag share a slot
+         * and node. A null tag leaves the key hashed on its own. Stored keys become
+         * {@code <prefix>{<tag>}<key>}, so the function must be stable for a key across restarts.
+         *
+         * @param hashTag maps a key to its hash tag, or null
+         * @return this builder
+         */
+        public Builder hashTag(Function<String, String> hashTag) {
+            this.hashTag = hashTag;
+            return this;
+        }
+
+        /**
+         * Builds the backend.
+         *
+         * @return the backend
+         */
+        public RedisClusterBackend build() {
+            return new RedisClusterBackend(this);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package app.hideit.store;
+
+import app.hideit.concurrent.WindowedBatcher;
+import app.hideit.exception.BackendException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces single-key commands from many threads into Redis pipelines.
+ *
+ * <p>Each flush thread takes the first queued command, keeps collecting until the flush window
+ * elapses or the batch is full, then sends the whole batch as one pipeline on one pooled
+ * connection. With {@code flusherCount} flush threads, at most that many connections are in
+ * use, and each round trip carries up to {@code maxBatchSize} commands.
+ */
+final class RedisCommandBatcher implements AutoCloseable {
+
+    private final Supplier<Jedis> connections;
+    private final WindowedBatcher<Command<?>> batcher;
+
+    RedisCommandBatcher(Supplier<Jedis> connections, Duration flushWindow, int maxBatchSize, int flusherCount) {
+        if (flushWindow.isNegative()) {
+            throw new IllegalArgumentException("Flush window must not be negative");
+        }
+        if (flusherCount <= 0) {
+            throw new IllegalArgumentException("Batching connections must be positive");
+        }
+        this.connections = connections;
+        this.batcher = new WindowedBatcher<>("Redis command batcher", "efsf-redis-batcher", flusherCount,
+            flushWindow, maxBatchSize, this::flush, BackendException::new);
+    }
+
+    /**
+     * Queues a command for the next pipeline.
+     *
+     * @param command adds the command to a pipeline and returns its response
+     * @param <T> the reply type
+     * @return a future that completes with the command's reply
+     */
+    <T> CompletableFuture<T> submit(Function<Pipeline, Response<T>> command) {
+        Command<T> queued = new Command<>(command, new CompletableFuture<>());
+        batcher.submit(queued);
+        return queued.future();
+    }
+
+    /**
+     * Gets batching statistics: {@code batches} (pipelines sent), {@code commands}
+     * (commands sent in them) and {@code queued} (commands waiting for a flush).
+     *
+     * @return a map of statistics
+     */
+    Map<String, Object> stats() {
+        return Map.of(
+            "batches", batcher.batches(),
+            "commands", batcher.items(),
+            "queued", batcher.queued()
+        );
+    }
+
+    /**
+     * Flushes the commands already queued, then stops the flush threads.
+     */
+    @Override
+    public void close() {
+        batcher.close();
+    }
+
+    private void flush(List<Command<?>> batch) {
+        // A connection-level failure escapes, failing the whole batch: no reply can be trusted
+        try (Jedis jedis = connections.get()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<?>> responses = new ArrayList<>(batch.size());
+            for (Command<?> command : batch) {
+                responses.add(command.command().apply(pipeline));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(responses.get(i));
+            }
+        }
+    }
+
+    private record Command<T>(Function<Pipeline, Response<T>> command, CompletableFuture<T> future)
+            implements WindowedBatcher.Item {
+
+        @SuppressWarnings("unchecked")
+        void complete(Response<?> response) {
+            try {
+                future.complete((T) response.get());
+            } catch (Exception e) {
+                // Command-level error, e.g. WRONGTYPE; the rest of the batch is unaffected
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Feeds Redis keyspace notifications for a key prefix into a {@link NearCache}.
+ *
+ * <p>A daemon thread holds one pooled connection subscribed to {@code __keyspace@*__:<prefix>*}
+ * and invalidates the cached key on every event (writes, deletes, expiry and eviction alike).
+ * The cache is active only while the subscription is up; when the connection drops, the cache is
+ * cleared and the thread resubscribes.
+ */
+final class RedisKeyspaceSubscriber extends JedisPubSub implements AutoCloseable {
+
+    private static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+    private static final String NOTIFY_CONFIG = "notify-keyspace-events";
+
+    private final Supplier<Jedis> connections;
+    private final NearCache cache;
+    private final String keyPrefix;
+    private final String pattern;
+    private final Thread subscriber;
+    private volatile boolean closed;
+
+    RedisKeyspaceSubscriber(Supplier<Jedis> connections, NearCache cache, String keyPrefix) {
+        this.connections = connections;
+        this.cache = cache;
+        this.keyPrefix = keyPrefix;
+        this.pattern = "__keyspace@*__:" + escapeGlob(keyPrefix) + "*";
+        checkNotificationsEnabled();
+        this.subscriber = Thread.ofPlatform()
+            .name("efsf-redis-near-cache")
+            .daemon(true)
+            .start(this::subscribeLoop);
+    }
+
+    @Override
+    public void onPSubscribe(String pattern, int subscribedChannels) {
+        if (closed) {
+            punsubscribe();
+            return;
+        }
+        cache.setActive(true);
+    }
+
+    @Override
+    public void onPMessage(String pattern, String channel, String message) {
+        // Channel is __keyspace@<db>__:<full key>
+        int keyStart = channel.indexOf("__:") + 3;
+        if (keyStart >= 3 && channel.startsWith(keyPrefix, keyStart)) {
+            cache.invalidate(channel.substring(keyStart + keyPrefix.length()));
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (isSubscribed()) {
+            punsubscribe();
+        }
+        try {
+            subscriber.join(RESUBSCRIBE_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cache.setActive(false);
+    }
+
+    private void subscribeLoop() {
+        while (!closed) {
+            try (Jedis jedis = connections.get()) {
+                // Blocks until unsubscribed or the connection fails
+                jedis.psubscribe(this, pattern);
+            } catch (Exception e) {
+                // Resubscribe below
+            } finally {
+                // Invalidations may have been missed while disconnected
+                cache.setActive(false);
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails fast if the server is known to have keyspace notifications off for the events the cache
+     * depends on. Servers that refuse CONFIG GET (e.g. managed services) are trusted.
+     */
+    private void checkNotificationsEnabled() {
+        String flags;
+        try (Jedis jedis = connections.get()) {
+            Map<String, String> config = jedis.configGet(NOTIFY_CONFIG);
+            flags = config != null ? config.get(NOTIFY_CONFIG) : null;
+        } catch (Exception e) {
+            return;
+        }
+        if (flags != null && !(flags.contains("K") && (flags.contains("A") || containsAll(flags, "g$hxe")))) {
+            throw new BackendException("Redis near cache requires keyspace notifications: set "
+                + NOTIFY_CONFIG + " to include K and A (or K and g$hxe), currently '" + flags + "'");
+        }
+    }
+
+    private static boolean containsAll(String flags, String required) {
+        return required.chars().allMatch(flag -> flags.indexOf(flag) >= 0);
+    }
+
+    private static String escapeGlob(String prefix) {
+        StringBuilder escaped = new StringBuilder(prefix.length());
+        for (char c : prefix.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
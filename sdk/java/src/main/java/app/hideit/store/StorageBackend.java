@@ -1,6 +1,9 @@
 package app.hideit.store;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -33,6 +36,24 @@ public interface StorageBackend extends AutoCloseable {
      */
     boolean delete(String key);
 
+    /**
+     * Gets a value and deletes its key in one step, so that of several concurrent callers
+     * only one receives the value.
+     * The default implementation calls {@link #get} and then {@link #delete}, and only returns
+     * the value if this call's delete removed the key; backends that can do both in one
+     * atomic operation should override it.
+     *
+     * @param key the key
+     * @return the value that was deleted, or empty if not found
+     */
+    default Optional<String> getAndDelete(String key) {
+        Optional<String> value = get(key);
+        if (value.isPresent() && delete(key)) {
+            return value;
+        }
+        return Optional.empty();
+    }
+
     /**
      * Checks if a key exists and is not expired.
      *
@@ -49,6 +70,165 @@ public interface StorageBackend extends AutoCloseable {
      */
     Optional<Duration> ttl(String key);
 
+    /**
+     * Stores multiple values, each with its own TTL.
+     * The default implementation calls {@link #set} once per entry;
+     * backends that can batch writes should override it.
+     *
+     * @param entries the values and TTLs to store, by key
+     */
+    default void setAll(Map<String, TimedValue> entries) {
+        for (Map.Entry<String, TimedValue> entry : entries.entrySet()) {
+            set(entry.getKey(), entry.getValue().value(), entry.getValue().ttl());
+        }
+    }
+
+    /**
+     * Gets multiple values by key.
+     * The default implementation calls {@link #get} once per key;
+     * backends that can batch reads should override it.
+     *
+     * @param keys the keys
+     * @return the values that were found, by key; missing keys are omitted
+     */
+    default Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            get(key).ifPresent(value -> result.put(key, value));
+        }
+        return result;
+    }
+
+    /**
+     * Deletes multiple values by key.
+     * The default implementation calls {@link #delete} once per key;
+     * backends that can batch deletes should override it.
+     *
+     * @param keys the keys
+     * @return the number of keys that existed and were deleted
+     */
+    default int deleteAll(Collection<String> keys) {
+        int deleted = 0;
+        for (String key : keys) {
+            if (delete(key)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Stores a binary value with the specified key and TTL.
+     * The default implementation stores the value as Base64 text with {@link #set};
+     * backends that can hold raw bytes should override the binary methods.
+     * The caller must not modify the array afterwards.
+     *
+     * @param key the key
+     * @param value the value
+     * @param ttl the time-to-live
+     */
+    default void setBytes(String key, byte[] value, Duration ttl) {
+        set(key, BinaryValues.encode(value), ttl);
+    }
+
+    /**
+     * Gets a binary value by key.
+     * A value written with {@link #setBytes} is returned unchanged. A value written as text with
+     * {@link #set} is returned as some byte form of that text (Base64-decoded if it is Base64,
+     * otherwise its UTF-8 bytes), so callers can still recognize values written before they
+     * switched to binary.
+     *
+     * @param key the key
+     * @return the value, or empty if not found or expired
+     */
+    default Optional<byte[]> getBytes(String key) {
+        return get(key).map(BinaryValues::decode);
+    }
+
+    /**
+     * Gets a binary value and deletes its key in one step, as {@link #getAndDelete}.
+     *
+     * @param key the key
+     * @return the value that was deleted, or empty if not found
+     */
+    default Optional<byte[]> getAndDeleteBytes(String key) {
+        return getAndDelete(key).map(BinaryValues::decode);
+    }
+
+    /**
+     * Gets multiple binary values and deletes their keys, each key in one step as
+     * {@link #getAndDeleteBytes}, so that of several concurrent callers only one receives each value.
+     * The default implementation calls {@link #getAndDeleteBytes} once per key;
+     * backends that can batch these should override it.
+     *
+     * @param keys the keys
+     * @return the values that this call deleted, by key; missing keys are omitted
+     */
+    default Map<String, byte[]> getAndDeleteAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            getAndDeleteBytes(key).ifPresent(value -> result.put(key, value));
+        }
+        return result;
+    }
+
+    /**
+     * Stores multiple binary values, each with its own TTL.
+     * The default implementation encodes them and calls {@link #setAll}.
+     *
+     * @param entries the values and TTLs to store, by key
+     */
+    default void setAllBytes(Map<String, TimedBytes> entries) {
+        Map<String, TimedValue> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, TimedBytes> entry : entries.entrySet()) {
+            TimedBytes timed = entry.getValue();
+            encoded.put(entry.getKey(), new TimedValue(BinaryValues.encode(timed.value()), timed.ttl()));
+        }
+        setAll(encoded);
+    }
+
+    /**
+     * Gets multiple binary values by key.
+     * The default implementation calls {@link #getAll} and decodes the values.
+     *
+     * @param keys the keys
+     * @return the values that were found, by key; missing keys are omitted
+     */
+    default Map<String, byte[]> getAllBytes(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : getAll(keys).entrySet()) {
+            result.put(entry.getKey(), BinaryValues.decode(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets at least the first {@code length} bytes of a binary value, for callers that only need
+     * a fixed-size header. Backends may return more, up to the whole value; the default
+     * implementation returns the whole value from {@link #getBytes}. Backends that can read
+     * part of a value without transferring the rest should override it.
+     *
+     * @param key the key
+     * @param length the number of leading bytes needed
+     * @return the leading bytes (or the whole value, if shorter), or empty if not found or expired
+     */
+    default Optional<byte[]> getBytesPrefix(String key, int length) {
+        return getBytes(key);
+    }
+
+    /**
+     * Gets at least the first {@code length} bytes of a binary value and deletes its key in one
+     * step, as {@link #getAndDeleteBytes}. The result also carries the length of the whole value.
+     * The default implementation returns the whole value from {@link #getAndDeleteBytes}.
+     *
+     * @param key the key
+     * @param length the number of leading bytes needed
+     * @return the leading bytes and value length of the value that was deleted, or empty if not found
+     */
+    default Optional<ValuePrefix> getAndDeleteBytesPrefix(String key, int length) {
+        return getAndDeleteBytes(key).map(value -> new ValuePrefix(value, value.length));
+    }
+
     /**
      * Gets the name of this backend type.
      *
@@ -61,4 +241,28 @@ public interface StorageBackend extends AutoCloseable {
      */
     @Override
     void close();
+
+    /**
+     * A value paired with the TTL it should be stored with.
+     *
+     * @param value the value
+     * @param ttl the time-to-live
+     */
+    record TimedValue(String value, Duration ttl) {}
+
+    /**
+     * A binary value paired with the TTL it should be stored with.
+     *
+     * @param value the value
+     * @param ttl the time-to-live
+     */
+    record TimedBytes(byte[] value, Duration ttl) {}
+
+    /**
+     * The leading bytes of a stored value, with the length of the whole value.
+     *
+     * @param prefix the leading bytes; may be the whole value
+     * @param length the length of the whole value in bytes
+     */
+    record ValuePrefix(byte[] prefix, long length) {}
 }
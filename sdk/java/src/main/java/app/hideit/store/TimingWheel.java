@@ -0,0 +1,137 @@
+package app.hideit.store;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+/**
+ * A hierarchical timing wheel: six levels of 64 slots, each level covering 64 times the span
+ * of the one below. Timers are placed by deadline in O(1) and migrate down a level each time
+ * the wheel reaches their slot, so advancing the clock only touches timers that are (nearly) due.
+ *
+ * <p>Not thread-safe; owned by a single reaper thread.
+ *
+ * @param <T> the item type
+ */
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final ArrayDeque<Timer<T>>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayDeque[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules an item. It is handed out by the first {@link #advance} whose clock
+     * has reached {@code deadlineMillis}.
+     *
+     * @param item the item
+     * @param deadlineMillis the deadline in epoch millis
+     */
+    void add(T item, long deadlineMillis) {
+        long tick = Math.ceilDiv(deadlineMillis, tickMillis);
+        // The current tick's slot has already been drained, so the earliest is the next one
+        place(new Timer<>(item, tick), currentTick + 1);
+        size++;
+    }
+
+    /**
+     * Advances the clock, moving every item whose deadline has passed into {@code expired}.
+     *
+     * @param nowMillis the current time in epoch millis
+     * @param expired receives the due items
+     */
+    void advance(long nowMillis, Collection<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade every level whose slot boundary was just crossed, highest first,
+            // so timers can fall through several levels in one tick
+            int topLevel = 0;
+            while (topLevel + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (topLevel + 1))) - 1)) == 0) {
+                topLevel++;
+            }
+            for (int level = topLevel; level >= 1; level--) {
+                ArrayDeque<Timer<T>> cascading = detach(level, slotIndex(currentTick, level));
+                if (cascading != null) {
+                    for (Timer<T> timer : cascading) {
+                        place(timer, currentTick);
+                    }
+                }
+            }
+
+            ArrayDeque<Timer<T>> due = detach(0, slotIndex(currentTick, 0));
+            if (due == null) {
+                continue;
+            }
+            for (Timer<T> timer : due) {
+                if (timer.tick() <= currentTick) {
+                    expired.add(timer.item());
+                    size--;
+                } else {
+                    // Deadline was beyond the wheel's span when placed
+                    place(timer, currentTick + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of scheduled items.
+     *
+     * @return the item count
+     */
+    int size() {
+        return size;
+    }
+
+    private void place(Timer<T> timer, long earliestTick) {
+        long tick = Math.max(timer.tick(), earliestTick);
+        tick = Math.min(tick, currentTick + MAX_SPAN - 1);
+        long delta = tick - currentTick;
+
+        int level = 0;
+        while (level + 1 < LEVELS && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        int index = slotIndex(tick, level);
+        ArrayDeque<Timer<T>> slot = slots[level][index];
+        if (slot == null) {
+            slot = new ArrayDeque<>();
+            slots[level][index] = slot;
+        }
+        slot.add(timer);
+    }
+
+    /**
+     * Removes a slot's timers from the wheel. Re-placed timers always land in a different
+     * slot, so the detached deque can be iterated while placing.
+     */
+    private ArrayDeque<Timer<T>> detach(int level, int index) {
+        ArrayDeque<Timer<T>> slot = slots[level][index];
+        slots[level][index] = null;
+        return slot;
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private record Timer<T>(T item, long tick) {}
+}
@@ -3,7 +3,11 @@ package app.hideit.certificate;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -199,4 +203,107 @@ class CertificateTest {
 
         assertTrue(verifier.verify(data, signature));
     }
+
+    @Test
+    @DisplayName("AttestationAuthority signs a batch under one Merkle root")
+    void testSignBatch() {
+        AttestationAuthority authority = AttestationAuthority.create("signer");
+        AttestationAuthority.Verifier verifier =
+            AttestationAuthority.verifierFromPublicKey("verifier", authority.getPublicKeyBytes());
+
+        for (int size : new int[] {2, 3, 5, 8, 13}) {
+            List<DestructionCertificate> certs = newCertificates(size);
+            authority.signBatch(certs);
+
+            for (int i = 0; i < size; i++) {
+                DestructionCertificate cert = certs.get(i);
+                assertEquals(certs.get(0).getSignature(), cert.getSignature());
+                assertEquals(i, cert.getInclusionProof().getLeafIndex());
+                assertEquals(size, cert.getInclusionProof().getLeafCount());
+                assertTrue(authority.verify(cert));
+                assertTrue(verifier.verify(cert));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A batch of one is signed directly")
+    void testSignBatchOfOne() {
+        AttestationAuthority authority = AttestationAuthority.create("signer");
+        List<DestructionCertificate> certs = authority.signBatch(newCertificates(1));
+
+        assertNull(certs.get(0).getInclusionProof());
+        assertTrue(authority.verify(certs.get(0)));
+    }
+
+    @Test
+    @DisplayName("Batch-signed certificates reject tampering and foreign proofs")
+    void testBatchTampering() {
+        AttestationAuthority authority = AttestationAuthority.create("signer");
+        List<DestructionCertificate> certs = authority.signBatch(newCertificates(5));
+        DestructionCertificate cert = certs.get(2);
+
+        // A changed certificate no longer hashes to the root
+        assertFalse(authority.verify(copy(cert, new ResourceInfo("record", "other-id", 100), cert.getInclusionProof())));
+        assertTrue(authority.verify(copy(cert, cert.getResource(), cert.getInclusionProof())));
+
+        // Another leaf's proof does not fit
+        assertFalse(authority.verify(copy(cert, cert.getResource(), certs.get(3).getInclusionProof())));
+
+        // Another authority's key does not verify the root
+        assertFalse(AttestationAuthority.create("other").verify(cert));
+    }
+
+    @Test
+    @DisplayName("Batch-signed certificates survive Map serialization")
+    void testBatchSerialization() {
+        AttestationAuthority authority = AttestationAuthority.create("signer");
+        List<DestructionCertificate> certs = authority.signBatch(newCertificates(3));
+
+        DestructionCertificate restored = DestructionCertificate.fromMap(certs.get(2).toMap());
+
+        assertEquals(certs.get(2).getInclusionProof().getRoot(), restored.getInclusionProof().getRoot());
+        assertEquals(certs.get(2).getInclusionProof().getPath().size(), restored.getInclusionProof().getPath().size());
+        assertTrue(authority.verify(restored));
+    }
+
+    @Test
+    @DisplayName("BatchSigner signs queued certificates in batches")
+    void testBatchSigner() {
+        AttestationAuthority authority = AttestationAuthority.create("signer");
+        try (BatchSigner signer = new BatchSigner(authority, Duration.ofMillis(100), 4)) {
+            List<CompletableFuture<DestructionCertificate>> futures = new ArrayList<>();
+            for (DestructionCertificate cert : newCertificates(10)) {
+                futures.add(signer.submit(cert));
+            }
+            for (CompletableFuture<DestructionCertificate> future : futures) {
+                assertTrue(authority.verify(future.join()));
+            }
+            assertEquals(10L, signer.stats().get("certificates"));
+            assertTrue((long) signer.stats().get("batches") >= 3);
+        }
+    }
+
+    private static List<DestructionCertificate> newCertificates(int count) {
+        List<DestructionCertificate> certs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            certs.add(new DestructionCertificate.Builder()
+                .resource(new ResourceInfo("record", "id-" + i, 100 + i))
+                .method(DestructionMethod.KEY_DESTRUCTION)
+                .build());
+        }
+        return certs;
+    }
+
+    private static DestructionCertificate copy(DestructionCertificate cert, ResourceInfo resource, MerkleProof proof) {
+        return new DestructionCertificate.Builder()
+            .id(cert.getId())
+            .timestamp(cert.getTimestamp())
+            .resource(resource)
+            .method(cert.getMethod())
+            .authorityId(cert.getAuthorityId())
+            .signature(cert.getSignature())
+            .inclusionProof(proof)
+            .build();
+    }
 }
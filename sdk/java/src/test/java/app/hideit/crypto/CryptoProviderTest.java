@@ -5,7 +5,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -168,4 +186,419 @@ class CryptoProviderTest {
         crypto.destroyAllKeys();
         assertEquals(0, crypto.getKeyCount());
     }
+
+    @Test
+    @DisplayName("Pooled ciphers stay correct across keys and threads")
+    void testConcurrentCipherReuse() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String message = "message-" + i;
+                results.add(executor.submit(() -> {
+                    DataEncryptionKey dek = crypto.generateDEK();
+                    EncryptedPayload payload = crypto.encrypt(message, dek);
+                    return message.equals(crypto.decryptToString(payload, dek));
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // A cipher returned to the pool must not carry the previous key into the next operation
+        DataEncryptionKey dek1 = crypto.generateDEK();
+        DataEncryptionKey dek2 = crypto.generateDEK();
+        EncryptedPayload payload = crypto.encrypt("secret data", dek1);
+        assertThrows(CryptoException.class, () -> crypto.decrypt(payload, dek2));
+        assertEquals("secret data", crypto.decryptToString(payload, dek1));
+    }
+
+    @Test
+    @DisplayName("DEK pool serves pre-generated keys and reports exhaustion")
+    void testDekPool() throws InterruptedException {
+        try (CryptoProvider pooled = CryptoProvider.builder().dekPool(1, 0).build()) {
+            awaitPoolSize(pooled, 1);
+
+            DataEncryptionKey first = pooled.generateDEK();
+            DataEncryptionKey second = pooled.generateDEK();
+
+            assertNotEquals(first.getId(), second.getId());
+            assertEquals(1L, pooled.getDekPoolStats().get("hits"));
+            assertEquals(1L, pooled.getDekPoolStats().get("misses"));
+            assertEquals(2, pooled.getKeyCount());
+
+            // Encryption works with pooled keys
+            assertEquals("pooled", pooled.decryptToString(pooled.encrypt("pooled", first), first));
+        }
+    }
+
+    @Test
+    @DisplayName("Closing the provider drains the DEK pool")
+    void testDekPoolClose() throws InterruptedException {
+        CryptoProvider pooled = CryptoProvider.builder().dekPool(4, 2).build();
+        awaitPoolSize(pooled, 4);
+        DataEncryptionKey dek = pooled.generateDEK();
+
+        pooled.close();
+
+        assertEquals(0, pooled.getDekPoolStats().get("size"));
+        assertEquals(0, pooled.getKeyCount());
+        assertTrue(dek.isDestroyed());
+        assertTrue(crypto.getDekPoolStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Keys bound to a record expiry are shredded when it passes")
+    void testKeyExpiry() throws InterruptedException {
+        DataEncryptionKey expiring = crypto.generateDEK(Instant.now().plusMillis(50));
+        DataEncryptionKey longLived = crypto.generateDEK(Instant.now().plusSeconds(3600));
+        assertEquals(2, crypto.getKeyCount());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (crypto.getKeyCount() > 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "Expired key was not shredded in time");
+            Thread.sleep(10);
+        }
+
+        assertTrue(expiring.isDestroyed());
+        assertNull(crypto.getKey(expiring.getId()));
+        assertFalse(longLived.isDestroyed());
+        assertEquals(1L, crypto.getExpiredKeyCount());
+
+        // Explicit destruction cancels the pending expiry
+        assertTrue(crypto.destroyKey(longLived.getId()));
+        assertEquals(0, crypto.getKeyCount());
+        assertEquals(1L, crypto.getExpiredKeyCount());
+    }
+
+    @Test
+    @DisplayName("Records expiring in the same bucket share one bucket key")
+    void testKeyBuckets() {
+        try (CryptoProvider bucketed = CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build()) {
+            Instant expiresAt = Instant.parse("2100-01-01T00:10:00Z");
+            byte[] salt1 = bucketed.generateKeySalt();
+            byte[] salt2 = bucketed.generateKeySalt();
+
+            DataEncryptionKey dek1 = bucketed.deriveDEK("record-1", expiresAt, salt1);
+            DataEncryptionKey dek2 = bucketed.deriveDEK("record-2", expiresAt.plusSeconds(600), salt2);
+            DataEncryptionKey other = bucketed.deriveDEK("record-3", expiresAt.plusSeconds(3600), salt1);
+
+            assertEquals(dek1.getId(), dek2.getId());
+            assertNotEquals(dek1.getId(), other.getId());
+            assertFalse(Arrays.equals(dek1.getBytes(), dek2.getBytes()));
+            assertEquals(2, bucketed.getKeyCount());
+            assertEquals(2, bucketed.getKeyBucketStats().get("buckets"));
+
+            // Re-derivation needs the same record id and salt
+            assertArrayEquals(dek1.getBytes(), bucketed.rederiveDEK(dek1.getId(), "record-1", salt1).getBytes());
+            assertFalse(Arrays.equals(dek1.getBytes(), bucketed.rederiveDEK(dek1.getId(), "record-2", salt1).getBytes()));
+            assertFalse(Arrays.equals(dek1.getBytes(), bucketed.rederiveDEK(dek1.getId(), "record-1", salt2).getBytes()));
+        }
+    }
+
+    @Test
+    @DisplayName("Tombstones shred one record, bucket keys shred the whole bucket")
+    void testKeyBucketShredding() {
+        try (CryptoProvider bucketed = CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build()) {
+            Instant expiresAt = Instant.parse("2100-01-01T00:10:00Z");
+            byte[] salt = bucketed.generateKeySalt();
+            String bucketId = bucketed.deriveDEK("record-1", expiresAt, salt).getId();
+            bucketed.deriveDEK("record-2", expiresAt, salt);
+
+            assertTrue(bucketed.destroyDerivedKey(bucketId, "record-1"));
+            assertFalse(bucketed.destroyDerivedKey(bucketId, "record-1"));
+            assertThrows(CryptoException.class, () -> bucketed.rederiveDEK(bucketId, "record-1", salt));
+            assertNotNull(bucketed.rederiveDEK(bucketId, "record-2", salt));
+            assertEquals(1, bucketed.getKeyBucketStats().get("tombstones"));
+
+            assertTrue(bucketed.destroyKey(bucketId));
+            assertThrows(CryptoException.class, () -> bucketed.rederiveDEK(bucketId, "record-2", salt));
+            assertFalse(bucketed.destroyDerivedKey(bucketId, "record-2"));
+            assertEquals(0, bucketed.getKeyBucketStats().get("buckets"));
+            assertEquals(0, bucketed.getKeyBucketStats().get("tombstones"));
+
+            // A later record in the same window gets a fresh bucket key
+            assertNotEquals(bucketId, bucketed.deriveDEK("record-3", expiresAt, salt).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Bucket keys are shredded when their window ends")
+    void testKeyBucketExpiry() throws InterruptedException {
+        try (CryptoProvider bucketed = CryptoProvider.builder().keyBuckets(Duration.ofMillis(100)).build()) {
+            byte[] salt = bucketed.generateKeySalt();
+            for (int i = 0; i < 100; i++) {
+                bucketed.deriveDEK("record-" + i, Instant.now().plusMillis(50), salt);
+            }
+            assertTrue(bucketed.getKeyCount() <= 2);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (bucketed.getKeyCount() > 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Bucket key was not shredded in time");
+                Thread.sleep(10);
+            }
+            assertEquals(0, bucketed.getKeyBucketStats().get("buckets"));
+            assertTrue(bucketed.getExpiredKeyCount() >= 1);
+        }
+        assertThrows(CryptoException.class,
+            () -> crypto.deriveDEK("record-1", Instant.now(), crypto.generateKeySalt()));
+    }
+
+    @Test
+    @DisplayName("Wrapped DEKs are unwrapped once and then served from the cache")
+    void testKeyWrapping() {
+        CountingKeyEncryption kek = new CountingKeyEncryption(LocalKeyEncryptionProvider.create());
+        try (CryptoProvider wrapping = CryptoProvider.builder().keyEncryption(kek).build()) {
+            Instant expiresAt = Instant.now().plusSeconds(3600);
+            DataEncryptionKey dek = wrapping.generateUnmanagedDEK();
+            byte[] wrapped = wrapping.wrapKey(dek, expiresAt);
+            assertEquals(0, wrapping.getKeyCount());
+
+            // Written through to the cache
+            assertArrayEquals(dek.getBytes(), wrapping.unwrapKey(dek.getId(), wrapped, expiresAt).getBytes());
+            assertEquals(0, kek.unwraps);
+
+            assertTrue(wrapping.destroyKey(dek.getId()));
+            DataEncryptionKey unwrapped = wrapping.unwrapKey(dek.getId(), wrapped, expiresAt);
+            assertArrayEquals(dek.getBytes(), unwrapped.getBytes());
+            assertEquals(1, kek.unwraps);
+
+            // Callers own their copy
+            unwrapped.destroy();
+            wrapping.unwrapKey(dek.getId(), wrapped, expiresAt).getBytes();
+            assertEquals(1, kek.unwraps);
+
+            Map<String, Object> stats = wrapping.getKeyCacheStats();
+            assertEquals(2L, stats.get("hits"));
+            assertEquals(1L, stats.get("misses"));
+            assertEquals(2.0 / 3, (double) stats.get("hit_rate"), 1e-9);
+
+            // The DEK id is bound to the wrapped key
+            assertThrows(CryptoException.class,
+                () -> wrapping.unwrapKey("other-id", wrapped, expiresAt));
+        }
+    }
+
+    @Test
+    @DisplayName("Unwrapped-key cache evicts least recently used keys")
+    void testKeyCacheEviction() {
+        CountingKeyEncryption kek = new CountingKeyEncryption(LocalKeyEncryptionProvider.create());
+        try (CryptoProvider wrapping = CryptoProvider.builder()
+                .keyEncryption(kek)
+                .unwrappedKeyCache(2, Duration.ofMinutes(5))
+                .build()) {
+            Instant expiresAt = Instant.now().plusSeconds(3600);
+            List<DataEncryptionKey> keys = new ArrayList<>();
+            List<byte[]> wrapped = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                keys.add(wrapping.generateUnmanagedDEK());
+                wrapped.add(wrapping.wrapKey(keys.get(i), expiresAt));
+            }
+
+            assertEquals(1L, wrapping.getKeyCacheStats().get("evictions"));
+            assertEquals(2, wrapping.getKeyCacheStats().get("entries"));
+            wrapping.unwrapKey(keys.get(2).getId(), wrapped.get(2), expiresAt);
+            assertEquals(0, kek.unwraps);
+            wrapping.unwrapKey(keys.get(0).getId(), wrapped.get(0), expiresAt);
+            assertEquals(1, kek.unwraps);
+
+            // Keys are never cached past their record's expiry
+            DataEncryptionKey expired = wrapping.generateUnmanagedDEK();
+            byte[] expiredWrapped = wrapping.wrapKey(expired, Instant.now().minusSeconds(1));
+            wrapping.unwrapKey(expired.getId(), expiredWrapped, Instant.now().minusSeconds(1));
+            assertEquals(2, kek.unwraps);
+        }
+    }
+
+    @Test
+    @DisplayName("Key buckets and key encryption cannot be combined")
+    void testKeyWrappingExclusive() {
+        assertThrows(IllegalArgumentException.class, () -> CryptoProvider.builder()
+            .keyBuckets(Duration.ofMinutes(5))
+            .keyEncryption(LocalKeyEncryptionProvider.create())
+            .build());
+        assertThrows(CryptoException.class, () -> crypto.wrapKey(crypto.generateDEK(), Instant.now()));
+    }
+
+    @Test
+    @DisplayName("Local KEK provider persists its key to a file")
+    void testLocalKeyFile() throws IOException {
+        Path dir = Files.createTempDirectory("efsf-kek");
+        Path keyFile = dir.resolve("keys/kek.b64");
+        try {
+            LocalKeyEncryptionProvider first = LocalKeyEncryptionProvider.fromFile(keyFile);
+            byte[] wrapped = first.wrap("key-1", new byte[32]);
+            try (Stream<Path> files = Files.list(keyFile.getParent())) {
+                assertEquals(List.of(keyFile), files.toList());
+            }
+            if (keyFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(keyFile)));
+            }
+
+            LocalKeyEncryptionProvider reloaded = LocalKeyEncryptionProvider.fromFile(keyFile);
+            assertArrayEquals(new byte[32], reloaded.unwrap("key-1", wrapped));
+            assertThrows(CryptoException.class, () -> LocalKeyEncryptionProvider.create().unwrap("key-1", wrapped));
+        } finally {
+            Files.deleteIfExists(keyFile);
+            Files.deleteIfExists(keyFile.getParent());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static final class CountingKeyEncryption implements KeyEncryptionProvider {
+        private final KeyEncryptionProvider delegate;
+        private int unwraps;
+
+        CountingKeyEncryption(KeyEncryptionProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public byte[] wrap(String keyId, byte[] keyMaterial) {
+            return delegate.wrap(keyId, keyMaterial);
+        }
+
+        @Override
+        public byte[] unwrap(String keyId, byte[] wrappedKey) {
+            unwraps++;
+            return delegate.unwrap(keyId, wrappedKey);
+        }
+
+        @Override
+        public String getProviderName() {
+            return "counting";
+        }
+    }
+
+    @Test
+    @DisplayName("Counter nonces share a per-key prefix and never repeat")
+    void testCounterNonces() {
+        DataEncryptionKey dek = crypto.generateDEK();
+        Set<String> nonces = new HashSet<>();
+        byte[] first = crypto.encrypt("data", dek).getNonce();
+        nonces.add(Arrays.toString(first));
+        for (int i = 1; i < 1000; i++) {
+            byte[] nonce = crypto.encrypt("data", dek).getNonce();
+            assertArrayEquals(Arrays.copyOf(first, 8), Arrays.copyOf(nonce, 8));
+            assertEquals(i, ((nonce[10] & 0xff) << 8) | (nonce[11] & 0xff));
+            nonces.add(Arrays.toString(nonce));
+        }
+        assertEquals(1000, nonces.size());
+        assertEquals(1000L, dek.getUseCount());
+
+        // Another instance of the same key material gets its own prefix
+        DataEncryptionKey restored = DataEncryptionKey.fromBytes(dek.getId(), dek.getBytes());
+        byte[] restoredNonce = crypto.encrypt("data", restored).getNonce();
+        assertFalse(Arrays.equals(Arrays.copyOf(first, 8), Arrays.copyOf(restoredNonce, 8)));
+        assertEquals("data", crypto.decryptToString(crypto.encrypt("data", restored), dek));
+    }
+
+    @Test
+    @DisplayName("Keys must be rotated once the nonce strategy's limit is reached")
+    void testNonceRekeyLimit() {
+        try (CryptoProvider limited = CryptoProvider.builder().nonceStrategy(NonceStrategy.counter(3)).build()) {
+            DataEncryptionKey dek = limited.generateDEK();
+            for (int i = 0; i < 3; i++) {
+                limited.encrypt("data", dek);
+            }
+            assertThrows(CryptoException.class, () -> limited.encrypt("data", dek));
+            assertNotNull(limited.encrypt("data", limited.generateDEK()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> NonceStrategy.counter((1L << 32) + 1));
+    }
+
+    @Test
+    @DisplayName("Random nonce strategy still round-trips")
+    void testRandomNonces() {
+        try (CryptoProvider random = CryptoProvider.builder().nonceStrategy(NonceStrategy.random()).build()) {
+            DataEncryptionKey dek = random.generateDEK();
+            EncryptedPayload first = random.encrypt("data", dek);
+            EncryptedPayload second = random.encrypt("data", dek);
+
+            assertFalse(Arrays.equals(first.getNonce(), second.getNonce()));
+            assertEquals("data", random.decryptToString(second, dek));
+            assertEquals(2L, dek.getUseCount());
+        }
+    }
+
+    @Test
+    @DisplayName("ByteBuffer encryption round-trips through heap and direct buffers")
+    void testByteBufferRoundTrip() {
+        DataEncryptionKey dek = crypto.generateDEK();
+        byte[] plaintext = "buffer data".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer src = ByteBuffer.allocateDirect(plaintext.length).put(plaintext).flip();
+        ByteBuffer ciphertext = ByteBuffer.allocateDirect(CryptoProvider.ciphertextLength(plaintext.length));
+        byte[] nonce = crypto.encrypt(src, ciphertext, dek);
+        assertFalse(src.hasRemaining());
+        assertFalse(ciphertext.hasRemaining());
+        ciphertext.flip();
+
+        ByteBuffer decrypted = ByteBuffer.allocate(CryptoProvider.plaintextLength(ciphertext.remaining()));
+        assertEquals(plaintext.length, crypto.decrypt(ciphertext, nonce, decrypted, dek));
+        assertArrayEquals(plaintext, decrypted.array());
+
+        // Interoperates with the array API
+        byte[] copy = new byte[CryptoProvider.ciphertextLength(plaintext.length)];
+        ciphertext.flip().get(copy);
+        assertArrayEquals(plaintext, crypto.decrypt(new EncryptedPayload(copy, nonce, dek.getId()), dek));
+    }
+
+    @Test
+    @DisplayName("Payloads decrypt into caller-provided buffers")
+    void testDecryptIntoBuffer() {
+        DataEncryptionKey dek = crypto.generateDEK();
+        EncryptedPayload payload = crypto.encrypt("pooled", dek);
+
+        ByteBuffer dst = ByteBuffer.allocateDirect(64);
+        int written = crypto.decrypt(payload, dst, dek);
+
+        assertEquals(6, written);
+        assertEquals(6, dst.position());
+        byte[] plaintext = new byte[written];
+        dst.flip().get(plaintext);
+        assertEquals("pooled", new String(plaintext, StandardCharsets.UTF_8));
+        // The payload is untouched and can be decrypted again
+        assertEquals("pooled", crypto.decryptToString(payload, dek));
+
+        ByteBuffer tooSmall = ByteBuffer.allocate(2);
+        assertThrows(CryptoException.class, () -> crypto.decrypt(payload, tooSmall, dek));
+    }
+
+    @Test
+    @DisplayName("EncryptedPayload views are read-only and match the copies")
+    void testPayloadViews() {
+        DataEncryptionKey dek = crypto.generateDEK();
+        EncryptedPayload payload = crypto.encrypt("view", dek);
+
+        ByteBuffer ciphertext = payload.getCiphertextBuffer();
+        assertTrue(ciphertext.isReadOnly());
+        assertEquals(payload.getCiphertextLength(), ciphertext.remaining());
+        assertEquals(ByteBuffer.wrap(payload.getCiphertext()), ciphertext);
+        assertEquals(ByteBuffer.wrap(payload.getNonce()), payload.getNonceBuffer());
+        assertThrows(ReadOnlyBufferException.class, () -> ciphertext.put(0, (byte) 1));
+        assertThrows(ReadOnlyBufferException.class, () -> payload.getNonceBuffer().put(0, (byte) 1));
+
+        // A wrapped slice of a larger array behaves like the original
+        byte[] padded = new byte[payload.getCiphertextLength() + 8];
+        System.arraycopy(payload.getCiphertext(), 0, padded, 4, payload.getCiphertextLength());
+        EncryptedPayload wrapped = EncryptedPayload.wrap(padded, 4, payload.getCiphertextLength(), payload.getNonce(), dek.getId());
+        assertEquals(payload, wrapped);
+        assertEquals(payload.hashCode(), wrapped.hashCode());
+        assertEquals("view", crypto.decryptToString(wrapped, dek));
+
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> EncryptedPayload.wrap(padded, 10, padded.length, payload.getNonce(), dek.getId()));
+    }
+
+    private static void awaitPoolSize(CryptoProvider provider, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((int) provider.getDekPoolStats().get("size") < size) {
+            assertTrue(System.currentTimeMillis() < deadline, "DEK pool was not refilled in time");
+            Thread.sleep(10);
+        }
+    }
 }
@@ -1,10 +1,15 @@
 package app.hideit.record;
 
+import app.hideit.crypto.CryptoProvider;
+import app.hideit.crypto.DataEncryptionKey;
+import app.hideit.crypto.EncryptedPayload;
+import app.hideit.exception.EfsfException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -146,4 +151,134 @@ class RecordTest {
         // PERSISTENT allows null TTL
         assertTrue(DataClassification.PERSISTENT.isValidTTL(null));
     }
+
+    @Test
+    @DisplayName("RecordEnvelope round-trips through its binary form")
+    void testEnvelopeRoundTrip() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EncryptedPayload payload = crypto.encrypt("secret", dek);
+        EphemeralRecord record = EphemeralRecord.create("2h", DataClassification.SHORT_LIVED);
+
+        byte[] bytes = new RecordEnvelope(record, dek, payload).toBytes();
+        assertTrue(RecordEnvelope.isEnvelope(bytes));
+
+        RecordEnvelope decoded = RecordEnvelope.fromBytes(bytes);
+        assertEquals(record.getId(), decoded.getRecord().getId());
+        assertEquals(DataClassification.SHORT_LIVED, decoded.getRecord().getClassification());
+        assertEquals(record.getExpiresAt().toEpochMilli(), decoded.getRecord().getExpiresAt().toEpochMilli());
+        assertEquals(Duration.ofHours(2), decoded.getRecord().getTtl());
+        assertEquals(dek.getId(), decoded.getKey().getId());
+        assertEquals("secret", crypto.decryptToString(decoded.getPayload(), decoded.getKey()));
+    }
+
+    @Test
+    @DisplayName("RecordEnvelope decodes its payload without copying the ciphertext")
+    void testEnvelopePayloadView() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EncryptedPayload payload = crypto.encrypt("secret", dek);
+        byte[] bytes = new RecordEnvelope(EphemeralRecord.create("1h"), dek, payload).toBytes();
+
+        EncryptedPayload decoded = RecordEnvelope.fromBytes(bytes).getPayload();
+        assertEquals(payload, decoded);
+        assertEquals("secret", crypto.decryptToString(decoded, dek));
+
+        // The payload reads the stored bytes in place
+        bytes[bytes.length - 1] ^= 1;
+        assertNotEquals(payload, decoded);
+    }
+
+    @Test
+    @DisplayName("RecordEnvelope carries the stream flag in its header")
+    void testEnvelopeStreamFlag() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EphemeralRecord record = EphemeralRecord.create("1h");
+        RecordEnvelope envelope = new RecordEnvelope(record, dek, crypto.encrypt("manifest", dek));
+        byte[] bytes = envelope.asStream().toBytes();
+
+        assertFalse(RecordEnvelope.readHeader(envelope.toBytes()).stream());
+        assertTrue(RecordEnvelope.readHeader(Arrays.copyOf(bytes, RecordEnvelope.HEADER_PREFIX_LENGTH)).stream());
+        RecordEnvelope decoded = RecordEnvelope.fromBytes(bytes);
+        assertTrue(decoded.isStream());
+        assertEquals(dek.getId(), decoded.getKey().getId());
+        assertEquals("manifest", crypto.decryptToString(decoded.getPayload(), decoded.getKey()));
+    }
+
+    @Test
+    @DisplayName("RecordEnvelope rejects truncated input")
+    void testEnvelopeTruncated() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        byte[] bytes = new RecordEnvelope(EphemeralRecord.create("1h"), dek, crypto.encrypt("secret", dek)).toBytes();
+
+        assertThrows(EfsfException.class, () -> RecordEnvelope.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(EfsfException.class, () -> RecordEnvelope.fromBytes("not an envelope".getBytes()));
+    }
+
+    @Test
+    @DisplayName("RecordEnvelope header can be read from the leading bytes alone")
+    void testEnvelopeHeaderPrefix() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EphemeralRecord record = EphemeralRecord.create("30m", DataClassification.TRANSIENT);
+        byte[] bytes = new RecordEnvelope(record, dek, crypto.encrypt("secret", dek)).toBytes();
+
+        RecordEnvelope.Header header = RecordEnvelope.readHeader(Arrays.copyOf(bytes, RecordEnvelope.HEADER_PREFIX_LENGTH));
+
+        assertEquals(record.getId(), header.record().getId());
+        assertEquals(dek.getId(), header.keyId());
+        assertEquals(record.getExpiresAt().toEpochMilli(), header.record().getExpiresAt().toEpochMilli());
+        assertFalse(header.record().isExpired());
+        assertFalse(header.derivedKey());
+    }
+
+    @Test
+    @DisplayName("Derived-key envelopes carry the salt instead of the key")
+    void testDerivedKeyEnvelope() {
+        CryptoProvider crypto = CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build();
+        EphemeralRecord record = EphemeralRecord.create("30m", DataClassification.TRANSIENT);
+        byte[] salt = crypto.generateKeySalt();
+        DataEncryptionKey dek = crypto.deriveDEK(record.getId(), record.getExpiresAt(), salt);
+        byte[] bytes = RecordEnvelope.derivedKey(record, salt, crypto.encrypt("secret", dek)).toBytes();
+
+        RecordEnvelope.Header header = RecordEnvelope.readHeader(Arrays.copyOf(bytes, RecordEnvelope.HEADER_PREFIX_LENGTH));
+        assertTrue(header.derivedKey());
+        assertEquals(dek.getId(), header.keyId());
+
+        RecordEnvelope decoded = RecordEnvelope.fromBytes(bytes);
+        assertTrue(decoded.isDerivedKey());
+        assertNull(decoded.getKey());
+        assertArrayEquals(salt, decoded.getKeySalt());
+        DataEncryptionKey derived = crypto.rederiveDEK(header.keyId(), record.getId(), decoded.getKeySalt());
+        assertEquals("secret", crypto.decryptToString(decoded.getPayload(), derived));
+        crypto.close();
+    }
+
+    @Test
+    @DisplayName("Wrapped-key envelopes carry a variable-length wrapped key")
+    void testWrappedKeyEnvelope() {
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EphemeralRecord record = EphemeralRecord.create("30m", DataClassification.TRANSIENT);
+
+        for (int length : new int[] {0, 60, 300}) {
+            byte[] wrappedKey = new byte[length];
+            Arrays.fill(wrappedKey, (byte) 7);
+            byte[] bytes = RecordEnvelope.wrappedKey(record, wrappedKey, crypto.encrypt("secret", dek)).toBytes();
+
+            assertTrue(RecordEnvelope.isEnvelope(bytes));
+            RecordEnvelope.Header header = RecordEnvelope.readHeader(Arrays.copyOf(bytes, RecordEnvelope.HEADER_PREFIX_LENGTH));
+            assertEquals(dek.getId(), header.keyId());
+            assertFalse(header.derivedKey());
+
+            RecordEnvelope decoded = RecordEnvelope.fromBytes(bytes);
+            assertTrue(decoded.isWrappedKey());
+            assertNull(decoded.getKey());
+            assertArrayEquals(wrappedKey, decoded.getWrappedKey());
+            assertEquals("secret", crypto.decryptToString(decoded.getPayload(), dek));
+            assertThrows(EfsfException.class, () -> RecordEnvelope.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        }
+    }
 }
@@ -3,17 +3,44 @@ package app.hideit.store;
 import app.hideit.EphemeralStore;
 import app.hideit.certificate.AttestationAuthority;
 import app.hideit.certificate.DestructionCertificate;
+import app.hideit.exception.EfsfException;
 import app.hideit.exception.RecordExpiredException;
 import app.hideit.exception.RecordNotFoundException;
+import app.hideit.crypto.CryptoProvider;
+import app.hideit.crypto.DataEncryptionKey;
+import app.hideit.crypto.LocalKeyEncryptionProvider;
 import app.hideit.record.DataClassification;
 import app.hideit.record.EphemeralRecord;
+import app.hideit.record.RecordEnvelope;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -95,6 +122,31 @@ class EphemeralStoreTest {
         assertEquals("value", result.get().get("key"));
     }
 
+    @Test
+    @DisplayName("GetRecord returns metadata without decrypting")
+    void testGetRecord() {
+        EphemeralRecord record = store.put(Map.of("data", "value"), "2h", DataClassification.SHORT_LIVED);
+
+        EphemeralRecord metadata = store.getRecord(record.getId());
+
+        assertEquals(record.getId(), metadata.getId());
+        assertEquals(DataClassification.SHORT_LIVED, metadata.getClassification());
+        assertEquals(record.getExpiresAt().toEpochMilli(), metadata.getExpiresAt().toEpochMilli());
+        assertEquals(0L, store.stats().get("gets"));
+    }
+
+    @Test
+    @DisplayName("GetRecord throws for missing and expired records")
+    void testGetRecordMissingOrExpired() throws InterruptedException {
+        assertThrows(RecordNotFoundException.class, () -> store.getRecord("nonexistent-id"));
+
+        EphemeralRecord record = store.put(Map.of("data", "value"), Duration.ofMillis(50));
+        Thread.sleep(100);
+
+        assertThrows(RecordExpiredException.class, () -> store.getRecord(record.getId()));
+        assertThrows(RecordNotFoundException.class, () -> store.getRecord(record.getId()));
+    }
+
     @Test
     @DisplayName("Destroy returns destruction certificate")
     void testDestroy() {
@@ -110,6 +162,25 @@ class EphemeralStoreTest {
         assertFalse(store.exists(record.getId()));
     }
 
+    @Test
+    @DisplayName("GetRecord and destroy read only the envelope header from backends with partial reads")
+    void testHeaderOnlyReads() {
+        PrefixBackend backend = new PrefixBackend();
+        store = EphemeralStore.builder()
+            .backend(backend)
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord record = store.put(Map.of("data", "x".repeat(1000)), "30m");
+        long size = backend.memory.getBytes(record.getId()).orElseThrow().length;
+
+        assertEquals(record.getId(), store.getRecord(record.getId()).getId());
+        DestructionCertificate cert = store.destroy(record.getId());
+        assertEquals(size, cert.getResource().getSizeBytes());
+        assertEquals(0, backend.fullReads);
+        assertFalse(store.exists(record.getId()));
+    }
+
     @Test
     @DisplayName("Destroy with attestation authority signs certificate")
     void testDestroyWithAttestation() {
@@ -127,12 +198,298 @@ class EphemeralStoreTest {
         assertTrue(authority.verify(cert));
     }
 
+    @Test
+    @DisplayName("Batch signing signs concurrent destroys under one Merkle root")
+    void testDestroyWithBatchSigning() {
+        AttestationAuthority authority = AttestationAuthority.create();
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .authority(authority)
+            .batchSigning(Duration.ofMillis(200), 64)
+            .defaultTTL("1h")
+            .build();
+
+        List<CompletableFuture<DestructionCertificate>> destroys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            destroys.add(store.destroyAsync(store.put(Map.of("n", i), "30m").getId()));
+        }
+        DestructionCertificate sync = store.destroy(store.put(Map.of("n", 5), "30m").getId());
+
+        List<DestructionCertificate> certs = new ArrayList<>();
+        destroys.forEach(destroy -> certs.add(destroy.join()));
+        certs.add(sync);
+        for (DestructionCertificate cert : certs) {
+            assertTrue(cert.isSigned());
+            assertTrue(authority.verify(cert));
+        }
+        assertNotNull(certs.get(0).getInclusionProof());
+        assertEquals(certs.get(0).getInclusionProof().getRoot(), certs.get(1).getInclusionProof().getRoot());
+    }
+
+    @Test
+    @DisplayName("Batch signing splits destroyAll into batches")
+    void testDestroyAllWithBatchSigning() {
+        AttestationAuthority authority = AttestationAuthority.create();
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .authority(authority)
+            .batchSigning(Duration.ofMillis(10), 4)
+            .defaultTTL("1h")
+            .build();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(store.put(Map.of("n", i), "30m").getId());
+        }
+        List<DestructionCertificate> certs = store.destroyAll(ids);
+
+        assertEquals(10, certs.size());
+        for (DestructionCertificate cert : certs) {
+            assertTrue(authority.verify(cert));
+        }
+        assertEquals(4, certs.get(0).getInclusionProof().getLeafCount());
+        assertEquals(2, certs.get(9).getInclusionProof().getLeafCount());
+        assertNotEquals(certs.get(0).getInclusionProof().getRoot(), certs.get(4).getInclusionProof().getRoot());
+    }
+
+    @Test
+    @DisplayName("Deferred destroy issues the certificate in the background")
+    void testDestroyDeferred() {
+        AttestationAuthority authority = AttestationAuthority.create();
+        List<DestructionCertificate> delivered = new CopyOnWriteArrayList<>();
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .authority(authority)
+            .certificateSink(delivered::add)
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord record = store.put(Map.of("data", "value"), "30m");
+        CompletableFuture<DestructionCertificate> pending = store.destroyDeferred(record.getId());
+
+        // Data and key are gone before the certificate is issued
+        assertFalse(store.exists(record.getId()));
+        assertEquals(0, store.stats().get("active_keys"));
+
+        DestructionCertificate cert = pending.join();
+        assertEquals(record.getId(), cert.getResource().getResourceId());
+        assertTrue(authority.verify(cert));
+        assertEquals(List.of(cert), delivered);
+        assertThrows(RecordNotFoundException.class, () -> store.destroyDeferred(record.getId()));
+    }
+
+    @Test
+    @DisplayName("Deferred destroy blocks when too many certificates are pending")
+    void testDestroyDeferredBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .certificateSink(cert -> release.await())
+            .maxPendingCertificates(2)
+            .defaultTTL("1h")
+            .build();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(store.put(Map.of("n", i), "30m").getId());
+        }
+        CompletableFuture<DestructionCertificate> first = store.destroyDeferred(ids.get(0));
+        CompletableFuture<DestructionCertificate> second = store.destroyDeferred(ids.get(1));
+        assertEquals(2, store.stats().get("pending_certificates"));
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<CompletableFuture<DestructionCertificate>> third = caller.submit(() -> store.destroyDeferred(ids.get(2)));
+            Thread.sleep(100);
+            assertFalse(third.isDone());
+            assertTrue(store.exists(ids.get(2)));
+
+            release.countDown();
+            third.get().join();
+            first.join();
+            second.join();
+        } finally {
+            caller.shutdownNow();
+        }
+        assertFalse(store.exists(ids.get(2)));
+        assertEquals(0, store.stats().get("pending_certificates"));
+    }
+
+    @Test
+    @DisplayName("Deferred destroy reports sink failures through the future")
+    void testDestroyDeferredSinkFailure() {
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .certificateSink(cert -> {
+                throw new IllegalStateException("audit log unavailable");
+            })
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord record = store.put(Map.of("data", "value"), "30m");
+        CompletionException error = assertThrows(CompletionException.class,
+            () -> store.destroyDeferred(record.getId()).join());
+
+        assertInstanceOf(EfsfException.class, error.getCause());
+        assertFalse(store.exists(record.getId()));
+        assertEquals(0, store.stats().get("pending_certificates"));
+    }
+
+    @Test
+    @DisplayName("Close is idempotent and deferred destroys fail fast afterwards")
+    void testCloseTwice() {
+        EphemeralRecord record = store.put(Map.of("data", "value"), "30m");
+        store.destroyDeferred(record.getId()).join();
+
+        store.close();
+        store.close();
+
+        assertThrows(EfsfException.class, () -> store.destroyDeferred(record.getId()));
+    }
+
+    @Test
+    @DisplayName("Key buckets shred records individually and by bucket")
+    void testKeyBuckets() {
+        store = EphemeralStore.builder()
+            .backend(new MemoryBackend())
+            .crypto(CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build())
+            .defaultTTL("1h")
+            .build();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(store.put(Map.of("n", i), "30m").getId());
+        }
+        assertTrue((int) store.stats().get("active_keys") <= 2);
+        assertEquals(7, store.get(ids.get(7)).get("n"));
+
+        store.destroy(ids.get(0));
+        assertFalse(store.exists(ids.get(0)));
+        assertEquals(8, store.get(ids.get(8)).get("n"));
+        assertEquals(2, store.destroyAll(ids.subList(1, 3)).size());
+        assertTrue((int) store.stats().get("active_keys") <= 2);
+    }
+
+    @Test
+    @DisplayName("A destroyed bucketed record stays unreadable from a copy of its value")
+    void testKeyBucketTombstone() {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder()
+            .backend(backend)
+            .crypto(CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build())
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord record = store.put(Map.of("data", "value"), "30m");
+        byte[] copy = backend.getBytes(record.getId()).get();
+        assertTrue(RecordEnvelope.readHeader(copy).derivedKey());
+
+        store.destroy(record.getId());
+        backend.setBytes(record.getId(), copy, Duration.ofMinutes(5));
+        assertThrows(EfsfException.class, () -> store.get(record.getId()));
+    }
+
+    @Test
+    @DisplayName("Key encryption stores DEKs wrapped and keeps reads working")
+    void testKeyEncryption() {
+        MemoryBackend backend = new MemoryBackend();
+        CryptoProvider crypto = CryptoProvider.builder()
+            .keyEncryption(LocalKeyEncryptionProvider.create())
+            .unwrappedKeyCache(1, Duration.ofMinutes(5))
+            .build();
+        store = EphemeralStore.builder()
+            .backend(backend)
+            .crypto(crypto)
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord first = store.put(Map.of("data", "1"), "30m");
+        EphemeralRecord second = store.put(Map.of("data", "2"), "30m");
+        assertTrue(RecordEnvelope.fromBytes(backend.getBytes(first.getId()).get()).isWrappedKey());
+        assertEquals(0, store.stats().get("active_keys"));
+
+        // The first key was evicted by the second, so this read unwraps it again
+        assertEquals("1", store.get(first.getId()).get("data"));
+        assertEquals("1", store.get(first.getId()).get("data"));
+        assertEquals("2", store.get(second.getId()).get("data"));
+        assertEquals(1L, crypto.getKeyCacheStats().get("hits"));
+
+        store.destroy(first.getId());
+        assertFalse(store.exists(first.getId()));
+        assertEquals("2", store.get(second.getId()).get("data"));
+    }
+
+    @Test
+    @DisplayName("Batch signing requires an authority")
+    void testBatchSigningRequiresAuthority() {
+        assertThrows(IllegalArgumentException.class, () -> EphemeralStore.builder()
+            .batchSigning(Duration.ofMillis(10), 4)
+            .build());
+    }
+
     @Test
     @DisplayName("Destroy throws RecordNotFoundException for missing record")
     void testDestroyNotFound() {
         assertThrows(RecordNotFoundException.class, () -> store.destroy("nonexistent-id"));
     }
 
+    @Test
+    @DisplayName("Concurrent destroys of one record issue a single certificate")
+    void testConcurrentDestroy() throws Exception {
+        EphemeralRecord record = store.put(Map.of("data", "value"), "1h");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<DestructionCertificate>> destroys = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                destroys.add(() -> store.destroy(record.getId()));
+            }
+            int certificates = 0;
+            for (Future<DestructionCertificate> result : executor.invokeAll(destroys)) {
+                try {
+                    result.get();
+                    certificates++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(RecordNotFoundException.class, e.getCause());
+                }
+            }
+            assertEquals(1, certificates);
+            assertEquals(1L, store.stats().get("destroys"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent destroyAll calls issue one certificate per record")
+    void testConcurrentDestroyAll() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 200; round++) {
+                List<String> ids = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    ids.add(store.put(Map.of("n", i), "30m").getId());
+                }
+                List<Callable<List<DestructionCertificate>>> destroys = List.of(
+                    () -> store.destroyAll(ids),
+                    () -> store.destroyAll(ids)
+                );
+
+                List<String> certified = new ArrayList<>();
+                for (Future<List<DestructionCertificate>> result : executor.invokeAll(destroys)) {
+                    for (DestructionCertificate cert : result.get()) {
+                        certified.add(cert.getResource().getResourceId());
+                    }
+                }
+                assertEquals(50, certified.size());
+                assertEquals(50, new HashSet<>(certified).size());
+            }
+            assertEquals(10_000L, store.stats().get("destroys"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     @DisplayName("TTL returns remaining time")
     void testTTL() {
@@ -182,6 +539,19 @@ class EphemeralStoreTest {
         assertThrows(RecordExpiredException.class, () -> store.get(record.getId()));
     }
 
+    @Test
+    @DisplayName("Keys of expired records are shredded without an explicit destroy")
+    void testExpiredRecordKeyShredded() throws InterruptedException {
+        store.put(Map.of("data", "value"), Duration.ofMillis(50));
+        assertEquals(1, store.stats().get("active_keys"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((int) store.stats().get("active_keys") > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "Key was not shredded in time");
+            Thread.sleep(10);
+        }
+    }
+
     @Test
     @DisplayName("Data is encrypted at rest")
     void testEncryption() {
@@ -195,13 +565,53 @@ class EphemeralStoreTest {
         EphemeralRecord record = store.put(data, "30m");
 
         // Get raw stored value from backend
-        String raw = backend.get(record.getId()).orElseThrow();
+        byte[] envelope = backend.getBytes(record.getId()).orElseThrow();
 
         // Raw value should not contain plaintext
-        assertFalse(raw.contains("password123"));
-        // But should contain encryption indicators
-        assertTrue(raw.contains("ciphertext"));
-        assertTrue(raw.contains("nonce"));
+        assertFalse(new String(envelope, StandardCharsets.ISO_8859_1).contains("password123"));
+        // But should be a binary record envelope, stored without Base64
+        assertTrue(RecordEnvelope.isEnvelope(envelope));
+    }
+
+    @Test
+    @DisplayName("Envelopes stored as Base64 text remain readable")
+    void testBase64EnvelopeRecord() {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder()
+            .backend(backend)
+            .defaultTTL("1h")
+            .build();
+
+        EphemeralRecord record = store.put(Map.of("user_id", "text"), "30m");
+        byte[] envelope = backend.getBytes(record.getId()).orElseThrow();
+        backend.set(record.getId(), Base64.getEncoder().encodeToString(envelope), Duration.ofMinutes(30));
+
+        assertEquals("text", store.get(record.getId()).get("user_id"));
+        assertEquals(record.getId(), store.getRecord(record.getId()).getId());
+        assertEquals(envelope.length, store.destroy(record.getId()).getResource().getSizeBytes());
+    }
+
+    @Test
+    @DisplayName("Records stored in the legacy JSON layout remain readable")
+    void testLegacyJsonRecord() throws Exception {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder()
+            .backend(backend)
+            .defaultTTL("1h")
+            .build();
+
+        CryptoProvider crypto = new CryptoProvider();
+        DataEncryptionKey dek = crypto.generateDEK();
+        EphemeralRecord record = EphemeralRecord.create("30m");
+
+        Map<String, Object> legacy = new LinkedHashMap<>();
+        legacy.put("record", record.toMap());
+        legacy.put("payload", crypto.encryptJson(Map.of("user_id", "legacy"), dek).toMap());
+        legacy.put("key", dek.toBase64());
+        backend.set(record.getId(), new ObjectMapper().writeValueAsString(legacy), Duration.ofMinutes(30));
+
+        assertEquals("legacy", store.get(record.getId()).get("user_id"));
+        assertEquals(record.getId(), store.destroy(record.getId()).getResource().getResourceId());
     }
 
     @Test
@@ -226,4 +636,321 @@ class EphemeralStoreTest {
         Map<String, String> result = store.get(record.getId(), Map.class);
         assertEquals("Test", result.get("name"));
     }
+
+    @Test
+    @DisplayName("PutAll and getAll round-trip multiple records")
+    void testPutAllAndGetAll() {
+        Map<Object, Duration> entries = new LinkedHashMap<>();
+        entries.put(Map.of("user_id", "1"), Duration.ofMinutes(30));
+        entries.put(Map.of("user_id", "2"), null);
+
+        Map<Object, EphemeralRecord> records = store.putAll(entries);
+        assertEquals(2, records.size());
+
+        List<String> ids = records.values().stream().map(EphemeralRecord::getId).toList();
+        Map<String, Map<String, Object>> retrieved = store.getAll(List.of(ids.get(0), "nonexistent-id", ids.get(1)));
+
+        assertEquals(2, retrieved.size());
+        assertEquals("1", retrieved.get(ids.get(0)).get("user_id"));
+        assertEquals("2", retrieved.get(ids.get(1)).get("user_id"));
+        assertEquals(2L, store.stats().get("puts"));
+        assertEquals(2L, store.stats().get("gets"));
+    }
+
+    @Test
+    @DisplayName("GetAll omits and deletes expired records")
+    void testGetAllSkipsExpired() throws InterruptedException {
+        EphemeralRecord expired = store.put(Map.of("data", "old"), Duration.ofMillis(50));
+        EphemeralRecord live = store.put(Map.of("data", "new"), "30m");
+
+        Thread.sleep(100);
+
+        Map<String, Map<String, Object>> retrieved = store.getAll(List.of(expired.getId(), live.getId()));
+        assertEquals(1, retrieved.size());
+        assertTrue(retrieved.containsKey(live.getId()));
+        assertThrows(RecordNotFoundException.class, () -> store.get(expired.getId()));
+    }
+
+    @Test
+    @DisplayName("DestroyAll returns a certificate per destroyed record")
+    void testDestroyAll() {
+        EphemeralRecord first = store.put(Map.of("data", "1"), "30m");
+        EphemeralRecord second = store.put(Map.of("data", "2"), "30m");
+
+        List<DestructionCertificate> certs = store.destroyAll(List.of(first.getId(), "nonexistent-id", second.getId()));
+
+        assertEquals(2, certs.size());
+        assertEquals(first.getId(), certs.get(0).getResource().getResourceId());
+        assertEquals(second.getId(), certs.get(1).getResource().getResourceId());
+        assertFalse(store.exists(first.getId()));
+        assertFalse(store.exists(second.getId()));
+        assertEquals(0, store.stats().get("active_keys"));
+    }
+
+    @Test
+    @DisplayName("Async put, get and destroy")
+    void testAsyncRoundTrip() {
+        EphemeralRecord record = store.putAsync(Map.of("user_id", "async"), "30m").join();
+
+        assertEquals("async", store.getAsync(record.getId()).join().get("user_id"));
+
+        DestructionCertificate cert = store.destroyAsync(record.getId()).join();
+        assertEquals(record.getId(), cert.getResource().getResourceId());
+        assertFalse(store.exists(record.getId()));
+    }
+
+    @Test
+    @DisplayName("Async get fails with RecordNotFoundException for missing record")
+    void testAsyncGetNotFound() {
+        CompletionException e = assertThrows(CompletionException.class, () -> store.getAsync("nonexistent-id").join());
+        assertTrue(e.getCause() instanceof RecordNotFoundException);
+    }
+
+    @Test
+    @DisplayName("Async operations run on a configured executor")
+    void testAsyncWithCustomExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            store = EphemeralStore.builder()
+                .backend(new MemoryBackend())
+                .executor(executor)
+                .defaultTTL("1h")
+                .build();
+
+            EphemeralRecord record = store.putAsync(Map.of("data", "value"), (Duration) null).join();
+            assertEquals("value", store.getAsync(record.getId()).join().get("data"));
+            assertEquals(1L, store.stats().get("gets"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Streams round-trip through fixed-size chunks")
+    void testStreamRoundTrip() throws IOException {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder().backend(backend).defaultTTL("1h").streamChunkSize(1024).build();
+
+        // Partial last chunk, exact multiple (ends with an empty chunk), and empty
+        for (int size : new int[] {10_000, 4096, 0}) {
+            byte[] data = randomBytes(size);
+            EphemeralRecord record = store.putStream(new ByteArrayInputStream(data), Duration.ofMinutes(5));
+
+            assertEquals(record.getId(), store.getRecord(record.getId()).getId());
+            assertTrue(backend.exists(record.getId() + ":chunk:" + size / 1024));
+            assertFalse(backend.exists(record.getId() + ":chunk:" + (size / 1024 + 1)));
+            try (InputStream in = store.openStream(record.getId())) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+        assertEquals(3L, store.stats().get("puts"));
+    }
+
+    @Test
+    @DisplayName("Streams work with key buckets and wrapped keys")
+    void testStreamKeyModes() throws IOException {
+        byte[] data = randomBytes(3000);
+        List<CryptoProvider> providers = List.of(
+            CryptoProvider.builder().keyBuckets(Duration.ofHours(1)).build(),
+            CryptoProvider.builder().keyEncryption(LocalKeyEncryptionProvider.create()).build()
+        );
+        for (CryptoProvider crypto : providers) {
+            try (EphemeralStore streams = EphemeralStore.builder()
+                    .crypto(crypto).defaultTTL("1h").streamChunkSize(1024).build()) {
+                EphemeralRecord record = streams.putStream(new ByteArrayInputStream(data), (Duration) null);
+                try (InputStream in = streams.openStream(record.getId())) {
+                    assertArrayEquals(data, in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Stream and non-stream records are not read the wrong way")
+    void testStreamReadMismatch() {
+        EphemeralRecord streamed = store.putStream(new ByteArrayInputStream(randomBytes(100)), "1h");
+        EphemeralRecord plain = store.put(Map.of("data", "value"), "1h");
+
+        assertThrows(EfsfException.class, () -> store.get(streamed.getId()));
+        assertThrows(EfsfException.class, () -> store.openStream(plain.getId()));
+        assertThrows(RecordNotFoundException.class, () -> store.openStream("no-such-record"));
+    }
+
+    @Test
+    @DisplayName("Truncated, reordered and substituted chunks fail the read")
+    void testStreamTampering() throws IOException {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder().backend(backend).defaultTTL("1h").streamChunkSize(1024).build();
+        String id = store.putStream(new ByteArrayInputStream(randomBytes(3000)), "1h").getId();
+        byte[] first = backend.getBytes(id + ":chunk:0").orElseThrow();
+        byte[] second = backend.getBytes(id + ":chunk:1").orElseThrow();
+        byte[] last = backend.getBytes(id + ":chunk:2").orElseThrow();
+
+        // Reordered
+        backend.setBytes(id + ":chunk:0", second.clone(), Duration.ofHours(1));
+        assertUnreadable(store, id);
+        backend.setBytes(id + ":chunk:0", first.clone(), Duration.ofHours(1));
+
+        // Truncated after a full chunk: the cut-off chunk is not marked as last
+        backend.delete(id + ":chunk:2");
+        assertUnreadable(store, id);
+
+        // The last chunk moved up to end the stream early
+        backend.setBytes(id + ":chunk:1", last.clone(), Duration.ofHours(1));
+        assertUnreadable(store, id);
+
+        // A chunk from another stream under the same key
+        String other = store.putStream(new ByteArrayInputStream(randomBytes(3000)), "1h").getId();
+        backend.setBytes(id + ":chunk:1", backend.getBytes(other + ":chunk:1").orElseThrow(), Duration.ofHours(1));
+        backend.setBytes(id + ":chunk:2", last.clone(), Duration.ofHours(1));
+        assertUnreadable(store, id);
+
+        backend.setBytes(id + ":chunk:1", second.clone(), Duration.ofHours(1));
+        try (InputStream in = store.openStream(id)) {
+            assertEquals(3000, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    @DisplayName("Chunks outlive their record, and a read past expiry reports the expiry")
+    void testStreamExpiry() throws Exception {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder().backend(backend).defaultTTL("1h").streamChunkSize(1024).build();
+        String id = store.putStream(new ByteArrayInputStream(randomBytes(3000)), Duration.ofMillis(500)).getId();
+        assertTrue(backend.ttl(id + ":chunk:0").orElseThrow().compareTo(backend.ttl(id).orElseThrow()) > 0);
+
+        InputStream in = store.openStream(id);
+        assertEquals(1024, in.read(new byte[1024]));
+        backend.delete(id + ":chunk:1");
+        Thread.sleep(600);
+
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertInstanceOf(RecordExpiredException.class, e.getCause());
+        in.close();
+    }
+
+    @Test
+    @DisplayName("Destroying a streamed record deletes its chunks")
+    void testStreamDestroy() {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder().backend(backend).defaultTTL("1h").streamChunkSize(16).build();
+        EphemeralRecord record = store.putStream(new ByteArrayInputStream(randomBytes(2000)), "1h");
+        assertTrue(backend.exists(record.getId() + ":chunk:125"));
+
+        DestructionCertificate cert = store.destroy(record.getId());
+
+        assertEquals(record.getId(), cert.getResource().getResourceId());
+        assertFalse(store.exists(record.getId()));
+        for (int i = 0; i <= 125; i++) {
+            assertFalse(backend.exists(record.getId() + ":chunk:" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("A failed stream write leaves nothing behind")
+    void testStreamWriteFailure() {
+        MemoryBackend backend = new MemoryBackend();
+        store = EphemeralStore.builder().backend(backend).defaultTTL("1h").streamChunkSize(100).build();
+        InputStream failing = new InputStream() {
+            private int remaining = 250;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- <= 0) {
+                    throw new IOException("connection reset");
+                }
+                return 7;
+            }
+        };
+
+        assertThrows(EfsfException.class, () -> store.putStream(failing, "1h"));
+        assertEquals(0, backend.size());
+        assertEquals(0, store.stats().get("active_keys"));
+    }
+
+    private static void assertUnreadable(EphemeralStore store, String recordId) {
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = store.openStream(recordId)) {
+                in.readAllBytes();
+            }
+        });
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * A backend whose prefix reads return exactly the requested bytes, counting whole-value reads.
+     */
+    private static final class PrefixBackend implements StorageBackend {
+        final MemoryBackend memory = new MemoryBackend();
+        int fullReads;
+
+        @Override
+        public void set(String key, String value, Duration ttl) {
+            memory.set(key, value, ttl);
+        }
+
+        @Override
+        public void setBytes(String key, byte[] value, Duration ttl) {
+            memory.setBytes(key, value, ttl);
+        }
+
+        @Override
+        public Optional<String> get(String key) {
+            fullReads++;
+            return memory.get(key);
+        }
+
+        @Override
+        public Optional<byte[]> getBytes(String key) {
+            fullReads++;
+            return memory.getBytes(key);
+        }
+
+        @Override
+        public Optional<byte[]> getAndDeleteBytes(String key) {
+            fullReads++;
+            return memory.getAndDeleteBytes(key);
+        }
+
+        @Override
+        public Optional<byte[]> getBytesPrefix(String key, int length) {
+            return memory.getBytes(key).map(value -> Arrays.copyOf(value, Math.min(length, value.length)));
+        }
+
+        @Override
+        public Optional<ValuePrefix> getAndDeleteBytesPrefix(String key, int length) {
+            return memory.getAndDeleteBytes(key)
+                .map(value -> new ValuePrefix(Arrays.copyOf(value, Math.min(length, value.length)), value.length));
+        }
+
+        @Override
+        public boolean delete(String key) {
+            return memory.delete(key);
+        }
+
+        @Override
+        public boolean exists(String key) {
+            return memory.exists(key);
+        }
+
+        @Override
+        public Optional<Duration> ttl(String key) {
+            return memory.ttl(key);
+        }
+
+        @Override
+        public String getBackendName() {
+            return "prefix";
+        }
+
+        @Override
+        public void close() {
+            memory.close();
+        }
+    }
 }
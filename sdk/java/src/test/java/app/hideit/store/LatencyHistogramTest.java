@@ -0,0 +1,44 @@
+package app.hideit.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Latency Histogram Tests")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Empty histogram reports zeros")
+    void testEmpty() {
+        Map<String, Object> snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0L, (long) snapshot.get("count"));
+        assertEquals(0L, (long) snapshot.get("p99_us"));
+    }
+
+    @Test
+    @DisplayName("Observations land in power-of-two buckets")
+    @SuppressWarnings("unchecked")
+    void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3_000);       // 3 µs
+        }
+        histogram.record(1_000_000);       // 1 ms
+        histogram.record(60_000_000_000L); // 1 min, beyond the last bucket
+
+        Map<String, Object> snapshot = histogram.snapshot();
+        Map<String, Long> buckets = (Map<String, Long>) snapshot.get("buckets");
+
+        assertEquals(100L, (long) snapshot.get("count"));
+        assertEquals(98L, (long) buckets.get("le_4us"));
+        assertEquals(1L, (long) buckets.get("le_1024us"));
+        assertEquals(1L, (long) buckets.get("le_inf"));
+        assertEquals(4L, (long) snapshot.get("p50_us"));
+        assertEquals(1024L, (long) snapshot.get("p99_us"));
+        assertEquals(Long.MAX_VALUE, (long) snapshot.get("max_us"));
+    }
+}
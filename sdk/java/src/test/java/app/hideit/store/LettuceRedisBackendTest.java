@@ -0,0 +1,86 @@
+package app.hideit.store;
+
+import app.hideit.EphemeralStore;
+import app.hideit.record.EphemeralRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a live server: {@code ./gradlew test -PredisUri=redis://localhost:6379}.
+ */
+@DisplayName("Lettuce Redis Backend Tests")
+@EnabledIfSystemProperty(named = "efsf.redis.uri", matches = ".+")
+class LettuceRedisBackendTest {
+
+    private LettuceRedisBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = LettuceRedisBackend.builder()
+            .uri(System.getProperty("efsf.redis.uri"))
+            .keyPrefix("efsf-test:" + UUID.randomUUID() + ":")
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    @DisplayName("Async operations round trip")
+    void testAsyncRoundTrip() {
+        backend.setAsync("key1", "value1", Duration.ofMinutes(5)).toCompletableFuture().join();
+
+        assertEquals("value1", backend.getAsync("key1").toCompletableFuture().join().get());
+        assertTrue(backend.existsAsync("key1").toCompletableFuture().join());
+        assertEquals("value1", backend.getAndDeleteAsync("key1").toCompletableFuture().join().get());
+        assertTrue(backend.getAndDeleteAsync("key1").toCompletableFuture().join().isEmpty());
+        assertFalse(backend.deleteAsync("key1").toCompletableFuture().join());
+    }
+
+    @Test
+    @DisplayName("Blocking and batch operations share the async commands")
+    void testBlockingAndBatch() {
+        byte[] value = {0, 1, 2, (byte) 0xff};
+        backend.setAllBytes(Map.of(
+            "key1", new StorageBackend.TimedBytes(value, Duration.ofMinutes(5)),
+            "key2", new StorageBackend.TimedBytes(value, Duration.ofMinutes(5))
+        ));
+
+        assertArrayEquals(value, backend.getBytes("key1").get());
+        assertEquals(2, backend.getAllBytes(List.of("key1", "key2", "missing")).size());
+        assertTrue(backend.ttl("key1").get().getSeconds() > 0);
+        assertEquals(2, backend.deleteAll(List.of("key1", "key2", "missing")));
+    }
+
+    @Test
+    @DisplayName("Thousands of store operations stay in flight on a few connections")
+    void testManyInFlight() {
+        try (EphemeralStore store = EphemeralStore.builder().backend(backend).defaultTTL("5m").build()) {
+            List<CompletableFuture<EphemeralRecord>> puts = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                puts.add(store.putAsync(Map.of("n", i), (Duration) null));
+            }
+            List<CompletableFuture<Map<String, Object>>> gets = new ArrayList<>();
+            for (CompletableFuture<EphemeralRecord> put : puts) {
+                gets.add(store.getAsync(put.join().getId()));
+            }
+            for (int i = 0; i < gets.size(); i++) {
+                assertEquals(i, gets.get(i).join().get("n"));
+            }
+        }
+    }
+}
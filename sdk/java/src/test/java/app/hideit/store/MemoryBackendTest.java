@@ -4,7 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +48,38 @@ class MemoryBackendTest {
         assertTrue(backend.get("key1").isEmpty());
     }
 
+    @Test
+    @DisplayName("GetAndDelete returns the value once")
+    void testGetAndDelete() {
+        backend.set("key1", "value1", Duration.ofMinutes(5));
+
+        assertEquals("value1", backend.getAndDelete("key1").get());
+        assertTrue(backend.getAndDelete("key1").isEmpty());
+        assertFalse(backend.exists("key1"));
+    }
+
+    @Test
+    @DisplayName("Binary values round trip and have a Base64 text view")
+    void testBinaryValues() {
+        byte[] value = {0, 1, 2, (byte) 0xff};
+        backend.setBytes("key1", value, Duration.ofMinutes(5));
+
+        assertArrayEquals(value, backend.getBytes("key1").get());
+        assertEquals("AAEC/w==", backend.get("key1").get());
+        assertArrayEquals(value, backend.getAndDeleteBytes("key1").get());
+        assertTrue(backend.getBytes("key1").isEmpty());
+
+        // Prefix reads fall back to the whole value
+        backend.setBytes("key3", value, Duration.ofMinutes(5));
+        assertArrayEquals(value, backend.getBytesPrefix("key3", 2).get());
+        assertEquals(value.length, backend.getAndDeleteBytesPrefix("key3", 2).get().length());
+        assertTrue(backend.getBytes("key3").isEmpty());
+
+        // Text that is not Base64 reads back as its UTF-8 bytes
+        backend.set("key2", "{\"legacy\": true}", Duration.ofMinutes(5));
+        assertEquals("{\"legacy\": true}", new String(backend.getBytes("key2").get(), StandardCharsets.UTF_8));
+    }
+
     @Test
     @DisplayName("Delete returns false for non-existent key")
     void testDeleteNonExistent() {
@@ -135,4 +171,95 @@ class MemoryBackendTest {
         assertEquals("value2", backend.get("key1").get());
         assertTrue(backend.ttl("key1").get().toMinutes() > 0);
     }
+
+    @Test
+    @DisplayName("Batch set, get and delete")
+    void testBatchOperations() {
+        backend.setAll(Map.of(
+            "key1", new StorageBackend.TimedValue("value1", Duration.ofMinutes(5)),
+            "key2", new StorageBackend.TimedValue("value2", Duration.ofMinutes(10))
+        ));
+
+        Map<String, String> values = backend.getAll(List.of("key1", "key2", "missing"));
+        assertEquals(Map.of("key1", "value1", "key2", "value2"), values);
+        assertTrue(backend.ttl("key2").get().toMinutes() > 5);
+
+        assertEquals(2, backend.deleteAll(List.of("key1", "key2", "missing")));
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    @DisplayName("Batch get-and-delete returns each value once")
+    void testGetAndDeleteAll() {
+        backend.setBytes("key1", new byte[] {1}, Duration.ofMinutes(5));
+        backend.setBytes("key2", new byte[] {2}, Duration.ofMinutes(5));
+
+        Map<String, byte[]> first = backend.getAndDeleteAllBytes(List.of("key1", "key2", "missing"));
+        assertEquals(List.of("key1", "key2"), new ArrayList<>(first.keySet()));
+        assertArrayEquals(new byte[] {2}, first.get("key2"));
+        assertTrue(backend.getAndDeleteAllBytes(List.of("key1", "key2")).isEmpty());
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    @DisplayName("Reaper removes expired entries in the background")
+    void testReaper() throws InterruptedException {
+        MemoryBackend reaped = new MemoryBackend(Duration.ofMillis(10));
+        try {
+            reaped.set("short", "value1", Duration.ofMillis(30));
+            reaped.set("long", "value2", Duration.ofMinutes(5));
+            reaped.set("overwritten", "old", Duration.ofMillis(30));
+            reaped.set("overwritten", "new", Duration.ofMinutes(5));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((long) reaped.getReaperStats().get("reaped_total") < 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "Reaper did not remove expired entry in time");
+                Thread.sleep(10);
+            }
+
+            assertTrue(reaped.get("short").isEmpty());
+            assertEquals("value2", reaped.get("long").get());
+            assertEquals("new", reaped.get("overwritten").get());
+            assertEquals(2, reaped.size());
+        } finally {
+            reaped.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Reaper stats are empty when the reaper is disabled")
+    void testReaperDisabled() {
+        assertTrue(backend.getReaperStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Timing wheel hands out items once their deadline passes, across levels")
+    void testTimingWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 0);
+        wheel.add("soon", 25);
+        wheel.add("minute", 60_000);
+        wheel.add("day", 86_400_000);
+        wheel.add("overdue", -100);
+        assertEquals(4, wheel.size());
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(10, expired);
+        assertEquals(List.of("overdue"), expired);
+
+        wheel.advance(29, expired);
+        assertEquals(List.of("overdue"), expired);
+        wheel.advance(30, expired);
+        assertEquals(List.of("overdue", "soon"), expired);
+
+        wheel.advance(59_999, expired);
+        assertEquals(2, expired.size());
+        wheel.advance(60_000, expired);
+        assertEquals("minute", expired.get(2));
+
+        wheel.advance(86_399_990, expired);
+        assertEquals(3, expired.size());
+        wheel.advance(86_400_000, expired);
+        assertEquals("day", expired.get(3));
+        assertEquals(0, wheel.size());
+    }
 }
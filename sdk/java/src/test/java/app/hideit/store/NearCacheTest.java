@@ -0,0 +1,95 @@
+package app.hideit.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Near Cache Tests")
+class NearCacheTest {
+
+    private NearCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new NearCache(100);
+        cache.setActive(true);
+    }
+
+    private void load(String key, byte[] value, long ttlMillis) {
+        cache.completeLoad(key, cache.beginLoad(key), value, ttlMillis);
+    }
+
+    @Test
+    @DisplayName("Loaded values are served as copies and counted")
+    void testHitAndMiss() {
+        assertTrue(cache.get("key1").isEmpty());
+        load("key1", new byte[] {1, 2, 3}, 60_000);
+
+        byte[] first = cache.get("key1").get();
+        first[0] = 9;
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.get("key1").get());
+        assertEquals(2L, (long) cache.stats().get("hits"));
+        assertEquals(1L, (long) cache.stats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("An invalidation during a load keeps the stale value out")
+    void testInvalidationRacesLoad() {
+        Object token = cache.beginLoad("key1");
+        cache.invalidate("key1");
+        cache.completeLoad("key1", token, new byte[] {1}, 60_000);
+
+        assertTrue(cache.get("key1").isEmpty());
+
+        load("key1", new byte[] {2}, 60_000);
+        cache.invalidate("key1");
+        assertTrue(cache.get("key1").isEmpty());
+        assertEquals(1L, (long) cache.stats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("Entries expire with the stored value's TTL")
+    void testExpiry() throws InterruptedException {
+        load("short", new byte[] {1}, 30);
+        load("none", new byte[] {1}, -1);
+        Thread.sleep(60);
+
+        assertTrue(cache.get("short").isEmpty());
+        assertTrue(cache.get("none").isEmpty());
+        assertEquals(1L, (long) cache.stats().get("expirations"));
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted to stay within the byte budget")
+    void testByteBudget() {
+        load("key1", new byte[40], 60_000);
+        load("key2", new byte[40], 60_000);
+        cache.get("key1");
+        load("key3", new byte[40], 60_000);
+        load("huge", new byte[101], 60_000);
+
+        assertTrue(cache.get("key1").isPresent());
+        assertTrue(cache.get("key2").isEmpty());
+        assertTrue(cache.get("key3").isPresent());
+        assertTrue(cache.get("huge").isEmpty());
+        assertEquals(80L, (long) cache.stats().get("bytes"));
+        assertEquals(1L, (long) cache.stats().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("An inactive cache serves and admits nothing")
+    void testInactive() {
+        load("key1", new byte[] {1}, 60_000);
+        Object token = cache.beginLoad("key2");
+        cache.setActive(false);
+
+        assertTrue(cache.get("key1").isEmpty());
+        assertNull(cache.beginLoad("key3"));
+        cache.completeLoad("key2", token, new byte[] {1}, 60_000);
+        cache.setActive(true);
+        assertTrue(cache.get("key2").isEmpty());
+        assertEquals(0L, (long) cache.stats().get("bytes"));
+    }
+}
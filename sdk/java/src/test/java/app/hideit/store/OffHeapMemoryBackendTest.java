@@ -0,0 +1,219 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Off-Heap Memory Backend Tests")
+class OffHeapMemoryBackendTest {
+
+    private OffHeapMemoryBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = OffHeapMemoryBackend.builder()
+            .slabSize(4096)
+            .maxMemory(1 << 20)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    @DisplayName("Set, get and delete across size classes")
+    void testRoundTrip() {
+        String small = "a";
+        String medium = "é".repeat(100);
+        String large = "x".repeat(10_000);
+        backend.set("small", small, Duration.ofMinutes(5));
+        backend.set("medium", medium, Duration.ofMinutes(5));
+        backend.set("large", large, Duration.ofMinutes(5));
+
+        assertEquals(small, backend.get("small").get());
+        assertEquals(medium, backend.get("medium").get());
+        assertEquals(large, backend.get("large").get());
+        assertTrue(backend.get("nonexistent").isEmpty());
+
+        assertTrue(backend.delete("large"));
+        assertFalse(backend.delete("large"));
+        assertTrue(backend.get("large").isEmpty());
+        assertEquals(2, backend.size());
+    }
+
+    @Test
+    @DisplayName("Deleted and overwritten values are zeroized and their blocks reused")
+    void testZeroizeOnDelete() {
+        backend.set("key1", "secret-value-1", Duration.ofMinutes(5));
+        backend.set("key1", "secret-value-2", Duration.ofMinutes(5));
+        assertEquals("key1".length() + "secret-value-2".length(), backend.countNonZeroSlabBytes());
+
+        assertTrue(backend.delete("key1"));
+        assertEquals(0, backend.countNonZeroSlabBytes());
+        assertEquals(0L, backend.getMemoryStats().get("used_bytes"));
+
+        long allocated = (long) backend.getMemoryStats().get("allocated_bytes");
+        for (int i = 0; i < 100; i++) {
+            backend.set("key" + i, "value", Duration.ofMinutes(5));
+            backend.delete("key" + i);
+        }
+        assertEquals(allocated, backend.getMemoryStats().get("allocated_bytes"));
+    }
+
+    @Test
+    @DisplayName("GetAndDelete returns the value once and zeroizes it")
+    void testGetAndDelete() {
+        backend.set("key1", "value1", Duration.ofMinutes(5));
+
+        assertEquals("value1", backend.getAndDelete("key1").get());
+        assertTrue(backend.getAndDelete("key1").isEmpty());
+        assertEquals(0, backend.countNonZeroSlabBytes());
+    }
+
+    @Test
+    @DisplayName("Binary values are stored as raw bytes")
+    void testBinaryValues() {
+        byte[] value = new byte[300];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) (i % 255 + 1);
+        }
+        backend.setBytes("key1", value, Duration.ofMinutes(5));
+
+        assertEquals("key1".length() + value.length, backend.countNonZeroSlabBytes());
+        assertArrayEquals(value, backend.getBytes("key1").get());
+        assertArrayEquals(value, backend.getBytes("key1").get());
+        assertEquals(Base64.getEncoder().encodeToString(value), backend.get("key1").get());
+        assertArrayEquals(value, backend.getAndDeleteBytes("key1").get());
+        assertEquals(0, backend.countNonZeroSlabBytes());
+    }
+
+    @Test
+    @DisplayName("Expired values are zeroized on access and cleanup")
+    void testZeroizeOnExpiry() throws InterruptedException {
+        backend.set("key1", "value1", Duration.ofMillis(50));
+        backend.set("key2", "value2", Duration.ofMillis(50));
+        backend.set("key3", "value3", Duration.ofMinutes(5));
+        Thread.sleep(100);
+
+        // get still returns expired values so the caller can tell expired from missing
+        assertEquals("value1", backend.get("key1").get());
+        assertFalse(backend.exists("key1"));
+        assertTrue(backend.ttl("key2").isEmpty());
+        assertEquals(0, backend.cleanup());
+
+        assertEquals(1, backend.size());
+        assertEquals("key3".length() + "value3".length(), backend.countNonZeroSlabBytes());
+    }
+
+    @Test
+    @DisplayName("The index grows, shrinks and tells colliding keys apart")
+    void testIndex() {
+        // "Aa" and "BB" share a hash code, so only the stored key bytes tell them apart
+        backend.set("Aa", "first", Duration.ofMinutes(5));
+        backend.set("BB", "second", Duration.ofMinutes(5));
+        assertEquals("first", backend.get("Aa").get());
+        assertEquals("second", backend.get("BB").get());
+        assertTrue(backend.delete("Aa"));
+        assertEquals("second", backend.get("BB").get());
+
+        for (int i = 0; i < 5000; i++) {
+            backend.set("key" + i, "v" + i, Duration.ofMinutes(5));
+        }
+        long grown = (long) backend.getMemoryStats().get("index_bytes");
+        for (int i = 0; i < 5000; i += 2) {
+            assertTrue(backend.delete("key" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i % 2 == 1, backend.get("key" + i).isPresent());
+        }
+        for (int i = 1; i < 5000; i += 2) {
+            assertTrue(backend.delete("key" + i));
+        }
+
+        assertEquals(1, backend.size());
+        assertTrue((long) backend.getMemoryStats().get("index_bytes") < grown);
+        assertEquals("BB".length() + "second".length(), backend.countNonZeroSlabBytes());
+    }
+
+    @Test
+    @DisplayName("Writes beyond the memory limit fail")
+    void testMemoryLimit() {
+        OffHeapMemoryBackend limited = OffHeapMemoryBackend.builder()
+            .slabSize(4096)
+            .maxMemory(4096)
+            .build();
+        try {
+            // Keys are stored with their values, so each entry fills half the slab
+            limited.set("key1", "x".repeat(2044), Duration.ofMinutes(5));
+            limited.set("key2", "x".repeat(2044), Duration.ofMinutes(5));
+            assertThrows(BackendException.class,
+                () -> limited.set("key3", "x".repeat(100), Duration.ofMinutes(5)));
+
+            limited.delete("key1");
+            limited.set("key3", "x".repeat(2044), Duration.ofMinutes(5));
+            assertEquals(2, limited.size());
+        } finally {
+            limited.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Reaper zeroizes expired entries in the background")
+    void testReaper() throws InterruptedException {
+        OffHeapMemoryBackend reaped = OffHeapMemoryBackend.builder()
+            .slabSize(4096)
+            .reaper(Duration.ofMillis(10))
+            .build();
+        try {
+            reaped.set("short", "value1", Duration.ofMillis(30));
+            reaped.set("long", "value2", Duration.ofMinutes(5));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((long) reaped.getReaperStats().get("reaped_total") < 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "Reaper did not remove expired entry in time");
+                Thread.sleep(10);
+            }
+
+            assertTrue(reaped.get("short").isEmpty());
+            assertEquals("value2", reaped.get("long").get());
+            assertEquals("long".length() + "value2".length(), reaped.countNonZeroSlabBytes());
+        } finally {
+            reaped.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Batch operations use the default implementations")
+    void testBatchOperations() {
+        backend.setAll(Map.of(
+            "key1", new StorageBackend.TimedValue("value1", Duration.ofMinutes(5)),
+            "key2", new StorageBackend.TimedValue("value2", Duration.ofMinutes(5))
+        ));
+
+        Map<String, String> values = backend.getAll(List.of("key1", "key2", "missing"));
+        assertEquals(Map.of("key1", "value1", "key2", "value2"), values);
+        assertEquals(2, backend.deleteAll(List.of("key1", "key2", "missing")));
+        assertEquals(0, backend.countNonZeroSlabBytes());
+    }
+
+    @Test
+    @DisplayName("Close zeroizes everything")
+    void testClose() {
+        backend.set("key1", "value1", Duration.ofMinutes(5));
+        backend.close();
+
+        assertEquals(0, backend.size());
+        assertEquals(0L, backend.getMemoryStats().get("allocated_bytes"));
+    }
+}
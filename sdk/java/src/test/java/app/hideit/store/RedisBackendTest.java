@@ -0,0 +1,136 @@
+package app.hideit.store;
+
+import app.hideit.EphemeralStore;
+import app.hideit.exception.BackendException;
+import app.hideit.record.EphemeralRecord;
+import app.hideit.record.RecordEnvelope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a live server: {@code ./gradlew test -PredisUri=redis://localhost:6379}.
+ */
+@DisplayName("Redis Backend Tests")
+@EnabledIfSystemProperty(named = "efsf.redis.uri", matches = ".+")
+class RedisBackendTest {
+
+    private RedisBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = RedisBackend.builder()
+            .uri(System.getProperty("efsf.redis.uri"))
+            .keyPrefix("efsf-test:" + UUID.randomUUID() + ":")
+            .autoBatching(Duration.ofMillis(2), 64)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    @DisplayName("Auto-batched commands round trip")
+    void testAutoBatchedRoundTrip() {
+        byte[] value = {0, 1, 2, (byte) 0xff};
+        backend.set("key1", "value1", Duration.ofMinutes(5));
+        backend.setBytes("key2", value, Duration.ofMinutes(5));
+
+        assertEquals("value1", backend.get("key1").get());
+        assertArrayEquals(value, backend.getBytes("key2").get());
+        assertTrue(backend.exists("key1"));
+        assertTrue(backend.ttl("key1").get().getSeconds() > 0);
+        assertEquals("value1", backend.getAndDelete("key1").get());
+        assertTrue(backend.get("key1").isEmpty());
+        assertTrue(backend.delete("key2"));
+        assertFalse(backend.delete("key2"));
+    }
+
+    @Test
+    @DisplayName("Concurrent callers share pipelines")
+    void testAutoBatchingConcurrency() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int t = 0; t < 32; t++) {
+                int thread = t;
+                callers.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        String key = "key-" + thread + "-" + i;
+                        backend.set(key, key, Duration.ofMinutes(5));
+                        assertEquals(key, backend.get(key).get());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long batches = (long) backend.getBatchingStats().get("batches");
+        long commands = (long) backend.getBatchingStats().get("commands");
+        assertTrue(commands >= 6400);
+        assertTrue(batches < commands, batches + " pipelines for " + commands + " commands");
+    }
+
+    @Test
+    @DisplayName("The hash layout splits envelopes after their header and stores other values whole")
+    void testHashLayout() throws Exception {
+        try (RedisBackend hashes = RedisBackend.builder()
+                .uri(System.getProperty("efsf.redis.uri"))
+                .keyPrefix("efsf-test:" + UUID.randomUUID() + ":")
+                .layout(RedisBackend.Layout.HASH)
+                .build();
+             EphemeralStore store = EphemeralStore.builder().backend(hashes).defaultTTL("5m").build()) {
+            byte[] chunk = new byte[1000];
+            new Random(1).nextBytes(chunk);
+            hashes.setBytes("chunk", chunk, Duration.ofMinutes(5));
+            assertArrayEquals(chunk, hashes.getBytes("chunk").get());
+            assertArrayEquals(chunk, hashes.getBytesPrefix("chunk", RecordEnvelope.HEADER_PREFIX_LENGTH).get());
+
+            EphemeralRecord record = store.put(Map.of("data", "value"), (Duration) null);
+            byte[] header = hashes.getBytesPrefix(record.getId(), RecordEnvelope.HEADER_PREFIX_LENGTH).get();
+            assertEquals(RecordEnvelope.HEADER_PREFIX_LENGTH, header.length);
+            assertEquals(record.getId(), store.getRecord(record.getId()).getId());
+            assertEquals(Map.of("data", "value"), store.get(record.getId()));
+
+            byte[] data = new byte[5000];
+            new Random(2).nextBytes(data);
+            EphemeralRecord streamed = store.putStream(new ByteArrayInputStream(data), "5m");
+            try (InputStream in = store.openStream(streamed.getId())) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+            store.destroy(streamed.getId());
+            assertFalse(hashes.exists(streamed.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Commands after close fail")
+    void testClosed() {
+        backend.close();
+        assertThrows(BackendException.class, () -> backend.get("key1"));
+    }
+}
@@ -0,0 +1,119 @@
+package app.hideit.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a live cluster, e.g. a local multi-process one (see the README):
+ * {@code ./gradlew test -PredisClusterNodes=127.0.0.1:7000,127.0.0.1:7001,127.0.0.1:7002}.
+ */
+@DisplayName("Redis Cluster Backend Tests")
+@EnabledIfSystemProperty(named = "efsf.redis.cluster.nodes", matches = ".+")
+class RedisClusterBackendTest {
+
+    private RedisClusterBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = RedisClusterBackend.builder()
+            .nodes(System.getProperty("efsf.redis.cluster.nodes").split(","))
+            .keyPrefix("efsf-test:" + UUID.randomUUID() + ":")
+            .hashTag(key -> key.startsWith("tenant-") ? key.substring(0, key.indexOf('/')) : null)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    @DisplayName("Single-key operations are routed to the owning node")
+    void testSingleKeyOperations() {
+        backend.set("key1", "value1", Duration.ofMinutes(5));
+
+        assertEquals("value1", backend.get("key1").get());
+        assertTrue(backend.exists("key1"));
+        assertTrue(backend.ttl("key1").get().getSeconds() > 0);
+        assertEquals("value1", backend.getAndDelete("key1").get());
+        assertTrue(backend.getAndDelete("key1").isEmpty());
+        assertFalse(backend.delete("key1"));
+    }
+
+    @Test
+    @DisplayName("Binary values round trip")
+    void testBinaryValues() {
+        byte[] value = {0, 1, 2, (byte) 0xff};
+        backend.setBytes("key1", value, Duration.ofMinutes(5));
+
+        assertArrayEquals(value, backend.getBytes("key1").get());
+        assertArrayEquals(value, backend.getAndDeleteBytes("key1").get());
+        assertTrue(backend.getBytes("key1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Batch operations span slots and nodes")
+    void testBatchAcrossSlots() {
+        Map<String, StorageBackend.TimedValue> entries = new LinkedHashMap<>();
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            entries.put("key" + i, new StorageBackend.TimedValue("value" + i, Duration.ofMinutes(5)));
+            slots.add(backend.slotOf("key" + i));
+        }
+        assertTrue(slots.size() > 1);
+        backend.setAll(entries);
+
+        List<String> keys = new ArrayList<>(entries.keySet());
+        keys.add("missing");
+        Map<String, String> values = backend.getAll(keys);
+        assertEquals(200, values.size());
+        assertEquals("value42", values.get("key42"));
+        assertEquals(new ArrayList<>(entries.keySet()), new ArrayList<>(values.keySet()));
+
+        assertEquals(200, backend.deleteAll(keys));
+        assertTrue(backend.getAll(keys).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Binary batch operations span slots and nodes")
+    void testBinaryBatchAcrossSlots() {
+        Map<String, StorageBackend.TimedBytes> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            entries.put("key" + i, new StorageBackend.TimedBytes(new byte[] {(byte) i}, Duration.ofMinutes(5)));
+        }
+        backend.setAllBytes(entries);
+
+        Map<String, byte[]> values = backend.getAllBytes(entries.keySet());
+        assertEquals(50, values.size());
+        assertArrayEquals(new byte[] {7}, values.get("key7"));
+        assertEquals(50, backend.deleteAll(entries.keySet()));
+    }
+
+    @Test
+    @DisplayName("Keys with the same hash tag share a slot")
+    void testHashTags() {
+        int slot = backend.slotOf("tenant-a/record1");
+        for (int i = 2; i < 20; i++) {
+            assertEquals(slot, backend.slotOf("tenant-a/record" + i));
+        }
+
+        backend.set("tenant-a/record1", "value1", Duration.ofMinutes(5));
+        backend.set("tenant-a/record2", "value2", Duration.ofMinutes(5));
+        assertEquals(2, backend.getAll(List.of("tenant-a/record1", "tenant-a/record2")).size());
+        assertEquals(2, backend.deleteAll(List.of("tenant-a/record1", "tenant-a/record2")));
+    }
+}
@@ -0,0 +1,285 @@
+package app.hideit.store;
+
+import app.hideit.exception.BackendException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the batcher against stub connections whose pipelines answer locally, so no server
+ * is needed. Auto-batching through {@link RedisBackend} is covered by {@code RedisBackendTest}.
+ */
+@DisplayName("Redis Command Batcher Tests")
+class RedisCommandBatcherTest {
+
+    private final StubRedis redis = new StubRedis();
+    private RedisCommandBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        redis.release();
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Commands from many threads are coalesced into one pipeline")
+    void testCoalescing() throws Exception {
+        batcher = new RedisCommandBatcher(redis, Duration.ofMillis(20), 1000, 1);
+        redis.hold();
+        CompletableFuture<String> first = batcher.submit(reply("first"));
+        redis.awaitHeld();
+
+        // Everything queued while the first pipeline is in flight goes out in the next one
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<CompletableFuture<String>>>> submitters = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            submitters.add(executor.submit(() -> {
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    futures.add(batcher.submit(reply(thread + ":" + i)));
+                }
+                return futures;
+            }));
+        }
+        List<List<CompletableFuture<String>>> submitted = new ArrayList<>();
+        for (Future<List<CompletableFuture<String>>> submitter : submitters) {
+            submitted.add(submitter.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        redis.release();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(t + ":" + i, submitted.get(t).get(i).get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(List.of(1, 800), redis.batchSizes);
+        assertEquals(Map.of("batches", 2L, "commands", 801L, "queued", 0), batcher.stats());
+    }
+
+    @Test
+    @DisplayName("Batches are cut at the max batch size")
+    void testMaxBatchSize() throws Exception {
+        batcher = new RedisCommandBatcher(redis, Duration.ofMillis(50), 10, 1);
+        redis.hold();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        futures.add(batcher.submit(reply("0")));
+        redis.awaitHeld();
+        for (int i = 1; i <= 25; i++) {
+            futures.add(batcher.submit(reply(String.valueOf(i))));
+        }
+        redis.release();
+
+        for (int i = 0; i <= 25; i++) {
+            assertEquals(String.valueOf(i), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(1, 10, 10, 5), redis.batchSizes);
+    }
+
+    @Test
+    @DisplayName("A batch stays open for the flush window")
+    void testFlushWindow() throws Exception {
+        batcher = new RedisCommandBatcher(redis, Duration.ofMillis(200), 100, 1);
+        long start = System.nanoTime();
+        CompletableFuture<String> first = batcher.submit(reply("first"));
+        Thread.sleep(50);
+        CompletableFuture<String> second = batcher.submit(reply("second"));
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+
+        assertTrue(elapsedMillis >= 150, "Flushed after " + elapsedMillis + " ms");
+        assertEquals(List.of(2), redis.batchSizes);
+    }
+
+    @Test
+    @DisplayName("Command errors fail one command, connection errors the whole batch")
+    void testFailures() throws Exception {
+        batcher = new RedisCommandBatcher(redis, Duration.ofMillis(20), 100, 1);
+        redis.hold();
+        CompletableFuture<String> before = batcher.submit(reply("before"));
+        redis.awaitHeld();
+        CompletableFuture<String> wrongType = batcher.submit(error("WRONGTYPE Operation against a key"));
+        CompletableFuture<String> after = batcher.submit(reply("after"));
+        redis.release();
+
+        assertEquals("before", before.get(5, TimeUnit.SECONDS));
+        assertEquals("after", after.get(5, TimeUnit.SECONDS));
+        ExecutionException commandError = assertThrows(ExecutionException.class,
+            () -> wrongType.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(JedisDataException.class, commandError.getCause());
+
+        // Both the pipeline in flight and the one queued behind it fail
+        JedisConnectionException reset = new JedisConnectionException("Connection reset");
+        redis.hold();
+        List<CompletableFuture<String>> failing = new ArrayList<>();
+        failing.add(batcher.submit(reply("lost")));
+        redis.awaitHeld();
+        for (int i = 0; i < 5; i++) {
+            failing.add(batcher.submit(reply("lost")));
+        }
+        redis.failure = reset;
+        redis.release();
+        for (CompletableFuture<String> future : failing) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertSame(reset, e.getCause());
+        }
+
+        redis.failure = null;
+        assertEquals("recovered", batcher.submit(reply("recovered")).get(5, TimeUnit.SECONDS));
+        assertEquals(3L, batcher.stats().get("batches"));
+    }
+
+    @Test
+    @DisplayName("Commands submitted while closing are flushed or failed, never lost")
+    void testSubmitRacingClose() throws Exception {
+        batcher = new RedisCommandBatcher(redis, Duration.ofMillis(1), 16, 2);
+        List<CompletableFuture<String>> futures = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                started.countDown();
+                for (int i = 0; i < 2000; i++) {
+                    futures.add(batcher.submit(reply("value")));
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        batcher.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(8000, futures.size());
+        for (CompletableFuture<String> future : futures) {
+            try {
+                assertEquals("value", future.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertInstanceOf(BackendException.class, e.getCause());
+            }
+        }
+        assertTrue(batcher.submit(reply("late")).isCompletedExceptionally());
+        assertEquals(0, batcher.stats().get("queued"));
+    }
+
+    private static Function<Pipeline, Response<String>> reply(String value) {
+        return pipeline -> ((StubPipeline) pipeline).reply(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Function<Pipeline, Response<String>> error(String message) {
+        return pipeline -> ((StubPipeline) pipeline).reply(new JedisDataException(message));
+    }
+
+    /**
+     * Hands out connections whose pipelines answer locally, recording the size of each pipeline
+     * that succeeds. After {@link #hold}, pipelines block in sync until {@link #release}.
+     */
+    private static final class StubRedis implements Supplier<Jedis> {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        volatile RuntimeException failure;
+        private volatile CountDownLatch held = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Override
+        public Jedis get() {
+            return new StubJedis(this);
+        }
+
+        void hold() {
+            held = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+        }
+
+        void awaitHeld() throws InterruptedException {
+            assertTrue(held.await(5, TimeUnit.SECONDS), "No pipeline was sent");
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        void sync(int size) {
+            held.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JedisConnectionException("Interrupted");
+            }
+            RuntimeException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+            batchSizes.add(size);
+        }
+    }
+
+    private static final class StubJedis extends Jedis {
+        private final StubRedis redis;
+
+        StubJedis(StubRedis redis) {
+            this.redis = redis;
+        }
+
+        @Override
+        public Pipeline pipelined() {
+            return new StubPipeline(redis);
+        }
+    }
+
+    private static final class StubPipeline extends Pipeline {
+        private final StubRedis redis;
+        private final List<Response<String>> responses = new ArrayList<>();
+        private final List<Object> replies = new ArrayList<>();
+
+        StubPipeline(StubRedis redis) {
+            super(new Connection());
+            this.redis = redis;
+        }
+
+        Response<String> reply(Object reply) {
+            Response<String> response = new Response<>(BuilderFactory.STRING);
+            responses.add(response);
+            replies.add(reply);
+            return response;
+        }
+
+        @Override
+        public void sync() {
+            redis.sync(responses.size());
+            for (int i = 0; i < responses.size(); i++) {
+                responses.get(i).set(replies.get(i));
+            }
+        }
+    }
+}